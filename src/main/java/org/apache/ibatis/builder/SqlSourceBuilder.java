@@ -16,6 +16,7 @@
 package org.apache.ibatis.builder;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -40,7 +41,16 @@ public class SqlSourceBuilder extends BaseBuilder {
   }
 
   public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters) {
-    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters);
+    return parse(originalSql, parameterType, additionalParameters, Collections.emptyMap());
+  }
+
+  /**
+   * Same as {@link #parse(String, Class, Map)}, but the tokens found in {@code preparedParameterMappings} use the
+   * given mapping instead of being parsed.
+   */
+  public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters,
+      Map<String, ParameterMapping> preparedParameterMappings) {
+    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters, preparedParameterMappings);
     GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
     String sql = parser.parse(originalSql);
     return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
@@ -51,11 +61,14 @@ public class SqlSourceBuilder extends BaseBuilder {
     private List<ParameterMapping> parameterMappings = new ArrayList<>();
     private Class<?> parameterType;
     private MetaObject metaParameters;
+    private Map<String, ParameterMapping> preparedParameterMappings;
 
-    public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters,
+        Map<String, ParameterMapping> preparedParameterMappings) {
       super(configuration);
       this.parameterType = parameterType;
       this.metaParameters = configuration.newMetaObject(additionalParameters);
+      this.preparedParameterMappings = preparedParameterMappings;
     }
 
     public List<ParameterMapping> getParameterMappings() {
@@ -64,7 +77,8 @@ public class SqlSourceBuilder extends BaseBuilder {
 
     @Override
     public String handleToken(String content) {
-      parameterMappings.add(buildParameterMapping(content));
+      ParameterMapping parameterMapping = preparedParameterMappings.get(content);
+      parameterMappings.add(parameterMapping != null ? parameterMapping : buildParameterMapping(content));
       return "?";
     }
 
@@ -0,0 +1,188 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The connections of a {@link PooledDataSource}, borrowed and returned without a lock.
+ * <p>
+ * Each entry carries its own state, which borrowers flip with a compare-and-set. A thread first looks at the entries
+ * it returned itself, most recent first, then scans the shared list. Once nothing is free, it waits on a
+ * {@link SynchronousQueue} to which returning threads hand their entry directly.
+ */
+final class ConnectionBag {
+
+  // entries remembered per thread, beyond which they are only found in the shared list
+  private static final int MAX_THREAD_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<PoolEntry>>> threadList = ThreadLocal.withInitial(ArrayList::new);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+  // off when threads are short-lived, as each would get a list that is never reused
+  private volatile boolean threadAffinity = true;
+
+  void setThreadAffinity(boolean threadAffinity) {
+    this.threadAffinity = threadAffinity;
+  }
+
+  /**
+   * Returns the number of threads looking for a free entry or waiting for one.
+   */
+  int getWaiterCount() {
+    return waiters.get();
+  }
+
+  /**
+   * Takes a free entry, waiting up to {@code timeout} for one to be returned.
+   *
+   * @return the entry, now in use, or null if none was free in time
+   */
+  PoolEntry borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    if (threadAffinity) {
+      final List<WeakReference<PoolEntry>> list = threadList.get();
+      for (int i = list.size() - 1; i >= 0; i--) {
+        final PoolEntry entry = list.remove(i).get();
+        if (entry != null && entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+          return entry;
+        }
+      }
+    }
+    waiters.incrementAndGet();
+    try {
+      for (PoolEntry entry : sharedList) {
+        if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+          return entry;
+        }
+      }
+      long remaining = unit.toNanos(timeout);
+      while (true) {
+        final long start = System.nanoTime();
+        final PoolEntry entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+        if (remaining <= 0) {
+          return null;
+        }
+      }
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Makes a borrowed entry free again, handing it to a waiting thread if there is one.
+   */
+  void requite(PoolEntry entry) {
+    entry.setState(PoolEntry.STATE_NOT_IN_USE);
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != PoolEntry.STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    if (threadAffinity) {
+      final List<WeakReference<PoolEntry>> list = threadList.get();
+      if (list.size() < MAX_THREAD_ENTRIES) {
+        list.add(new WeakReference<>(entry));
+      }
+    }
+  }
+
+  /**
+   * Adds an entry, handing it to a waiting thread if it is free.
+   */
+  void add(PoolEntry entry) {
+    sharedList.add(entry);
+    handOff(entry);
+  }
+
+  /**
+   * Takes a free entry out of reach of borrowers, to check or close it.
+   *
+   * @return false if it was not free
+   */
+  boolean reserve(PoolEntry entry) {
+    return entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_RESERVED);
+  }
+
+  /**
+   * Makes a reserved entry free again, handing it to a waiting thread if there is one.
+   */
+  void unreserve(PoolEntry entry) {
+    if (entry.compareAndSetState(PoolEntry.STATE_RESERVED, PoolEntry.STATE_NOT_IN_USE)) {
+      handOff(entry);
+    }
+  }
+
+  private void handOff(PoolEntry entry) {
+    while (waiters.get() > 0 && entry.getState() == PoolEntry.STATE_NOT_IN_USE && !handoffQueue.offer(entry)) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Removes an entry whatever its state.
+   *
+   * @return false if it had already been removed
+   */
+  boolean remove(PoolEntry entry) {
+    int state = entry.getState();
+    while (state != PoolEntry.STATE_REMOVED) {
+      if (entry.compareAndSetState(state, PoolEntry.STATE_REMOVED)) {
+        sharedList.remove(entry);
+        return true;
+      }
+      state = entry.getState();
+    }
+    return false;
+  }
+
+  /**
+   * Returns a snapshot of the entries.
+   */
+  List<PoolEntry> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (PoolEntry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int size() {
+    return sharedList.size();
+  }
+
+}
@@ -0,0 +1,153 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A physical connection of the pool. It stays in the {@link ConnectionBag} of its {@link SubPool} for its whole life, while a new
+ * {@link PooledConnection} is handed out on each checkout.
+ *
+ * @see ConnectionBag
+ */
+final class PoolEntry {
+
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_REMOVED = -1;
+  static final int STATE_RESERVED = -2;
+
+  private final AtomicInteger state = new AtomicInteger();
+  // the connection handed out while in use
+  private final AtomicReference<PooledConnection> holder = new AtomicReference<>();
+  private final Connection realConnection;
+  private final SubPool subPool;
+  private final long createdTimestamp;
+  // when the connection must be closed, spread so that connections opened together are not all closed at once
+  private final long expiryTimestamp;
+  private volatile long lastUsedTimestamp;
+  private volatile long lastValidatedTimestamp;
+  private volatile StatementCache statementCache;
+
+  PoolEntry(Connection realConnection, SubPool subPool, PooledDataSource dataSource, int state) {
+    this.state.set(state);
+    this.realConnection = realConnection;
+    this.subPool = subPool;
+    this.createdTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = createdTimestamp;
+    this.lastValidatedTimestamp = createdTimestamp;
+    final long maximumLifetime = dataSource.poolMaximumLifetime;
+    if (maximumLifetime > 0) {
+      final long variance = maximumLifetime > 10000 ? ThreadLocalRandom.current().nextLong(maximumLifetime / 40) : 0;
+      this.expiryTimestamp = createdTimestamp + maximumLifetime - variance;
+    } else {
+      this.expiryTimestamp = Long.MAX_VALUE;
+    }
+    resetStatementCache(dataSource);
+  }
+
+  int getState() {
+    return state.get();
+  }
+
+  void setState(int newState) {
+    state.set(newState);
+  }
+
+  boolean compareAndSetState(int expect, int update) {
+    return state.compareAndSet(expect, update);
+  }
+
+  PooledConnection getHolder() {
+    return holder.get();
+  }
+
+  void setHolder(PooledConnection connection) {
+    holder.set(connection);
+  }
+
+  /**
+   * Hands the connection of {@code current}, which has held it for too long, to {@code next}.
+   *
+   * @return false if {@code current} has returned the connection or lost it meanwhile
+   */
+  boolean claim(PooledConnection current, PooledConnection next) {
+    return holder.compareAndSet(current, next);
+  }
+
+  /**
+   * Detaches {@code current} from the connection it is returning.
+   *
+   * @return false if {@code current} no longer holds the connection
+   */
+  boolean release(PooledConnection current) {
+    return holder.compareAndSet(current, null);
+  }
+
+  Connection getRealConnection() {
+    return realConnection;
+  }
+
+  /**
+   * Returns the sub-pool of the credentials the connection was opened with.
+   */
+  SubPool getSubPool() {
+    return subPool;
+  }
+
+  long getCreatedTimestamp() {
+    return createdTimestamp;
+  }
+
+  long getLastUsedTimestamp() {
+    return lastUsedTimestamp;
+  }
+
+  void setLastUsedTimestamp(long lastUsedTimestamp) {
+    this.lastUsedTimestamp = lastUsedTimestamp;
+  }
+
+  /**
+   * Returns true if the connection has reached its maximum lifetime.
+   */
+  boolean isExpired(long now) {
+    return now >= expiryTimestamp;
+  }
+
+  long getLastValidatedTimestamp() {
+    return lastValidatedTimestamp;
+  }
+
+  void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+    this.lastValidatedTimestamp = lastValidatedTimestamp;
+  }
+
+  StatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Replaces the statement cache by an empty one, leaving the statements of the previous one open.
+   */
+  void resetStatementCache(PooledDataSource dataSource) {
+    statementCache = dataSource.poolStatementCacheSize > 0
+        ? new StatementCache(dataSource.poolStatementCacheSize, dataSource.getPoolState()) : null;
+  }
+
+}
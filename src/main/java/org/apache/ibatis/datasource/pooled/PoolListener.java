@@ -0,0 +1,64 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives the events of a {@link PooledDataSource}, to feed a metrics system. The methods are called by the thread
+ * borrowing, returning or opening the connection, while no lock is held; they should return quickly and not throw.
+ *
+ * @see PooledDataSource#addPoolListener(PoolListener)
+ */
+public interface PoolListener {
+
+  /**
+   * A connection was opened.
+   *
+   * @param createTime the time taken to open it, in milliseconds
+   */
+  default void connectionCreated(long createTime) {
+  }
+
+  /**
+   * A connection was handed out.
+   *
+   * @param waitTime the time the borrower waited for a connection to be returned, in milliseconds
+   */
+  default void connectionBorrowed(long waitTime) {
+  }
+
+  /**
+   * A connection was returned to the pool.
+   *
+   * @param holdTime the time the connection was checked out, in milliseconds
+   */
+  default void connectionReturned(long holdTime) {
+  }
+
+  /**
+   * A connection was closed and removed from the pool.
+   */
+  default void connectionClosed() {
+  }
+
+  /**
+   * A borrower gave up after waiting poolMaximumWaitTime.
+   *
+   * @param waitTime the time the borrower waited, in milliseconds
+   */
+  default void borrowTimedOut(long waitTime) {
+  }
+
+}
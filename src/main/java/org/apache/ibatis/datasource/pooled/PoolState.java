@@ -16,74 +16,198 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author Clinton Begin
  */
-public class PoolState {
+public class PoolState implements PoolStateMXBean {
 
   protected PooledDataSource dataSource;
 
-  protected final List<PooledConnection> idleConnections = new ArrayList<>();
-  protected final List<PooledConnection> activeConnections = new ArrayList<>();
-  protected long requestCount = 0;
-  protected long accumulatedRequestTime = 0;
-  protected long accumulatedCheckoutTime = 0;
-  protected long claimedOverdueConnectionCount = 0;
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  protected long accumulatedWaitTime = 0;
-  protected long hadToWaitCount = 0;
-  protected long badConnectionCount = 0;
+  final SubPool defaultPool = new SubPool();
+  // the sub-pools of the other credentials, by username and password
+  final ConcurrentMap<List<String>, SubPool> userPools = new ConcurrentHashMap<>();
+  // updated by the borrowing and returning threads without a lock
+  protected final LongAdder requestCount = new LongAdder();
+  protected final LongAdder accumulatedRequestTime = new LongAdder();
+  protected final LongAdder accumulatedCheckoutTime = new LongAdder();
+  protected final LongAdder claimedOverdueConnectionCount = new LongAdder();
+  protected final LongAdder accumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
+  protected final LongAdder accumulatedWaitTime = new LongAdder();
+  protected final LongAdder hadToWaitCount = new LongAdder();
+  protected final LongAdder badConnectionCount = new LongAdder();
+  protected final LongAdder timedOutWaitCount = new LongAdder();
+  // the time each borrower waited for a connection to be returned, in milliseconds
+  protected final Histogram waitTimeHistogram = new Histogram();
+  // the time each connection was checked out, and the time each took to open, in milliseconds
+  protected final Histogram holdTimeHistogram = new Histogram();
+  protected final Histogram createTimeHistogram = new Histogram();
+  protected final LongAdder statementCacheHitCount = new LongAdder();
+  protected final LongAdder statementCacheMissCount = new LongAdder();
+  protected final LongAdder statementCacheEvictionCount = new LongAdder();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  @Override
+  public long getRequestCount() {
+    return requestCount.sum();
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageRequestTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedRequestTime.sum() / requests;
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCount.sum();
+    return waits == 0 ? 0 : accumulatedWaitTime.sum() / waits;
 
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCount.sum();
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCount.sum();
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  /**
+   * Returns the number of borrowers that gave up after waiting poolMaximumWaitTime.
+   */
+  @Override
+  public long getTimedOutWaitCount() {
+    return timedOutWaitCount.sum();
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  /**
+   * Returns the distribution of the time in milliseconds borrowers waited for a connection to be returned, 0 for
+   * those that did not wait, including the borrowers that timed out.
+   */
+  @Override
+  public Histogram getWaitTimeHistogram() {
+    return waitTimeHistogram;
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  /**
+   * Returns the distribution of the time in milliseconds connections were checked out before being returned.
+   */
+  @Override
+  public Histogram getHoldTimeHistogram() {
+    return holdTimeHistogram;
+  }
+
+  /**
+   * Returns the distribution of the time in milliseconds taken to open a connection.
+   */
+  @Override
+  public Histogram getCreateTimeHistogram() {
+    return createTimeHistogram;
   }
 
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount.sum();
+  }
+
+  public long getAverageOverdueCheckoutTime() {
+    long claims = claimedOverdueConnectionCount.sum();
+    return claims == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections.sum() / claims;
+  }
+
+  public long getAverageCheckoutTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedCheckoutTime.sum() / requests;
+  }
+
+  public long getStatementCacheHitCount() {
+    return statementCacheHitCount.sum();
+  }
+
+  public long getStatementCacheMissCount() {
+    return statementCacheMissCount.sum();
+  }
+
+  public long getStatementCacheEvictionCount() {
+    return statementCacheEvictionCount.sum();
+  }
+
+  @Override
+  public double getStatementCacheHitRatio() {
+    long hits = statementCacheHitCount.sum();
+    long lookups = hits + statementCacheMissCount.sum();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    int count = 0;
+    for (SubPool pool : getSubPools()) {
+      count += pool.connections.getCount(PoolEntry.STATE_NOT_IN_USE);
+    }
+    return count;
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    int count = 0;
+    for (SubPool pool : getSubPools()) {
+      count += pool.connections.getCount(PoolEntry.STATE_IN_USE);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of threads waiting for a connection.
+   */
+  @Override
+  public int getPendingConnectionCount() {
+    int count = 0;
+    for (SubPool pool : getSubPools()) {
+      count += pool.connections.getWaiterCount();
+    }
+    return count;
+  }
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  /**
+   * Returns the number of connections in use by {@code username}, through
+   * {@link PooledDataSource#getConnection(String, String)} or as the user of the data source.
+   */
+  public int getActiveConnectionCount(String username) {
+    int count = 0;
+    for (SubPool pool : getSubPools()) {
+      String poolUsername = pool.isDefaultCredentials() ? dataSource.getUsername() : pool.getUsername();
+      if (username == null ? poolUsername == null : username.equals(poolUsername)) {
+        count += pool.connections.getCount(PoolEntry.STATE_IN_USE);
+      }
+    }
+    return count;
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  /**
+   * Returns the default sub-pool followed by those of the other credentials.
+   */
+  List<SubPool> getSubPools() {
+    if (userPools.isEmpty()) {
+      return Collections.singletonList(defaultPool);
+    }
+    List<SubPool> pools = new ArrayList<>(userPools.size() + 1);
+    pools.add(defaultPool);
+    pools.addAll(userPools.values());
+    return pools;
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -0,0 +1,50 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * The statistics of a {@link PooledDataSource} published over JMX when its {@code poolJmxName} is set. Reading them
+ * takes no lock.
+ *
+ * @see PooledDataSource#setPoolJmxName(String)
+ */
+public interface PoolStateMXBean {
+
+  int getActiveConnectionCount();
+
+  int getIdleConnectionCount();
+
+  int getPendingConnectionCount();
+
+  long getRequestCount();
+
+  long getHadToWaitCount();
+
+  long getTimedOutWaitCount();
+
+  long getBadConnectionCount();
+
+  long getClaimedOverdueConnectionCount();
+
+  double getStatementCacheHitRatio();
+
+  Histogram getWaitTimeHistogram();
+
+  Histogram getHoldTimeHistogram();
+
+  Histogram getCreateTimeHistogram();
+
+}
@@ -15,46 +15,37 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.sql.SQLException;
-
-import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
  * @author Clinton Begin
  */
-class PooledConnection implements InvocationHandler {
-
-  private static final String CLOSE = "close";
-  private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
+class PooledConnection {
 
   private final int hashCode;
   private final PooledDataSource dataSource;
+  private final PoolEntry entry;
   private final Connection realConnection;
   private final Connection proxyConnection;
-  private long checkoutTimestamp;
-  private long createdTimestamp;
+  private volatile long checkoutTimestamp;
   private long lastUsedTimestamp;
   private int connectionTypeCode;
-  private boolean valid;
+  private volatile boolean valid;
 
   /**
-   * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in
+   * Constructor for SimplePooledConnection that hands out the connection of the entry passed in
    *
-   * @param connection - the connection that is to be presented as a pooled connection
+   * @param entry - the entry of the connection that is to be presented as a pooled connection
    * @param dataSource - the dataSource that the connection is from
    */
-  public PooledConnection(Connection connection, PooledDataSource dataSource) {
-    this.hashCode = connection.hashCode();
-    this.realConnection = connection;
+  public PooledConnection(PoolEntry entry, PooledDataSource dataSource) {
+    this.entry = entry;
+    this.realConnection = entry.getRealConnection();
+    this.hashCode = realConnection.hashCode();
     this.dataSource = dataSource;
-    this.createdTimestamp = System.currentTimeMillis();
-    this.lastUsedTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = entry.getLastUsedTimestamp();
     this.valid = true;
-    this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
+    this.proxyConnection = new PooledConnectionHandle(this);
   }
 
   /**
@@ -73,6 +64,33 @@ class PooledConnection implements InvocationHandler {
     return valid && realConnection != null && dataSource.pingConnection(this);
   }
 
+  /**
+   * Checks the connection has not been invalidated, without pinging it
+   *
+   * @return True if the connection has not been returned or taken away
+   */
+  boolean isUsable() {
+    return valid;
+  }
+
+  /**
+   * Getter for the data source the connection is from
+   *
+   * @return The data source
+   */
+  PooledDataSource getDataSource() {
+    return dataSource;
+  }
+
+  /**
+   * Getter for the pool entry of the real connection
+   *
+   * @return The entry
+   */
+  public PoolEntry getEntry() {
+    return entry;
+  }
+
   /**
    * Getter for the *real* connection that this wraps
    *
@@ -124,16 +142,7 @@ class PooledConnection implements InvocationHandler {
    * @return The creation timestamp
    */
   public long getCreatedTimestamp() {
-    return createdTimestamp;
-  }
-
-  /**
-   * Setter for the time that the connection was created
-   *
-   * @param createdTimestamp - the timestamp
-   */
-  public void setCreatedTimestamp(long createdTimestamp) {
-    this.createdTimestamp = createdTimestamp;
+    return entry.getCreatedTimestamp();
   }
 
   /**
@@ -169,7 +178,7 @@ class PooledConnection implements InvocationHandler {
    * @return the age
    */
   public long getAge() {
-    return System.currentTimeMillis() - createdTimestamp;
+    return System.currentTimeMillis() - entry.getCreatedTimestamp();
   }
 
   /**
@@ -199,6 +208,15 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - checkoutTimestamp;
   }
 
+  /**
+   * Getter for the statements cached on the real connection
+   *
+   * @return the cache, or null if statements are not cached
+   */
+  public StatementCache getStatementCache() {
+    return entry.getStatementCache();
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
@@ -221,38 +239,4 @@ class PooledConnection implements InvocationHandler {
     }
   }
 
-  /**
-   * Required for InvocationHandler implementation.
-   *
-   * @param proxy  - not used
-   * @param method - the method to be executed
-   * @param args   - the parameters to be passed to the method
-   * @see java.lang.reflect.InvocationHandler#invoke(Object, java.lang.reflect.Method, Object[])
-   */
-  @Override
-  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-    String methodName = method.getName();
-    if (CLOSE.hashCode() == methodName.hashCode() && CLOSE.equals(methodName)) {
-      dataSource.pushConnection(this);
-      return null;
-    }
-    try {
-      if (!Object.class.equals(method.getDeclaringClass())) {
-        // issue #579 toString() should never fail
-        // throw an SQLException instead of a Runtime
-        checkConnection();
-      }
-      return method.invoke(realConnection, args);
-    } catch (Throwable t) {
-      throw ExceptionUtil.unwrapThrowable(t);
-    }
-
-  }
-
-  private void checkConnection() throws SQLException {
-    if (!valid) {
-      throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
-    }
-  }
-
 }
@@ -0,0 +1,458 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * The connection handed out by the pool. It calls the real connection directly, after checking that its
+ * {@link PooledConnection} has not been returned or taken away, and returns it to the pool on {@link #close()}.
+ * When the pool caches statements, the prepared statements are taken from the {@link StatementCache} of the
+ * connection and put back when closed.
+ *
+ * @see PooledConnection#getProxyConnection()
+ */
+final class PooledConnectionHandle implements Connection {
+
+  private final PooledConnection pooledConnection;
+  private final Connection realConnection;
+
+  PooledConnectionHandle(PooledConnection pooledConnection) {
+    this.pooledConnection = pooledConnection;
+    this.realConnection = pooledConnection.getRealConnection();
+  }
+
+  PooledConnection getPooledConnection() {
+    return pooledConnection;
+  }
+
+  @Override
+  public Statement createStatement() throws SQLException {
+    checkConnection();
+    return realConnection.createStatement();
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql) throws SQLException {
+    checkConnection();
+    final StatementCache cache = pooledConnection.getStatementCache();
+    if (cache == null) {
+      return realConnection.prepareStatement(sql);
+    }
+    final String key = sql;
+    final PreparedStatement statement = (PreparedStatement) cache.take(key);
+    return lend(cache, key, statement != null ? statement : realConnection.prepareStatement(sql));
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql) throws SQLException {
+    checkConnection();
+    return realConnection.prepareCall(sql);
+  }
+
+  @Override
+  public String nativeSQL(String sql) throws SQLException {
+    checkConnection();
+    return realConnection.nativeSQL(sql);
+  }
+
+  @Override
+  public void setAutoCommit(boolean autoCommit) throws SQLException {
+    checkConnection();
+    realConnection.setAutoCommit(autoCommit);
+  }
+
+  @Override
+  public boolean getAutoCommit() throws SQLException {
+    checkConnection();
+    return realConnection.getAutoCommit();
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    checkConnection();
+    realConnection.commit();
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    checkConnection();
+    realConnection.rollback();
+  }
+
+  @Override
+  public void close() throws SQLException {
+    pooledConnection.getDataSource().pushConnection(pooledConnection);
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    checkConnection();
+    return realConnection.isClosed();
+  }
+
+  @Override
+  public DatabaseMetaData getMetaData() throws SQLException {
+    checkConnection();
+    return realConnection.getMetaData();
+  }
+
+  @Override
+  public void setReadOnly(boolean readOnly) throws SQLException {
+    checkConnection();
+    realConnection.setReadOnly(readOnly);
+  }
+
+  @Override
+  public boolean isReadOnly() throws SQLException {
+    checkConnection();
+    return realConnection.isReadOnly();
+  }
+
+  @Override
+  public void setCatalog(String catalog) throws SQLException {
+    checkConnection();
+    realConnection.setCatalog(catalog);
+  }
+
+  @Override
+  public String getCatalog() throws SQLException {
+    checkConnection();
+    return realConnection.getCatalog();
+  }
+
+  @Override
+  public void setTransactionIsolation(int level) throws SQLException {
+    checkConnection();
+    realConnection.setTransactionIsolation(level);
+  }
+
+  @Override
+  public int getTransactionIsolation() throws SQLException {
+    checkConnection();
+    return realConnection.getTransactionIsolation();
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    checkConnection();
+    return realConnection.getWarnings();
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    checkConnection();
+    realConnection.clearWarnings();
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkConnection();
+    return realConnection.createStatement(resultSetType, resultSetConcurrency);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkConnection();
+    final StatementCache cache = pooledConnection.getStatementCache();
+    if (cache == null) {
+      return realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+    final String key = sql + '\n' + resultSetType + ' ' + resultSetConcurrency;
+    final PreparedStatement statement = (PreparedStatement) cache.take(key);
+    return lend(cache, key, statement != null ? statement : realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency));
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkConnection();
+    return realConnection.prepareCall(sql, resultSetType, resultSetConcurrency);
+  }
+
+  @Override
+  public Map<String, Class<?>> getTypeMap() throws SQLException {
+    checkConnection();
+    return realConnection.getTypeMap();
+  }
+
+  @Override
+  public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    checkConnection();
+    realConnection.setTypeMap(map);
+  }
+
+  @Override
+  public void setHoldability(int holdability) throws SQLException {
+    checkConnection();
+    realConnection.setHoldability(holdability);
+  }
+
+  @Override
+  public int getHoldability() throws SQLException {
+    checkConnection();
+    return realConnection.getHoldability();
+  }
+
+  @Override
+  public Savepoint setSavepoint() throws SQLException {
+    checkConnection();
+    return realConnection.setSavepoint();
+  }
+
+  @Override
+  public Savepoint setSavepoint(String name) throws SQLException {
+    checkConnection();
+    return realConnection.setSavepoint(name);
+  }
+
+  @Override
+  public void rollback(Savepoint savepoint) throws SQLException {
+    checkConnection();
+    realConnection.rollback(savepoint);
+  }
+
+  @Override
+  public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    checkConnection();
+    realConnection.releaseSavepoint(savepoint);
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkConnection();
+    return realConnection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkConnection();
+    final StatementCache cache = pooledConnection.getStatementCache();
+    if (cache == null) {
+      return realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+    final String key = sql + '\n' + resultSetType + ' ' + resultSetConcurrency + ' ' + resultSetHoldability;
+    final PreparedStatement statement = (PreparedStatement) cache.take(key);
+    return lend(cache, key, statement != null ? statement : realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkConnection();
+    return realConnection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+    checkConnection();
+    final StatementCache cache = pooledConnection.getStatementCache();
+    if (cache == null) {
+      return realConnection.prepareStatement(sql, autoGeneratedKeys);
+    }
+    final String key = sql + "\nkeys " + autoGeneratedKeys;
+    final PreparedStatement statement = (PreparedStatement) cache.take(key);
+    return lend(cache, key, statement != null ? statement : realConnection.prepareStatement(sql, autoGeneratedKeys));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+    checkConnection();
+    final StatementCache cache = pooledConnection.getStatementCache();
+    if (cache == null) {
+      return realConnection.prepareStatement(sql, columnIndexes);
+    }
+    final String key = sql + "\nkeys " + Arrays.toString(columnIndexes);
+    final PreparedStatement statement = (PreparedStatement) cache.take(key);
+    return lend(cache, key, statement != null ? statement : realConnection.prepareStatement(sql, columnIndexes));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+    checkConnection();
+    final StatementCache cache = pooledConnection.getStatementCache();
+    if (cache == null) {
+      return realConnection.prepareStatement(sql, columnNames);
+    }
+    final String key = sql + "\nkeys " + Arrays.toString(columnNames);
+    final PreparedStatement statement = (PreparedStatement) cache.take(key);
+    return lend(cache, key, statement != null ? statement : realConnection.prepareStatement(sql, columnNames));
+  }
+
+  @Override
+  public Clob createClob() throws SQLException {
+    checkConnection();
+    return realConnection.createClob();
+  }
+
+  @Override
+  public Blob createBlob() throws SQLException {
+    checkConnection();
+    return realConnection.createBlob();
+  }
+
+  @Override
+  public NClob createNClob() throws SQLException {
+    checkConnection();
+    return realConnection.createNClob();
+  }
+
+  @Override
+  public SQLXML createSQLXML() throws SQLException {
+    checkConnection();
+    return realConnection.createSQLXML();
+  }
+
+  @Override
+  public boolean isValid(int timeout) throws SQLException {
+    checkConnection();
+    return realConnection.isValid(timeout);
+  }
+
+  @Override
+  public void setClientInfo(String name, String value) throws SQLClientInfoException {
+    checkClientInfoConnection();
+    realConnection.setClientInfo(name, value);
+  }
+
+  @Override
+  public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    checkClientInfoConnection();
+    realConnection.setClientInfo(properties);
+  }
+
+  @Override
+  public String getClientInfo(String name) throws SQLException {
+    checkConnection();
+    return realConnection.getClientInfo(name);
+  }
+
+  @Override
+  public Properties getClientInfo() throws SQLException {
+    checkConnection();
+    return realConnection.getClientInfo();
+  }
+
+  @Override
+  public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+    checkConnection();
+    return realConnection.createArrayOf(typeName, elements);
+  }
+
+  @Override
+  public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+    checkConnection();
+    return realConnection.createStruct(typeName, attributes);
+  }
+
+  @Override
+  public void setSchema(String schema) throws SQLException {
+    checkConnection();
+    realConnection.setSchema(schema);
+  }
+
+  @Override
+  public String getSchema() throws SQLException {
+    checkConnection();
+    return realConnection.getSchema();
+  }
+
+  @Override
+  public void abort(Executor executor) throws SQLException {
+    checkConnection();
+    realConnection.abort(executor);
+  }
+
+  @Override
+  public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+    checkConnection();
+    realConnection.setNetworkTimeout(executor, milliseconds);
+  }
+
+  @Override
+  public int getNetworkTimeout() throws SQLException {
+    checkConnection();
+    return realConnection.getNetworkTimeout();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    checkConnection();
+    if (iface == StatementCache.class && pooledConnection.getStatementCache() != null) {
+      return iface.cast(pooledConnection.getStatementCache());
+    }
+    return realConnection.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    if (iface == StatementCache.class && pooledConnection.getStatementCache() != null) {
+      return true;
+    }
+    checkConnection();
+    return realConnection.isWrapperFor(iface);
+  }
+
+  // issue #579 toString() should never fail, so Object methods skip the check
+
+  @Override
+  public int hashCode() {
+    return realConnection.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return realConnection.equals(obj);
+  }
+
+  @Override
+  public String toString() {
+    return realConnection.toString();
+  }
+
+  private PreparedStatement lend(StatementCache cache, String key, PreparedStatement statement) {
+    return new CachedPreparedStatement(this, cache, key, statement);
+  }
+
+  private void checkConnection() throws SQLException {
+    if (!pooledConnection.isUsable()) {
+      throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
+    }
+  }
+
+  private void checkClientInfoConnection() throws SQLClientInfoException {
+    if (!pooledConnection.isUsable()) {
+      throw new SQLClientInfoException("Error accessing PooledConnection. Connection is invalid.", null);
+    }
+  }
+
+}
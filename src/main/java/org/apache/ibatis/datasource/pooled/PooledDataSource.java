@@ -16,23 +16,39 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Proxy;
+import java.lang.ref.WeakReference;
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 
+import org.apache.ibatis.datasource.DataSourceException;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
 /**
- * This is a simple, synchronous, thread-safe database connection pool.
+ * This is a simple, thread-safe database connection pool. Connections are borrowed and returned without a lock, see
+ * {@link ConnectionBag}.
  *
  * @author Clinton Begin
  */
@@ -46,6 +62,7 @@ public class PooledDataSource implements DataSource {
 
   // OPTIONAL CONFIGURATION FIELDS
   protected int poolMaximumActiveConnections = 10;
+  protected int poolMaximumActiveConnectionsPerUser;
   protected int poolMaximumIdleConnections = 5;
   protected int poolMaximumCheckoutTime = 20000;
   protected int poolTimeToWait = 20000;
@@ -53,8 +70,26 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
-
-  private int expectedConnectionTypeCode;
+  protected int poolStatementCacheSize;
+  protected int poolMinimumIdleConnections;
+  protected int poolIdleTimeout;
+  protected int poolMaximumLifetime;
+  protected int poolKeepaliveTime;
+  protected int poolHousekeepingInterval = 30000;
+  protected int poolMaximumWaitTime;
+  protected String poolJmxName;
+  protected boolean poolThreadAffinity = true;
+
+  // connections open or being opened, at most poolMaximumActiveConnections
+  private final AtomicInteger totalConnections = new AtomicInteger();
+  // where the search for a sub-pool waiting for a connection starts, so that they are served in turn
+  private final AtomicInteger fillCursor = new AtomicInteger();
+  // opens the connections kept idle in the background, its thread ends when there is nothing to do
+  private final ThreadPoolExecutor fillExecutor = newFillExecutor();
+  // started with the first connection when a maintenance property is set, stopped by forceCloseAll or once the pool
+  // is garbage collected
+  private final AtomicReference<ScheduledThreadPoolExecutor> housekeeper = new AtomicReference<>();
+  private final List<PoolListener> poolListeners = new CopyOnWriteArrayList<>();
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -66,32 +101,32 @@ public class PooledDataSource implements DataSource {
 
   public PooledDataSource(String driver, String url, String username, String password) {
     dataSource = new UnpooledDataSource(driver, url, username, password);
-    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    state.defaultPool.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword()));
   }
 
   public PooledDataSource(String driver, String url, Properties driverProperties) {
     dataSource = new UnpooledDataSource(driver, url, driverProperties);
-    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    state.defaultPool.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword()));
   }
 
   public PooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
     dataSource = new UnpooledDataSource(driverClassLoader, driver, url, username, password);
-    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    state.defaultPool.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword()));
   }
 
   public PooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
     dataSource = new UnpooledDataSource(driverClassLoader, driver, url, driverProperties);
-    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    state.defaultPool.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword()));
   }
 
   @Override
   public Connection getConnection() throws SQLException {
-    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+    return popConnection(state.defaultPool).getProxyConnection();
   }
 
   @Override
   public Connection getConnection(String username, String password) throws SQLException {
-    return popConnection(username, password).getProxyConnection();
+    return popConnection(getSubPool(username, password)).getProxyConnection();
   }
 
   @Override
@@ -159,6 +194,18 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The maximum number of active connections of each user, the connections of all users being limited by
+   * poolMaximumActiveConnections. 0 (the default) only applies the global maximum.
+   *
+   * @param poolMaximumActiveConnectionsPerUser The maximum number of active connections of a user
+   * @see #getConnection(String, String)
+   */
+  public void setPoolMaximumActiveConnectionsPerUser(int poolMaximumActiveConnectionsPerUser) {
+    this.poolMaximumActiveConnectionsPerUser = poolMaximumActiveConnectionsPerUser;
+    forceCloseAll();
+  }
+
   /**
    * The maximum number of idle connections
    *
@@ -235,6 +282,138 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The number of statements cached per connection, for the executors that reuse statements.
+   * The statements are kept while the connection returns to the pool. 0 (the default) disables the cache.
+   *
+   * @param poolStatementCacheSize the maximum number of statements cached per connection
+   * @see StatementCache
+   */
+  public void setPoolStatementCacheSize(int poolStatementCacheSize) {
+    this.poolStatementCacheSize = poolStatementCacheSize;
+    forceCloseAll();
+  }
+
+  /**
+   * The number of idle connections the pool opens in the background, so that borrowers do not wait for a connection
+   * to be opened. It is capped by the maximum numbers of idle and active connections. 0 (the default) only opens
+   * connections when they are borrowed.
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    forceCloseAll();
+  }
+
+  /**
+   * The time after which an idle connection is closed, as long as more than poolMinimumIdleConnections are idle.
+   * 0 (the default) keeps them open.
+   *
+   * @param milliseconds the idle time in milliseconds
+   */
+  public void setPoolIdleTimeout(int milliseconds) {
+    this.poolIdleTimeout = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The time after which a connection is closed, once idle. Each connection gets a slightly shorter lifetime, so that
+   * connections opened together are not closed together. 0 (the default) keeps them open.
+   *
+   * @param milliseconds the lifetime in milliseconds
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The idle time after which a connection is tested in the background, with the ping query if poolPingEnabled is
+   * set, to keep it alive and to close it before a borrower finds it broken. 0 (the default) disables it.
+   *
+   * @param milliseconds the idle time in milliseconds
+   */
+  public void setPoolKeepaliveTime(int milliseconds) {
+    this.poolKeepaliveTime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * How often the idle connections are checked for poolIdleTimeout, poolMaximumLifetime and poolKeepaliveTime, and
+   * poolMinimumIdleConnections is restored.
+   *
+   * @param milliseconds the interval in milliseconds
+   */
+  public void setPoolHousekeepingInterval(int milliseconds) {
+    this.poolHousekeepingInterval = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The total time a borrower waits for a connection before a {@link SQLTransientConnectionException} is thrown,
+   * however many times it waits poolTimeToWait. 0 (the default) waits until a connection is available.
+   *
+   * @param milliseconds the maximum wait time in milliseconds
+   */
+  public void setPoolMaximumWaitTime(int milliseconds) {
+    this.poolMaximumWaitTime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * Whether a thread first looks for the connections it returned itself, which are likely to be free, before
+   * searching the whole pool. Turn it off when connections are borrowed from many short-lived threads, such as a
+   * thread per task, as each thread would keep a list that is never reused.
+   *
+   * @param poolThreadAffinity true (the default) to remember the connections returned by each thread
+   */
+  public void setPoolThreadAffinity(boolean poolThreadAffinity) {
+    this.poolThreadAffinity = poolThreadAffinity;
+    forceCloseAll();
+    for (SubPool pool : state.getSubPools()) {
+      pool.connections.setThreadAffinity(poolThreadAffinity);
+    }
+  }
+
+  /**
+   * Publishes the {@link PoolState} as a {@link PoolStateMXBean} named
+   * {@code org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=<poolJmxName>} on the platform MBean
+   * server. Setting it to null unregisters it.
+   *
+   * @param poolJmxName the name of the pool, unique in the JVM
+   */
+  public void setPoolJmxName(String poolJmxName) {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (this.poolJmxName != null) {
+        ObjectName objectName = getObjectName(this.poolJmxName);
+        if (server.isRegistered(objectName)) {
+          server.unregisterMBean(objectName);
+        }
+      }
+      this.poolJmxName = poolJmxName;
+      if (poolJmxName != null) {
+        server.registerMBean(state, getObjectName(poolJmxName));
+      }
+    } catch (JMException e) {
+      throw new DataSourceException("Error registering the pool state under the name '" + poolJmxName + "'. Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Adds a listener notified when connections are opened, borrowed, returned and closed.
+   *
+   * @param listener the listener
+   */
+  public void addPoolListener(PoolListener listener) {
+    poolListeners.add(listener);
+  }
+
+  public void removePoolListener(PoolListener listener) {
+    poolListeners.remove(listener);
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -267,6 +446,10 @@ public class PooledDataSource implements DataSource {
     return poolMaximumActiveConnections;
   }
 
+  public int getPoolMaximumActiveConnectionsPerUser() {
+    return poolMaximumActiveConnectionsPerUser;
+  }
+
   public int getPoolMaximumIdleConnections() {
     return poolMaximumIdleConnections;
   }
@@ -295,38 +478,76 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolStatementCacheSize() {
+    return poolStatementCacheSize;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolIdleTimeout() {
+    return poolIdleTimeout;
+  }
+
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  public int getPoolKeepaliveTime() {
+    return poolKeepaliveTime;
+  }
+
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  public int getPoolMaximumWaitTime() {
+    return poolMaximumWaitTime;
+  }
+
+  public String getPoolJmxName() {
+    return poolJmxName;
+  }
+
+  public boolean isPoolThreadAffinity() {
+    return poolThreadAffinity;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    */
   public void forceCloseAll() {
-    synchronized (state) {
-      expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
-      for (int i = state.activeConnections.size(); i > 0; i--) {
-        try {
-          PooledConnection conn = state.activeConnections.remove(i - 1);
-          conn.invalidate();
-
-          Connection realConn = conn.getRealConnection();
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          realConn.close();
-        } catch (Exception e) {
-          // ignore
-        }
+    ScheduledThreadPoolExecutor executor = housekeeper.getAndSet(null);
+    if (executor != null) {
+      executor.shutdown();
+    }
+    state.defaultPool.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword()));
+    for (SubPool pool : state.getSubPools()) {
+      if (!pool.isDefaultCredentials()) {
+        pool.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), pool.getUsername(), pool.getPassword()));
       }
-      for (int i = state.idleConnections.size(); i > 0; i--) {
-        try {
-          PooledConnection conn = state.idleConnections.remove(i - 1);
-          conn.invalidate();
+      for (PoolEntry entry : pool.connections.values()) {
+        if (pool.connections.remove(entry)) {
+          totalConnections.decrementAndGet();
+          pool.totalConnections.decrementAndGet();
+          try {
+            PooledConnection holder = entry.getHolder();
+            if (holder != null) {
+              holder.invalidate();
+            }
 
-          Connection realConn = conn.getRealConnection();
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
+            Connection realConn = entry.getRealConnection();
+            if (!realConn.getAutoCommit()) {
+              realConn.rollback();
+            }
+            realConn.close();
+          } catch (Exception e) {
+            // ignore
+          }
+          for (PoolListener listener : poolListeners) {
+            listener.connectionClosed();
           }
-          realConn.close();
-        } catch (Exception e) {
-          // ignore
         }
       }
     }
@@ -343,147 +564,185 @@ public class PooledDataSource implements DataSource {
     return ("" + url + username + password).hashCode();
   }
 
-  protected void pushConnection(PooledConnection conn) throws SQLException {
+  /**
+   * Returns the sub-pool of the credentials, creating it the first time they are used.
+   */
+  private SubPool getSubPool(String username, String password) {
+    if (Objects.equals(username, dataSource.getUsername()) && Objects.equals(password, dataSource.getPassword())) {
+      return state.defaultPool;
+    }
+    final List<String> key = Arrays.asList(username, password);
+    SubPool pool = state.userPools.get(key);
+    if (pool == null) {
+      pool = state.userPools.computeIfAbsent(key, k -> {
+        SubPool userPool = new SubPool(username, password);
+        userPool.connections.setThreadAffinity(poolThreadAffinity);
+        userPool.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        return userPool;
+      });
+    }
+    return pool;
+  }
 
-    synchronized (state) {
-      state.activeConnections.remove(conn);
-      if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
-          state.idleConnections.add(newConn);
-          newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
-          newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
-          conn.invalidate();
-          if (log.isDebugEnabled()) {
-            log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
-          }
-          state.notifyAll();
-        } else {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          conn.getRealConnection().close();
-          if (log.isDebugEnabled()) {
-            log.debug("Closed connection " + conn.getRealHashCode() + ".");
-          }
-          conn.invalidate();
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    PoolEntry entry = conn.getEntry();
+    if (!entry.release(conn)) {
+      // closed twice, or claimed by another thread as overdue
+      conn.invalidate();
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCount.increment();
+      return;
+    }
+    if (conn.isValid()) {
+      final long holdTime = conn.getCheckoutTime();
+      state.accumulatedCheckoutTime.add(holdTime);
+      state.holdTimeHistogram.record(holdTime);
+      conn.invalidate();
+      for (PoolListener listener : poolListeners) {
+        listener.connectionReturned(holdTime);
+      }
+      try {
+        if (!conn.getRealConnection().getAutoCommit()) {
+          conn.getRealConnection().rollback();
+        }
+      } catch (SQLException e) {
+        discardEntry(entry);
+        throw e;
+      }
+      final SubPool pool = entry.getSubPool();
+      if (state.getIdleConnectionCount() < poolMaximumIdleConnections
+          && conn.getConnectionTypeCode() == pool.getConnectionTypeCode() && !entry.isExpired(System.currentTimeMillis())
+          && !isWaitedForByAnotherUser(pool)) {
+        entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        pool.connections.requite(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
         }
       } else {
+        discardEntry(entry);
         if (log.isDebugEnabled()) {
-          log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
         }
-        state.badConnectionCount++;
       }
+    } else {
+      conn.invalidate();
+      discardEntry(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCount.increment();
     }
   }
 
-  private PooledConnection popConnection(String username, String password) throws SQLException {
+  private PooledConnection popConnection(SubPool pool) throws SQLException {
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
+    long deadline = poolMaximumWaitTime > 0 ? t + poolMaximumWaitTime : Long.MAX_VALUE;
+    long waitTime = 0;
     int localBadConnectionCount = 0;
 
     while (conn == null) {
-      synchronized (state) {
-        if (!state.idleConnections.isEmpty()) {
-          // Pool has available connection
-          conn = state.idleConnections.remove(0);
+      PoolEntry entry;
+      try {
+        entry = pool.connections.borrow(0, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        break;
+      }
+      if (entry != null) {
+        // Pool has available connection
+        conn = checkOut(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+        }
+      } else {
+        // Pool does not have available connection
+        entry = createEntry(pool, PoolEntry.STATE_IN_USE);
+        if (entry != null) {
+          // Created new connection
+          conn = checkOut(entry);
           if (log.isDebugEnabled()) {
-            log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+            log.debug("Created connection " + conn.getRealHashCode() + ".");
           }
         } else {
-          // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
-            // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
-            if (log.isDebugEnabled()) {
-              log.debug("Created connection " + conn.getRealHashCode() + ".");
-            }
-          } else {
-            // Cannot create new connection
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
-              // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
-              state.activeConnections.remove(oldestActiveConnection);
-              if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                try {
-                  oldestActiveConnection.getRealConnection().rollback();
-                } catch (SQLException e) {
-                  /*
-                     Just log a message for debug and continue to execute the following
-                     statement like nothing happened.
-                     Wrap the bad connection with a new PooledConnection, this will help
-                     to not interrupt current executing thread and give current thread a
-                     chance to join the next competition for another valid/good database
-                     connection. At the end of this loop, bad {@link @conn} will be set as null.
-                   */
-                  log.debug("Bad connection. Could not roll back");
-                }
-              }
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-              conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
-              conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
-              oldestActiveConnection.invalidate();
-              if (log.isDebugEnabled()) {
-                log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+          // Cannot create new connection
+          conn = claimOverdueConnection(pool);
+          if (conn == null && !evictIdleConnection(pool)) {
+            // Must wait, in line with the other waiting threads
+            try {
+              if (!countedWait) {
+                state.hadToWaitCount.increment();
+                countedWait = true;
               }
-            } else {
-              // Must wait
-              try {
-                if (!countedWait) {
-                  state.hadToWaitCount++;
-                  countedWait = true;
+              long wt = System.currentTimeMillis();
+              if (wt >= deadline) {
+                state.waitTimeHistogram.record(waitTime);
+                state.timedOutWaitCount.increment();
+                for (PoolListener listener : poolListeners) {
+                  listener.borrowTimedOut(waitTime);
                 }
                 if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+                  log.debug("PooledDataSource: Timed out waiting " + poolMaximumWaitTime + " milliseconds for a connection.");
                 }
-                long wt = System.currentTimeMillis();
-                state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-              } catch (InterruptedException e) {
-                break;
+                throw new SQLTransientConnectionException("PooledDataSource: Timed out waiting " + poolMaximumWaitTime
+                    + " milliseconds for a connection. Active connections: " + state.getActiveConnectionCount() + ".");
+              }
+              long timeToWait = Math.min(poolTimeToWait, deadline - wt);
+              if (log.isDebugEnabled()) {
+                log.debug("Waiting as long as " + timeToWait + " milliseconds for connection.");
               }
+              entry = pool.connections.borrow(timeToWait, TimeUnit.MILLISECONDS);
+              state.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
+              waitTime += System.currentTimeMillis() - wt;
+              if (entry != null) {
+                conn = checkOut(entry);
+              }
+            } catch (InterruptedException e) {
+              break;
             }
           }
         }
-        if (conn != null) {
-          // ping to server and check the connection is valid or not
-          if (conn.isValid()) {
-            if (!conn.getRealConnection().getAutoCommit()) {
-              conn.getRealConnection().rollback();
-            }
-            conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
-            conn.setCheckoutTimestamp(System.currentTimeMillis());
-            conn.setLastUsedTimestamp(System.currentTimeMillis());
-            state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
-          } else {
+      }
+      if (conn != null && conn.getEntry().isExpired(System.currentTimeMillis())) {
+        // reached its maximum lifetime since the last housekeeping
+        conn.invalidate();
+        discardEntry(conn.getEntry());
+        conn = null;
+      } else if (conn != null) {
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(pool.getConnectionTypeCode());
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.requestCount.increment();
+          state.accumulatedRequestTime.add(System.currentTimeMillis() - t);
+          state.waitTimeHistogram.record(waitTime);
+          for (PoolListener listener : poolListeners) {
+            listener.connectionBorrowed(waitTime);
+          }
+          fillIdleConnections();
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          conn.invalidate();
+          discardEntry(conn.getEntry());
+          state.badConnectionCount.increment();
+          localBadConnectionCount++;
+          conn = null;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
             if (log.isDebugEnabled()) {
-              log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
-            }
-            state.badConnectionCount++;
-            localBadConnectionCount++;
-            conn = null;
-            if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
-              if (log.isDebugEnabled()) {
-                log.debug("PooledDataSource: Could not get a good connection to the database.");
-              }
-              throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+              log.debug("PooledDataSource: Could not get a good connection to the database.");
             }
+            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
           }
         }
       }
-
     }
 
     if (conn == null) {
@@ -496,6 +755,354 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  private PooledConnection checkOut(PoolEntry entry) {
+    PooledConnection conn = new PooledConnection(entry, this);
+    // set before publishing, as other threads look for overdue connections
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    entry.setHolder(conn);
+    return conn;
+  }
+
+  /**
+   * Opens a new connection if the pool is not full. Only the slot is reserved up front, so other threads borrow and
+   * return connections while it is being opened.
+   *
+   * @param pool the sub-pool of the credentials to open the connection with
+   * @param initialState the state the entry is published in, free or in use by the calling thread
+   * @return the entry of the connection, or null if the pool or the sub-pool is full
+   */
+  private PoolEntry createEntry(SubPool pool, int initialState) throws SQLException {
+    int total;
+    do {
+      total = pool.totalConnections.get();
+      if (poolMaximumActiveConnectionsPerUser > 0 && total >= poolMaximumActiveConnectionsPerUser) {
+        return null;
+      }
+    } while (!pool.totalConnections.compareAndSet(total, total + 1));
+    do {
+      total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        pool.totalConnections.decrementAndGet();
+        return null;
+      }
+    } while (!totalConnections.compareAndSet(total, total + 1));
+    try {
+      final long start = System.currentTimeMillis();
+      Connection realConnection = pool.isDefaultCredentials() ? dataSource.getConnection()
+          : dataSource.getConnection(pool.getUsername(), pool.getPassword());
+      PoolEntry entry = new PoolEntry(realConnection, pool, this, initialState);
+      final long createTime = System.currentTimeMillis() - start;
+      state.createTimeHistogram.record(createTime);
+      for (PoolListener listener : poolListeners) {
+        listener.connectionCreated(createTime);
+      }
+      pool.connections.add(entry);
+      startHousekeeper();
+      return entry;
+    } catch (SQLException | RuntimeException e) {
+      totalConnections.decrementAndGet();
+      pool.totalConnections.decrementAndGet();
+      throw e;
+    }
+  }
+
+  private boolean hasRoom(SubPool pool) {
+    return poolMaximumActiveConnectionsPerUser <= 0 || pool.totalConnections.get() < poolMaximumActiveConnectionsPerUser;
+  }
+
+  /**
+   * Closes an idle connection of another user when the pool is full, so that a connection can be opened for
+   * {@code pool}.
+   *
+   * @return false if there was no idle connection to close
+   */
+  private boolean evictIdleConnection(SubPool pool) {
+    if (state.userPools.isEmpty() || totalConnections.get() < poolMaximumActiveConnections || !hasRoom(pool)) {
+      return false;
+    }
+    for (SubPool other : state.getSubPools()) {
+      if (other == pool) {
+        continue;
+      }
+      for (PoolEntry entry : other.connections.values()) {
+        if (other.connections.reserve(entry)) {
+          discardEntry(entry);
+          if (log.isDebugEnabled()) {
+            log.debug("Closed idle connection " + entry.getRealConnection().hashCode() + " of another user to make room.");
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns true if the pool is full and another user is waiting for a connection, in which case a returned
+   * connection of {@code pool} is closed to make room, unless a thread of its own user is waiting too.
+   */
+  private boolean isWaitedForByAnotherUser(SubPool pool) {
+    if (state.userPools.isEmpty() || totalConnections.get() < poolMaximumActiveConnections
+        || pool.connections.getWaiterCount() > 0) {
+      return false;
+    }
+    for (SubPool other : state.getSubPools()) {
+      if (other != pool && other.connections.getWaiterCount() > 0 && hasRoom(other)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a sub-pool with a waiting thread, taking them in turn, if the pool has room for one more connection.
+   */
+  private SubPool findWaitingPool() {
+    if (state.userPools.isEmpty() || totalConnections.get() >= poolMaximumActiveConnections) {
+      return null;
+    }
+    final List<SubPool> pools = state.getSubPools();
+    final int start = (fillCursor.getAndIncrement() & Integer.MAX_VALUE) % pools.size();
+    for (int i = 0; i < pools.size(); i++) {
+      SubPool pool = pools.get((start + i) % pools.size());
+      if (pool.connections.getWaiterCount() > 0 && hasRoom(pool)) {
+        return pool;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Takes the connection of the sub-pool checked out the longest ago if it has been held for more than
+   * poolMaximumCheckoutTime.
+   */
+  private PooledConnection claimOverdueConnection(SubPool pool) {
+    PooledConnection oldestActiveConnection = null;
+    for (PoolEntry entry : pool.connections.values()) {
+      PooledConnection holder = entry.getHolder();
+      if (holder != null && entry.getState() == PoolEntry.STATE_IN_USE
+          && (oldestActiveConnection == null || holder.getCheckoutTimestamp() < oldestActiveConnection.getCheckoutTimestamp())) {
+        oldestActiveConnection = holder;
+      }
+    }
+    if (oldestActiveConnection == null) {
+      return null;
+    }
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    if (longestCheckoutTime <= poolMaximumCheckoutTime) {
+      return null;
+    }
+    PoolEntry entry = oldestActiveConnection.getEntry();
+    PooledConnection conn = new PooledConnection(entry, this);
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    if (!entry.claim(oldestActiveConnection, conn)) {
+      // returned or claimed meanwhile
+      return null;
+    }
+    // Can claim overdue connection
+    state.claimedOverdueConnectionCount.increment();
+    state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+    state.accumulatedCheckoutTime.add(longestCheckoutTime);
+    oldestActiveConnection.invalidate();
+    // the overdue holder may still use the cached statements, so the new one starts with an empty cache
+    entry.resetStatementCache(this);
+    try {
+      if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+        oldestActiveConnection.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      /*
+         Just log a message for debug and continue to execute the following
+         statement like nothing happened.
+         The new PooledConnection will be validated, which will help
+         to not interrupt current executing thread and give current thread a
+         chance to join the next competition for another valid/good database
+         connection. If it is bad, it will be discarded.
+       */
+      log.debug("Bad connection. Could not roll back");
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  /**
+   * Removes the entry from the pool and closes its connection, unless another thread already did.
+   */
+  private void discardEntry(PoolEntry entry) {
+    final SubPool pool = entry.getSubPool();
+    if (pool.connections.remove(entry)) {
+      totalConnections.decrementAndGet();
+      pool.totalConnections.decrementAndGet();
+      try {
+        entry.getRealConnection().close();
+      } catch (SQLException e) {
+        // ignore
+      }
+      for (PoolListener listener : poolListeners) {
+        listener.connectionClosed();
+      }
+      fillIdleConnections();
+    }
+  }
+
+  /**
+   * Asks the background thread to open connections until poolMinimumIdleConnections are idle, and for the users
+   * waiting while the pool was full of connections of other users.
+   */
+  private void fillIdleConnections() {
+    if ((poolMinimumIdleConnections > 0 && needsIdleConnection()) || findWaitingPool() != null) {
+      fillExecutor.execute(() -> {
+        while (true) {
+          SubPool pool = findWaitingPool();
+          if (pool == null) {
+            if (!needsIdleConnection()) {
+              return;
+            }
+            pool = state.defaultPool;
+          }
+          PoolEntry entry;
+          try {
+            entry = createEntry(pool, PoolEntry.STATE_NOT_IN_USE);
+          } catch (SQLException | RuntimeException e) {
+            log.warn("Could not open an idle connection. Cause: " + e);
+            return;
+          }
+          if (entry == null) {
+            return;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Created idle connection " + entry.getRealConnection().hashCode() + ".");
+          }
+        }
+      });
+    }
+  }
+
+  private void startHousekeeper() {
+    if (housekeeper.get() == null
+        && (poolIdleTimeout > 0 || poolMaximumLifetime > 0 || poolKeepaliveTime > 0 || poolMinimumIdleConnections > 0)) {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+      if (housekeeper.compareAndSet(null, executor)) {
+        executor.scheduleWithFixedDelay(new Housekeeping(this, executor), poolHousekeepingInterval, poolHousekeepingInterval,
+            TimeUnit.MILLISECONDS);
+      } else {
+        executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Closes the idle connections that timed out or reached their maximum lifetime, tests the ones idle for
+   * poolKeepaliveTime and opens new ones up to poolMinimumIdleConnections. Each connection is reserved while checked,
+   * so borrowers never wait for it.
+   */
+  private void houseKeep() {
+    try {
+      final long now = System.currentTimeMillis();
+      for (SubPool pool : state.getSubPools()) {
+        // only the connections of the data source's own user are kept open
+        final int minimumIdle = pool.isDefaultCredentials() ? Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections) : 0;
+        int idle = pool.connections.getCount(PoolEntry.STATE_NOT_IN_USE);
+        for (PoolEntry entry : pool.connections.values()) {
+          if (!pool.connections.reserve(entry)) {
+            continue;
+          }
+          final String reason;
+          if (entry.isExpired(now)) {
+            reason = "reached its maximum lifetime";
+          } else if (poolIdleTimeout > 0 && idle > minimumIdle && now - entry.getLastUsedTimestamp() > poolIdleTimeout) {
+            reason = "timed out";
+          } else if (poolKeepaliveTime > 0
+              && now - Math.max(entry.getLastUsedTimestamp(), entry.getLastValidatedTimestamp()) > poolKeepaliveTime
+              && !keepAlive(entry)) {
+            reason = "failed its keepalive test";
+          } else {
+            pool.connections.unreserve(entry);
+            continue;
+          }
+          idle--;
+          discardEntry(entry);
+          if (log.isDebugEnabled()) {
+            log.debug("Closed idle connection " + entry.getRealConnection().hashCode() + ", it " + reason + ".");
+          }
+        }
+      }
+      fillIdleConnections();
+    } catch (RuntimeException e) {
+      // keep the task scheduled
+      log.warn("Unexpected error while maintaining the pool. Cause: " + e);
+    }
+  }
+
+  /**
+   * Scheduled housekeeping task. It does not keep the pool reachable, so that an unused pool can still be garbage
+   * collected and finalized, and stops its thread once the pool is gone.
+   */
+  private static final class Housekeeping implements Runnable {
+    private final WeakReference<PooledDataSource> dataSource;
+    private final ScheduledThreadPoolExecutor executor;
+
+    Housekeeping(PooledDataSource dataSource, ScheduledThreadPoolExecutor executor) {
+      this.dataSource = new WeakReference<>(dataSource);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource ds = dataSource.get();
+      if (ds == null) {
+        executor.shutdown();
+      } else {
+        ds.houseKeep();
+      }
+    }
+  }
+
+  private boolean keepAlive(PoolEntry entry) {
+    Connection realConn = entry.getRealConnection();
+    try {
+      if (poolPingEnabled) {
+        try (Statement statement = realConn.createStatement()) {
+          statement.executeQuery(poolPingQuery).close();
+        }
+        if (!realConn.getAutoCommit()) {
+          realConn.rollback();
+        }
+      } else if (!realConn.isValid(Math.max(1, poolTimeToWait / 1000))) {
+        return false;
+      }
+      entry.setLastValidatedTimestamp(System.currentTimeMillis());
+      return true;
+    } catch (SQLException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  private boolean needsIdleConnection() {
+    int minimumIdle = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+    return state.defaultPool.connections.getCount(PoolEntry.STATE_NOT_IN_USE) < minimumIdle;
+  }
+
+  private static ThreadPoolExecutor newFillExecutor() {
+    // a single pending request is enough, as each run fills the pool up
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-filler");
+      thread.setDaemon(true);
+      return thread;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   /**
    * Method to check to see if a connection is still usable
    *
@@ -516,7 +1123,10 @@ public class PooledDataSource implements DataSource {
 
     if (result) {
       if (poolPingEnabled) {
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+        // a connection tested by the housekeeper meanwhile is not tested again
+        long timeElapsedSinceLastCheck = Math.min(conn.getTimeElapsedSinceLastUse(),
+            System.currentTimeMillis() - conn.getEntry().getLastValidatedTimestamp());
+        if (poolPingConnectionsNotUsedFor >= 0 && timeElapsedSinceLastCheck > poolPingConnectionsNotUsedFor) {
           try {
             if (log.isDebugEnabled()) {
               log.debug("Testing connection " + conn.getRealHashCode() + " ...");
@@ -557,15 +1167,16 @@ public class PooledDataSource implements DataSource {
    * @return The 'real' connection
    */
   public static Connection unwrapConnection(Connection conn) {
-    if (Proxy.isProxyClass(conn.getClass())) {
-      InvocationHandler handler = Proxy.getInvocationHandler(conn);
-      if (handler instanceof PooledConnection) {
-        return ((PooledConnection) handler).getRealConnection();
-      }
+    if (conn instanceof PooledConnectionHandle) {
+      return ((PooledConnectionHandle) conn).getPooledConnection().getRealConnection();
     }
     return conn;
   }
 
+  private static ObjectName getObjectName(String poolJmxName) throws JMException {
+    return new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=" + poolJmxName);
+  }
+
   protected void finalize() throws Throwable {
     forceCloseAll();
     super.finalize();
@@ -0,0 +1,153 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the statements prepared on a pooled connection. It belongs to the physical connection, so the
+ * statements survive when the connection returns to the pool and are reused by the next sessions and transactions.
+ * When full, the least recently used statement is closed to make room.
+ * <p>
+ * When the {@code poolStatementCacheSize} of a {@link PooledDataSource} is set, the {@code prepareStatement} methods of
+ * its connections take their statements from this cache, and closing a statement puts it back. The cache can also be
+ * obtained with {@code connection.unwrap(StatementCache.class)}, to read its statistics. Like the connection, it must
+ * only be used by the thread holding it.
+ *
+ * @see PooledDataSource#setPoolStatementCacheSize(int)
+ */
+public class StatementCache {
+
+  private final int maxSize;
+  private final PoolState state;
+  private final Map<String, Statement> statements = new LinkedHashMap<>(16, 0.75f, true);
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  StatementCache(int maxSize, PoolState state) {
+    this.maxSize = maxSize;
+    this.state = state;
+  }
+
+  /**
+   * Returns the statement cached under {@code key}, or null if there is none or it was closed.
+   */
+  public Statement get(String key) {
+    Statement statement = statements.get(key);
+    if (statement != null && isClosed(statement)) {
+      statements.remove(key);
+      statement = null;
+    }
+    if (statement == null) {
+      missCount++;
+      state.statementCacheMissCount.increment();
+    } else {
+      hitCount++;
+      state.statementCacheHitCount.increment();
+    }
+    return statement;
+  }
+
+  /**
+   * Removes and returns the statement cached under {@code key}, or null if there is none or it was closed. The
+   * statement is not handed out again until it is put back.
+   */
+  public Statement take(String key) {
+    final Statement statement = get(key);
+    if (statement != null) {
+      statements.remove(key);
+    }
+    return statement;
+  }
+
+  /**
+   * Caches {@code statement} under {@code key}, closing the least recently used statement if the cache is full.
+   */
+  public void put(String key, Statement statement) {
+    final Statement previous = statements.put(key, statement);
+    if (previous != null && previous != statement) {
+      close(previous);
+    }
+    final Iterator<Statement> iterator = statements.values().iterator();
+    while (statements.size() > maxSize) {
+      final Statement eldest = iterator.next();
+      iterator.remove();
+      close(eldest);
+      evictionCount++;
+      state.statementCacheEvictionCount.increment();
+    }
+  }
+
+  /**
+   * Closes and removes all the statements.
+   */
+  public void clear() {
+    for (Statement statement : statements.values()) {
+      close(statement);
+    }
+    statements.clear();
+  }
+
+  public int size() {
+    return statements.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the share of lookups that found a statement, between 0 and 1.
+   */
+  public double getHitRatio() {
+    final long lookups = hitCount + missCount;
+    return lookups == 0 ? 0 : (double) hitCount / lookups;
+  }
+
+  private static boolean isClosed(Statement statement) {
+    try {
+      return statement.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+
+  private static void close(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+}
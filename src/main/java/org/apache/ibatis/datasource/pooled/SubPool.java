@@ -0,0 +1,73 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The connections of a {@link PooledDataSource} opened with one set of credentials. The connections of the data
+ * source's own credentials are in the default sub-pool; each other user passed to
+ * {@link PooledDataSource#getConnection(String, String)} gets its own, so its connections are only handed out to it.
+ */
+final class SubPool {
+
+  private final boolean defaultCredentials;
+  private final String username;
+  private final String password;
+  final ConnectionBag connections = new ConnectionBag();
+  // connections open or being opened, at most poolMaximumActiveConnectionsPerUser
+  final AtomicInteger totalConnections = new AtomicInteger();
+  private volatile int connectionTypeCode;
+
+  /**
+   * Creates the default sub-pool, whose connections are opened with the credentials of the data source.
+   */
+  SubPool() {
+    this.defaultCredentials = true;
+    this.username = null;
+    this.password = null;
+  }
+
+  SubPool(String username, String password) {
+    this.defaultCredentials = false;
+    this.username = username;
+    this.password = password;
+  }
+
+  boolean isDefaultCredentials() {
+    return defaultCredentials;
+  }
+
+  String getUsername() {
+    return username;
+  }
+
+  String getPassword() {
+    return password;
+  }
+
+  /**
+   * Returns the code of the url and credentials the connections must have been opened with to be kept.
+   */
+  int getConnectionTypeCode() {
+    return connectionTypeCode;
+  }
+
+  void setConnectionTypeCode(int connectionTypeCode) {
+    this.connectionTypeCode = connectionTypeCode;
+  }
+
+}
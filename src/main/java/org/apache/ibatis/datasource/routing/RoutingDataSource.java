@@ -0,0 +1,372 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.annotations.UsePrimary;
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * A data source that splits reads from writes. {@link #getConnection()} returns connections to the primary database
+ * and {@link #getReplicaConnection()} to one of its read replicas, picked at random according to their weights.
+ * <p>
+ * A replica that fails to hand out a connection is ejected. Every healthCheckInterval all replicas are checked,
+ * ejecting the ones that fail or lag behind the primary by more than maxReplicaLag and readmitting the others.
+ * While no replica is available, reads go to the primary.
+ * <p>
+ * Use it with a {@link RoutingTransactionFactory} to route each mapped statement.
+ */
+public class RoutingDataSource implements DataSource {
+
+  private static final Log log = LogFactory.getLog(RoutingDataSource.class);
+
+  private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 5;
+
+  private final DataSource primary;
+  private final List<Replica> replicas = new CopyOnWriteArrayList<>();
+  private final Map<String, Boolean> primaryStatements = new ConcurrentHashMap<>();
+  // started with the first replica, stopped when the interval changes or once the data source is garbage collected
+  private final AtomicReference<ScheduledThreadPoolExecutor> healthChecker = new AtomicReference<>();
+
+  protected int healthCheckInterval = 30000;
+  protected String replicaLagQuery;
+  protected long maxReplicaLag = 10000;
+
+  public RoutingDataSource(DataSource primary) {
+    this.primary = primary;
+  }
+
+  /**
+   * Adds a read replica.
+   *
+   * @param replica the data source of the replica, usually a pool of its own
+   * @param weight the share of the reads it gets relative to the other replicas
+   */
+  public void addReplica(DataSource replica, int weight) {
+    if (weight <= 0) {
+      throw new DataSourceException("The weight of a replica must be positive but was " + weight + ".");
+    }
+    replicas.add(new Replica(replica, weight));
+    startHealthChecker();
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return primary.getConnection(username, password);
+  }
+
+  /**
+   * Opens a connection to one of the available replicas, or to the primary when none is available.
+   */
+  public Connection getReplicaConnection() throws SQLException {
+    Connection connection = openReplicaConnection();
+    return connection != null ? connection : primary.getConnection();
+  }
+
+  /**
+   * Opens a connection to one of the available replicas, ejecting those that fail.
+   *
+   * @return the connection, or null when no replica is available
+   */
+  protected Connection openReplicaConnection() throws SQLException {
+    List<Replica> candidates = new ArrayList<>(replicas.size());
+    for (Replica replica : replicas) {
+      if (!replica.ejected) {
+        candidates.add(replica);
+      }
+    }
+    while (!candidates.isEmpty()) {
+      Replica replica = pick(candidates);
+      try {
+        return replica.dataSource.getConnection();
+      } catch (SQLException e) {
+        eject(replica, e.toString());
+        candidates.remove(replica);
+      }
+    }
+    return null;
+  }
+
+  private Replica pick(List<Replica> candidates) {
+    int totalWeight = 0;
+    for (Replica replica : candidates) {
+      totalWeight += replica.weight;
+    }
+    int point = ThreadLocalRandom.current().nextInt(totalWeight);
+    for (Replica replica : candidates) {
+      point -= replica.weight;
+      if (point < 0) {
+        return replica;
+      }
+    }
+    return candidates.get(candidates.size() - 1);
+  }
+
+  /**
+   * Tells whether the statement may read from a replica: it must be a select, neither a selectKey nor a mapper
+   * method or mapper interface annotated with {@link UsePrimary}.
+   */
+  protected boolean isReplicaEligible(MappedStatement ms) {
+    if (ms.getSqlCommandType() != SqlCommandType.SELECT || ms.getId().endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)) {
+      return false;
+    }
+    return !primaryStatements.computeIfAbsent(ms.getId(), this::isAnnotatedUsePrimary);
+  }
+
+  private boolean isAnnotatedUsePrimary(String statementId) {
+    int dot = statementId.lastIndexOf('.');
+    if (dot < 0) {
+      return false;
+    }
+    try {
+      Class<?> type = Resources.classForName(statementId.substring(0, dot));
+      if (type.isAnnotationPresent(UsePrimary.class)) {
+        return true;
+      }
+      String methodName = statementId.substring(dot + 1);
+      for (Method method : type.getMethods()) {
+        if (method.getName().equals(methodName) && method.isAnnotationPresent(UsePrimary.class)) {
+          return true;
+        }
+      }
+    } catch (ClassNotFoundException e) {
+      // the namespace of an xml mapper without interface
+    }
+    return false;
+  }
+
+  /**
+   * Checks all replicas now, ejecting the ones that fail or lag too much and readmitting the others.
+   */
+  public void checkReplicas() {
+    for (Replica replica : replicas) {
+      String problem = check(replica);
+      if (problem != null) {
+        eject(replica, problem);
+      } else if (replica.ejected) {
+        replica.ejected = false;
+        if (log.isDebugEnabled()) {
+          log.debug("Readmitted replica " + replica.dataSource + ".");
+        }
+      }
+    }
+  }
+
+  private String check(Replica replica) {
+    try (Connection connection = replica.dataSource.getConnection()) {
+      if (replicaLagQuery == null) {
+        return connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS) ? null : "connection is not valid";
+      }
+      try (Statement statement = connection.createStatement()) {
+        statement.setQueryTimeout(HEALTH_CHECK_TIMEOUT_SECONDS);
+        try (ResultSet rs = statement.executeQuery(replicaLagQuery)) {
+          long lag = rs.next() ? rs.getLong(1) : 0;
+          return lag > maxReplicaLag ? "lags " + lag + " ms behind the primary" : null;
+        }
+      }
+    } catch (SQLException e) {
+      return e.toString();
+    }
+  }
+
+  private void eject(Replica replica, String reason) {
+    if (!replica.ejected) {
+      replica.ejected = true;
+      log.warn("Ejected replica " + replica.dataSource + ": " + reason);
+    }
+  }
+
+  public int getReplicaCount() {
+    return replicas.size();
+  }
+
+  public int getAvailableReplicaCount() {
+    int count = 0;
+    for (Replica replica : replicas) {
+      if (!replica.ejected) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * How often the replicas are checked. 0 disables the checks, leaving ejected replicas out for good.
+   *
+   * @param milliseconds the interval in milliseconds
+   */
+  public void setHealthCheckInterval(int milliseconds) {
+    this.healthCheckInterval = milliseconds;
+    ScheduledThreadPoolExecutor executor = healthChecker.getAndSet(null);
+    if (executor != null) {
+      executor.shutdown();
+    }
+    startHealthChecker();
+  }
+
+  /**
+   * A query returning in its first column how many milliseconds a replica lags behind the primary, run by the health
+   * checks. Without it the checks only validate a connection.
+   *
+   * @param replicaLagQuery the query
+   */
+  public void setReplicaLagQuery(String replicaLagQuery) {
+    this.replicaLagQuery = replicaLagQuery;
+  }
+
+  /**
+   * The lag in milliseconds, as returned by replicaLagQuery, beyond which a replica is ejected.
+   *
+   * @param milliseconds the maximum lag in milliseconds
+   */
+  public void setMaxReplicaLag(long milliseconds) {
+    this.maxReplicaLag = milliseconds;
+  }
+
+  public int getHealthCheckInterval() {
+    return healthCheckInterval;
+  }
+
+  public String getReplicaLagQuery() {
+    return replicaLagQuery;
+  }
+
+  public long getMaxReplicaLag() {
+    return maxReplicaLag;
+  }
+
+  private void startHealthChecker() {
+    if (healthChecker.get() == null && healthCheckInterval > 0 && !replicas.isEmpty()) {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-replica-health-check");
+        thread.setDaemon(true);
+        return thread;
+      });
+      if (healthChecker.compareAndSet(null, executor)) {
+        executor.scheduleWithFixedDelay(new HealthCheck(this, executor), healthCheckInterval, healthCheckInterval,
+            TimeUnit.MILLISECONDS);
+      } else {
+        executor.shutdown();
+      }
+    }
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return primary.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    primary.setLogWriter(out);
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    primary.setLoginTimeout(seconds);
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return primary.getLoginTimeout();
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return primary.getParentLogger();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return false;
+  }
+
+  /**
+   * Scheduled health check task. It does not keep the data source reachable, so that an unused one can still be
+   * garbage collected, and stops its thread once the data source is gone.
+   */
+  private static final class HealthCheck implements Runnable {
+    private final WeakReference<RoutingDataSource> dataSource;
+    private final ScheduledThreadPoolExecutor executor;
+
+    HealthCheck(RoutingDataSource dataSource, ScheduledThreadPoolExecutor executor) {
+      this.dataSource = new WeakReference<>(dataSource);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      RoutingDataSource ds = dataSource.get();
+      if (ds == null) {
+        executor.shutdown();
+      } else {
+        ds.checkReplicas();
+      }
+    }
+  }
+
+  private static final class Replica {
+    final DataSource dataSource;
+    final int weight;
+    volatile boolean ejected;
+
+    Replica(DataSource dataSource, int weight) {
+      this.dataSource = dataSource;
+      this.weight = weight;
+    }
+  }
+
+}
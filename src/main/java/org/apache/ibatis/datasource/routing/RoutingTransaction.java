@@ -0,0 +1,115 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+
+/**
+ * {@link JdbcTransaction} that runs the selects allowed by {@link RoutingDataSource#isReplicaEligible(MappedStatement)}
+ * on a replica, in autocommit, and every other statement on the primary. Once a statement other than a select ran,
+ * all statements run on the primary until commit or rollback, so the transaction reads its own writes.
+ * Delays the retrieval of both connections until a statement needs them.
+ * <p>
+ * Only autocommit and read-only transactions read from a replica. Any other transaction runs all its statements on
+ * the primary, as a select may have to lock rows ({@code SELECT ... FOR UPDATE}) or to see the same data as the writes
+ * that follow it.
+ *
+ * @see RoutingTransactionFactory
+ */
+public class RoutingTransaction extends JdbcTransaction {
+
+  private static final Log log = LogFactory.getLog(RoutingTransaction.class);
+
+  protected final RoutingDataSource routingDataSource;
+  protected Connection replicaConnection;
+  protected final boolean readOnly;
+  protected boolean writing;
+
+  public RoutingTransaction(RoutingDataSource ds, TransactionIsolationLevel desiredLevel, boolean desiredAutoCommit) {
+    this(ds, desiredLevel, desiredAutoCommit, false);
+  }
+
+  public RoutingTransaction(RoutingDataSource ds, TransactionIsolationLevel desiredLevel, boolean desiredAutoCommit, boolean readOnly) {
+    super(ds, desiredLevel, desiredAutoCommit);
+    this.routingDataSource = ds;
+    this.readOnly = readOnly;
+  }
+
+  @Override
+  public Connection getConnection(MappedStatement ms) throws SQLException {
+    if (!writing && (autoCommit || readOnly) && routingDataSource.isReplicaEligible(ms)) {
+      if (replicaConnection == null) {
+        openReplicaConnection();
+      }
+      if (replicaConnection != null) {
+        return replicaConnection;
+      }
+      // no replica available, read on the primary
+      return getConnection();
+    }
+    if (ms.getSqlCommandType() != SqlCommandType.SELECT) {
+      writing = true;
+    }
+    return getConnection();
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    super.commit();
+    writing = false;
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    super.rollback();
+    writing = false;
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try {
+      if (replicaConnection != null) {
+        if (log.isDebugEnabled()) {
+          log.debug("Closing replica JDBC Connection [" + replicaConnection + "]");
+        }
+        replicaConnection.close();
+      }
+    } finally {
+      super.close();
+    }
+  }
+
+  protected void openReplicaConnection() throws SQLException {
+    replicaConnection = routingDataSource.openReplicaConnection();
+    if (replicaConnection != null) {
+      if (log.isDebugEnabled()) {
+        log.debug("Opened replica JDBC Connection [" + replicaConnection + "]");
+      }
+      if (!replicaConnection.getAutoCommit()) {
+        replicaConnection.setAutoCommit(true);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,61 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+
+/**
+ * Creates {@link RoutingTransaction} instances for a {@link RoutingDataSource},
+ * and {@link JdbcTransaction} instances for any other data source or connection.
+ * Set the {@code readOnly} property to let the transactions that do not autocommit read from a replica too.
+ *
+ * @see RoutingTransaction
+ */
+public class RoutingTransactionFactory implements TransactionFactory {
+
+  private boolean readOnly;
+
+  @Override
+  public void setProperties(Properties props) {
+    if (props != null) {
+      String readOnlyProperty = props.getProperty("readOnly");
+      if (readOnlyProperty != null) {
+        readOnly = Boolean.valueOf(readOnlyProperty);
+      }
+    }
+  }
+
+  @Override
+  public Transaction newTransaction(Connection conn) {
+    return new JdbcTransaction(conn);
+  }
+
+  @Override
+  public Transaction newTransaction(DataSource ds, TransactionIsolationLevel level, boolean autoCommit) {
+    if (ds instanceof RoutingDataSource) {
+      return new RoutingTransaction((RoutingDataSource) ds, level, autoCommit, readOnly);
+    }
+    return new JdbcTransaction(ds, level, autoCommit);
+  }
+}
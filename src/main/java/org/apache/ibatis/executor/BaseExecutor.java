@@ -333,7 +333,14 @@ public abstract class BaseExecutor implements Executor {
   }
 
   protected Connection getConnection(Log statementLog) throws SQLException {
-    Connection connection = transaction.getConnection();
+    return wrapConnection(transaction.getConnection(), statementLog);
+  }
+
+  protected Connection getConnection(MappedStatement ms) throws SQLException {
+    return wrapConnection(transaction.getConnection(ms), ms.getStatementLog());
+  }
+
+  private Connection wrapConnection(Connection connection, Log statementLog) {
     if (statementLog.isDebugEnabled()) {
       return ConnectionLogger.newInstance(connection, statementLog, queryStack);
     } else {
@@ -17,11 +17,21 @@ package org.apache.ibatis.executor;
 
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -30,6 +40,8 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -42,42 +54,297 @@ public class BatchExecutor extends BaseExecutor {
 
   public static final int BATCH_UPDATE_RETURN_VALUE = Integer.MIN_VALUE + 1002;
 
-  private final List<Statement> statementList = new ArrayList<>();
+  private final List<PendingStatement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
-  private String currentSql;
-  private MappedStatement currentStatement;
+  // parameter objects inserted by each batch entry of the statements, 1 unless rewritten to a multi-row insert
+  private final List<Integer> rowsPerBatchList = new ArrayList<>();
+  // statements still accepting parameters, only the last one used unless grouping
+  private final Map<BatchKey, Integer> openStatements = new HashMap<>();
+  private final Map<BatchKey, MultiRowInsert> openInserts = new LinkedHashMap<>();
+  private final Map<BatchResult, Integer> firstSeen = new IdentityHashMap<>();
+  // results of automatic flushes, kept for the next explicit flush when there is no BatchResultHandler
+  private final List<BatchResult> flushedResults = new ArrayList<>();
+  private final int multiRowInsertSize;
+  private final int multiRowInsertMaxParameters;
+  private final boolean grouping;
+  private final int flushSize;
+  private final long flushBytes;
+  private final BatchResultHandler batchResultHandler;
+  private final int pipelineDepth;
+  private BatchKey currentKey;
+  private int pendingCount;
+  private long pendingBytes;
+  // statements handed over for execution since the last explicit flush, to number them in failure messages
+  private int takenStatements;
+  private Sender sender;
+  // bind parameter limit of the database when multiRowInsertMaxParameters is 0, looked up once
+  private Integer databaseMaxParameters;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
+    this(configuration, transaction, null);
+  }
+
+  public BatchExecutor(Configuration configuration, Transaction transaction, BatchResultHandler batchResultHandler) {
     super(configuration, transaction);
+    this.multiRowInsertSize = configuration.getMultiRowInsertSize();
+    this.multiRowInsertMaxParameters = configuration.getMultiRowInsertMaxParameters();
+    this.grouping = configuration.isBatchStatementGrouping();
+    this.flushSize = configuration.getBatchFlushSize();
+    this.flushBytes = configuration.getBatchFlushBytes();
+    this.batchResultHandler = batchResultHandler != null ? batchResultHandler : configuration.getBatchResultHandler();
+    this.pipelineDepth = configuration.getBatchPipelineDepth();
   }
 
   @Override
   public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+    final boolean recorded = isRecorded(ms);
+    if (pipelineDepth > 0 && !recorded) {
+      // its key generator or statement uses the connection right away, which the sender must be done with
+      finishSender();
+    }
     final Configuration configuration = ms.getConfiguration();
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
-    final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      applyTransactionTimeout(stmt);
-      handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+    final BatchKey key = new BatchKey(ms, sql);
+    if (!grouping && !key.equals(currentKey)) {
+      finishMultiRowInserts();
+      openStatements.clear();
+    }
+    currentKey = key;
+    MultiRowInsert insert = openInserts.get(key);
+    if (insert == null && !openStatements.containsKey(key) && isMultiRowInsertCandidate(ms)) {
+      final int maxRows = MultiRowInsertSql.maxRows(multiRowInsertSize, boundSql.getParameterMappings().size(),
+          getMaxParameters(ms));
+      final MultiRowInsertSql insertSql = maxRows < 2 ? null : MultiRowInsertSql.parse(sql, maxRows);
+      if (insertSql != null) {
+        insert = new MultiRowInsert(ms, insertSql, maxRows, newBatchResult(ms, sql));
+        openInserts.put(key, insert);
+      }
+    }
+    if (insert != null) {
+      insert.batchResult.addParameterObject(parameterObject);
+      bindPendingRow(insert, handler);
+      if (insert.pendingRows.size() == insert.maxRows) {
+        batchPendingRows(insert);
+      }
+      flushIfFull();
+      return BATCH_UPDATE_RETURN_VALUE;
+    }
+    final PendingStatement stmt;
+    final Integer index = openStatements.get(key);
+    if (index != null) {
+      stmt = statementList.get(index);
+      bind(ms, handler, stmt);
+      BatchResult batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      handler.parameterize(stmt);    //fix Issues 322
-      currentSql = sql;
-      currentStatement = ms;
-      statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      stmt = new PendingStatement(handler, getConnection(ms), boundSql.getParameterMappings().size(), recorded);
+      bind(ms, handler, stmt);
+      openStatements.put(key, statementList.size());
+      BatchResult batchResult = newBatchResult(ms, sql);
+      batchResult.addParameterObject(parameterObject);
+      addStatement(stmt, batchResult, 1);
     }
-    handler.batch(stmt);
+    flushIfFull();
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  /**
+   * Returns whether the parameters of {@code ms} are only recorded by this thread, its statement being prepared by
+   * the thread executing the batch. This is the case of the prepared statements without a key generator running
+   * queries when pipelining.
+   */
+  private boolean isRecorded(MappedStatement ms) {
+    if (pipelineDepth <= 0 || ms.getStatementType() != StatementType.PREPARED) {
+      return false;
+    }
+    final Class<?> keyGeneratorClass = ms.getKeyGenerator().getClass();
+    return NoKeyGenerator.class.equals(keyGeneratorClass) || Jdbc3KeyGenerator.class.equals(keyGeneratorClass);
+  }
+
+  /**
+   * Adds the parameters of {@code handler} as an entry of {@code stmt}, only recording them if it is recorded.
+   */
+  private void bind(MappedStatement ms, StatementHandler handler, PendingStatement stmt) throws SQLException {
+    if (stmt.isRecorded()) {
+      stmt.addEntry(Collections.singletonList(record(handler, stmt.connection)));
+    } else {
+      applyTransactionTimeout(stmt.statement);
+      parameterize(ms, handler, stmt.statement);//fix Issues 322
+      handler.batch(stmt.statement);
+    }
+  }
+
+  /**
+   * Sets the parameters of {@code handler}, and accounts for them against the flush thresholds.
+   */
+  private void parameterize(MappedStatement ms, StatementHandler handler, Statement stmt) throws SQLException {
+    pendingCount++;
+    if (ms.getStatementType() != StatementType.PREPARED) {
+      handler.parameterize(stmt);
+      pendingBytes += 2L * handler.getBoundSql().getSql().length();
+    } else if (flushBytes <= 0) {
+      handler.parameterize(stmt);
+    } else {
+      BatchParameterStatement parameters = BatchParameterStatement.newInstance((PreparedStatement) stmt);
+      handler.parameterize(parameters.newProxy());
+      pendingBytes += parameters.getParameterBytes();
+    }
+  }
+
+  /**
+   * Binds the parameters of a row of a multi-row insert now, as the caller may reuse its parameter object for the next
+   * row, and keeps them until the group of rows is set into its statement.
+   */
+  private void bindPendingRow(MultiRowInsert insert, StatementHandler handler) throws SQLException {
+    if (insert.pendingRows.isEmpty()) {
+      insert.firstRow = handler;
+      insert.connection = getConnection(insert.mappedStatement);
+    }
+    insert.pendingRows.add(record(handler, insert.connection));
+  }
+
+  /**
+   * Records the parameters {@code handler} binds, and accounts for them against the flush thresholds. A type handler
+   * asking the recorder for the connection gets it once the sender is done with it.
+   */
+  private BatchParameterStatement record(StatementHandler handler, Connection connection) throws SQLException {
+    BatchParameterStatement row = BatchParameterStatement.newRecorder(() -> {
+      finishSender();
+      return connection;
+    });
+    handler.parameterize(row.newProxy());
+    pendingCount++;
+    pendingBytes += row.getParameterBytes();
+    return row;
+  }
+
+  /**
+   * Executes the whole batch once a threshold is reached. Flushing every statement rather than only the one that
+   * reached it keeps the execution order of the statements. When pipelining, a batch whose statements were only
+   * recorded is handed to the sender instead, and this thread goes on recording the next one. A batch with a statement
+   * prepared by this thread is executed on it once the sender is done, so that the connection is never used by both.
+   */
+  private void flushIfFull() throws SQLException {
+    if (flushSize > 0 && pendingCount >= flushSize || flushBytes > 0 && pendingBytes >= flushBytes) {
+      final PendingBatch batch = takeBatch();
+      if (pipelineDepth > 0 && batch.isRecorded()) {
+        if (sender == null) {
+          sender = new Sender(pipelineDepth, configuration.getBatchPipelineExecutor());
+        }
+        try {
+          sender.send(batch);
+        } catch (SQLException | RuntimeException e) {
+          // the sender has ended, leave nothing to execute after the failure
+          sender = null;
+          discardStatements(true);
+          throw e;
+        }
+        return;
+      }
+      try {
+        finishSender();
+      } catch (SQLException | RuntimeException e) {
+        batch.close();
+        throw e;
+      }
+      List<BatchResult> results = execute(batch, flushedResults);
+      if (batchResultHandler != null) {
+        for (BatchResult batchResult : results) {
+          batchResultHandler.handleBatchResult(batchResult);
+        }
+      } else {
+        flushedResults.addAll(results);
+      }
+    }
+  }
+
+  private BatchResult newBatchResult(MappedStatement ms, String sql) {
+    BatchResult batchResult = new BatchResult(ms, sql);
+    firstSeen.put(batchResult, firstSeen.size());
+    return batchResult;
+  }
+
+  /**
+   * Waits for the sender to execute the batches sent to it, so that this thread can use the connection again.
+   */
+  private void finishSender() throws SQLException {
+    if (sender != null) {
+      Sender finished = sender;
+      sender = null;
+      try {
+        flushedResults.addAll(finished.finish());
+      } catch (SQLException | RuntimeException e) {
+        discardStatements(true);
+        throw e;
+      }
+    }
+  }
+
+  private void addStatement(PendingStatement stmt, BatchResult batchResult, int rowsPerBatch) {
+    statementList.add(stmt);
+    batchResultList.add(batchResult);
+    rowsPerBatchList.add(rowsPerBatch);
+  }
+
+  /**
+   * Returns the most parameters a multi-row insert statement may bind, 0 for no limit.
+   */
+  private int getMaxParameters(MappedStatement ms) throws SQLException {
+    if (multiRowInsertMaxParameters != 0) {
+      return multiRowInsertMaxParameters;
+    }
+    if (databaseMaxParameters == null) {
+      // reads the metadata of the connection, once
+      finishSender();
+      databaseMaxParameters = MultiRowInsertSql.maxParameters(getConnection(ms).getMetaData().getDatabaseProductName());
+    }
+    return databaseMaxParameters;
+  }
+
+  private boolean isMultiRowInsertCandidate(MappedStatement ms) {
+    if (multiRowInsertSize < 2 || ms.getSqlCommandType() != SqlCommandType.INSERT || ms.getStatementType() != StatementType.PREPARED) {
+      return false;
+    }
+    final Class<?> keyGeneratorClass = ms.getKeyGenerator().getClass();
+    return NoKeyGenerator.class.equals(keyGeneratorClass) || Jdbc3KeyGenerator.class.equals(keyGeneratorClass);
+  }
+
+  private void finishMultiRowInserts() throws SQLException {
+    for (MultiRowInsert insert : openInserts.values()) {
+      if (!insert.pendingRows.isEmpty()) {
+        batchPendingRows(insert);
+      }
+    }
+    openInserts.clear();
+  }
+
+  /**
+   * Adds the bound parameters of the pending rows, one after the other, as an entry of a statement inserting that many
+   * rows. The statement is shared by all the full groups of the insert.
+   */
+  private void batchPendingRows(MultiRowInsert insert) throws SQLException {
+    final int rows = insert.pendingRows.size();
+    PendingStatement stmt = rows == insert.maxRows ? insert.fullStatement : null;
+    if (stmt == null) {
+      final MappedStatement ms = insert.mappedStatement;
+      final BoundSql boundSql = insert.firstRow.getBoundSql();
+      final BoundSql multiRowBoundSql = new BoundSql(configuration, insert.sql.getSql(rows), boundSql.getParameterMappings(), boundSql.getParameterObject());
+      final StatementHandler handler = configuration.newStatementHandler(this, ms, boundSql.getParameterObject(), RowBounds.DEFAULT, null, multiRowBoundSql);
+      // rows of the same SQL have the same number of parameters
+      stmt = new PendingStatement(handler, insert.connection, boundSql.getParameterMappings().size(), pipelineDepth > 0);
+      addStatement(stmt, insert.batchResult, rows);
+      if (rows == insert.maxRows) {
+        insert.fullStatement = stmt;
+      }
+    }
+    stmt.addEntry(new ArrayList<>(insert.pendingRows));
+    insert.firstRow = null;
+    insert.connection = null;
+    insert.pendingRows.clear();
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -86,7 +353,7 @@ public class BatchExecutor extends BaseExecutor {
       flushStatements();
       Configuration configuration = ms.getConfiguration();
       StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameterObject, rowBounds, resultHandler, boundSql);
-      Connection connection = getConnection(ms.getStatementLog());
+      Connection connection = getConnection(ms);
       stmt = handler.prepare(connection, transaction.getTimeout());
       handler.parameterize(stmt);
       return handler.query(stmt, resultHandler);
@@ -100,7 +367,7 @@ public class BatchExecutor extends BaseExecutor {
     flushStatements();
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-    Connection connection = getConnection(ms.getStatementLog());
+    Connection connection = getConnection(ms);
     Statement stmt = handler.prepare(connection, transaction.getTimeout());
     stmt.closeOnCompletion();
     handler.parameterize(stmt);
@@ -109,19 +376,96 @@ public class BatchExecutor extends BaseExecutor {
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    if (isRollback) {
+      try {
+        if (sender != null) {
+          sender.cancel();
+        }
+      } finally {
+        sender = null;
+        takenStatements = 0;
+        flushedResults.clear();
+        discardStatements(true);
+      }
+      return Collections.emptyList();
+    }
     try {
-      List<BatchResult> results = new ArrayList<>();
-      if (isRollback) {
-        return Collections.emptyList();
+      finishSender();
+      List<BatchResult> results = new ArrayList<>(flushedResults);
+      results.addAll(execute(takeBatch(), flushedResults));
+      return results;
+    } finally {
+      takenStatements = 0;
+      flushedResults.clear();
+    }
+  }
+
+  /**
+   * Removes the pending statements from this executor so they can be executed, possibly on another thread, while new
+   * ones are prepared.
+   */
+  private PendingBatch takeBatch() throws SQLException {
+    try {
+      finishMultiRowInserts();
+    } catch (SQLException | RuntimeException e) {
+      discardStatements(true);
+      throw e;
+    }
+    PendingBatch batch = new PendingBatch(new ArrayList<>(statementList), new ArrayList<>(batchResultList),
+        new ArrayList<>(rowsPerBatchList), executionOrder(), takenStatements);
+    takenStatements += statementList.size();
+    discardStatements(false);
+    return batch;
+  }
+
+  private void discardStatements(boolean close) {
+    if (close) {
+      for (PendingStatement stmt : statementList) {
+        stmt.close();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
+    }
+    currentKey = null;
+    pendingCount = 0;
+    pendingBytes = 0;
+    statementList.clear();
+    batchResultList.clear();
+    rowsPerBatchList.clear();
+    openStatements.clear();
+    openInserts.clear();
+    firstSeen.clear();
+  }
+
+  /**
+   * Executes the statements of {@code batch} and closes them.
+   *
+   * @param previousResults the results of the batches executed before since the last explicit flush, reported as
+   *          successful if a statement fails
+   */
+  private List<BatchResult> execute(PendingBatch batch, List<BatchResult> previousResults) throws SQLException {
+    try {
+      List<BatchResult> results = new ArrayList<>();
+      int rowOffset = 0;
+      for (int i = 0, n = batch.order.length; i < n; i++) {
+        Statement stmt = batch.statements.get(batch.order[i]).prepare();
         applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
+        BatchResult batchResult = batch.results.get(batch.order[i]);
+        int rowsPerBatch = batch.rowsPerBatch.get(batch.order[i]);
+        boolean sameResult = !results.isEmpty() && results.get(results.size() - 1) == batchResult;
         try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
+          int[] updateCounts = perRowUpdateCounts(stmt.executeBatch(), rowsPerBatch);
+          if (sameResult) {
+            updateCounts = concat(batchResult.getUpdateCounts(), updateCounts);
+          } else {
+            rowOffset = 0;
+          }
+          batchResult.setUpdateCounts(updateCounts);
           MappedStatement ms = batchResult.getMappedStatement();
           List<Object> parameterObjects = batchResult.getParameterObjects();
+          if (rowsPerBatch > 1 || sameResult) {
+            // the statements of a multi-row insert each generate the keys of their own rows
+            parameterObjects = parameterObjects.subList(rowOffset, updateCounts.length);
+            rowOffset = updateCounts.length;
+          }
           KeyGenerator keyGenerator = ms.getKeyGenerator();
           if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
             Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
@@ -134,29 +478,346 @@ public class BatchExecutor extends BaseExecutor {
           // Close statement to close cursor #1109
           closeStatement(stmt);
         } catch (BatchUpdateException e) {
+          final int index = batch.firstIndex + i;
           StringBuilder message = new StringBuilder();
           message.append(batchResult.getMappedStatement().getId())
               .append(" (batch index #")
-              .append(i + 1)
+              .append(index + 1)
               .append(")")
               .append(" failed.");
-          if (i > 0) {
+          if (index > 0) {
             message.append(" ")
-                .append(i)
+                .append(index)
                 .append(" prior sub executor(s) completed successfully, but will be rolled back.");
           }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+          List<BatchResult> successfulResults = new ArrayList<>(previousResults);
+          successfulResults.addAll(results);
+          throw new BatchExecutorException(message.toString(), e, successfulResults, batchResult);
+        }
+        if (!sameResult) {
+          results.add(batchResult);
         }
-        results.add(batchResult);
       }
       return results;
     } finally {
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
+      batch.close();
+    }
+  }
+
+  /**
+   * Returns the indexes of the statements in the order their results were first seen. Statements are created in that
+   * order, except that when grouping, the multi-row statements of an insert are created once enough rows are pending.
+   */
+  private int[] executionOrder() {
+    final Integer[] order = new Integer[statementList.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    if (grouping) {
+      // stable, so the statements of a multi-row insert stay in creation order
+      Arrays.sort(order, (a, b) -> firstSeen.get(batchResultList.get(a)) - firstSeen.get(batchResultList.get(b)));
+    }
+    final int[] result = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      result[i] = order[i];
+    }
+    return result;
+  }
+
+  /**
+   * Spreads the update count of each batch entry over the rows it inserted.
+   */
+  private static int[] perRowUpdateCounts(int[] updateCounts, int rows) {
+    if (rows == 1) {
+      return updateCounts;
+    }
+    final int[] perRow = new int[updateCounts.length * rows];
+    for (int i = 0; i < updateCounts.length; i++) {
+      final int count = updateCounts[i];
+      final int rowCount = count < 0 ? count : count % rows == 0 ? count / rows : Statement.SUCCESS_NO_INFO;
+      Arrays.fill(perRow, i * rows, (i + 1) * rows, rowCount);
+    }
+    return perRow;
+  }
+
+  private static int[] concat(int[] first, int[] second) {
+    final int[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  /**
+   * A statement of the pending batch. It is prepared right away and its entries are bound into it, unless it is
+   * recorded: the binding thread then keeps the parameters of its entries, and the thread executing the batch prepares
+   * it and sets them, so that only one thread uses the connection at a time.
+   */
+  private final class PendingStatement {
+    private final StatementHandler handler;
+    private final Connection connection;
+    // parameters of a row, to shift those of the next rows of an entry
+    private final int rowParameters;
+    // the rows of each entry not set into the statement yet
+    private final List<List<BatchParameterStatement>> recordedEntries = new ArrayList<>();
+    private Statement statement;
+
+    PendingStatement(StatementHandler handler, Connection connection, int rowParameters, boolean recorded) throws SQLException {
+      this.handler = handler;
+      this.connection = connection;
+      this.rowParameters = rowParameters;
+      if (!recorded) {
+        statement = handler.prepare(connection, transaction.getTimeout());
+      }
+    }
+
+    boolean isRecorded() {
+      return statement == null;
+    }
+
+    void addEntry(List<BatchParameterStatement> rows) throws SQLException {
+      if (statement == null) {
+        recordedEntries.add(rows);
+      } else {
+        batch(rows);
+      }
+    }
+
+    /**
+     * Returns the statement, preparing it and setting the recorded entries into it first if needed.
+     */
+    Statement prepare() throws SQLException {
+      if (statement == null) {
+        statement = handler.prepare(connection, transaction.getTimeout());
+        for (List<BatchParameterStatement> rows : recordedEntries) {
+          batch(rows);
+        }
+        recordedEntries.clear();
+      }
+      return statement;
+    }
+
+    private void batch(List<BatchParameterStatement> rows) throws SQLException {
+      int offset = 0;
+      for (BatchParameterStatement row : rows) {
+        row.replay((PreparedStatement) statement, offset);
+        offset += rowParameters;
+      }
+      handler.batch(statement);
+    }
+
+    void close() {
+      if (statement != null) {
+        closeStatement(statement);
+      }
+    }
+  }
+
+  /**
+   * Statements taken from the executor to be executed, in the order they must run.
+   */
+  private final class PendingBatch {
+    private final List<PendingStatement> statements;
+    private final List<BatchResult> results;
+    private final List<Integer> rowsPerBatch;
+    private final int[] order;
+    // index of the first statement among those executed since the last explicit flush
+    private final int firstIndex;
+
+    PendingBatch(List<PendingStatement> statements, List<BatchResult> results, List<Integer> rowsPerBatch, int[] order, int firstIndex) {
+      this.statements = statements;
+      this.results = results;
+      this.rowsPerBatch = rowsPerBatch;
+      this.order = order;
+      this.firstIndex = firstIndex;
+    }
+
+    /**
+     * Returns whether every statement of the batch is recorded, so none uses the connection before it is executed.
+     */
+    boolean isRecorded() {
+      for (PendingStatement stmt : statements) {
+        if (!stmt.isRecorded()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void close() {
+      for (PendingStatement stmt : statements) {
+        stmt.close();
+      }
+    }
+  }
+
+  /**
+   * Executes the batches taken at a flush threshold on a thread of the batch pipeline executor of the configuration,
+   * one after the other, while the binding thread records the next ones. At most {@code batchPipelineDepth} batches
+   * wait, after which the binding thread blocks. Their statements are prepared, executed and their keys generated on
+   * that thread, the only one using the connection until the binding thread finishes the sender. Once a batch fails,
+   * the following ones are closed without being executed and the failure is thrown to the binding thread. The
+   * {@link BatchResultHandler} is called on that thread. A pool thread is only taken while batches are waiting.
+   */
+  private final class Sender implements Runnable {
+    private final BlockingQueue<PendingBatch> queue;
+    private final ExecutorService executor;
+    // only read by the binding thread once the sender has finished
+    private final List<BatchResult> retainedResults = new ArrayList<>();
+    // whether this sender is submitted to the executor, guarded by this
+    private boolean running;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+
+    Sender(int depth, ExecutorService executor) {
+      this.queue = new ArrayBlockingQueue<>(depth);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        final PendingBatch batch;
+        synchronized (this) {
+          batch = queue.poll();
+          if (batch == null) {
+            running = false;
+            notifyAll();
+            return;
+          }
+        }
+        if (failure != null || cancelled) {
+          batch.close();
+          continue;
+        }
+        try {
+          List<BatchResult> results = execute(batch, retainedResults);
+          if (batchResultHandler != null) {
+            for (BatchResult batchResult : results) {
+              batchResultHandler.handleBatchResult(batchResult);
+            }
+          } else {
+            retainedResults.addAll(results);
+          }
+        } catch (Throwable t) {
+          failure = t;
+        }
+      }
+    }
+
+    void send(PendingBatch batch) throws SQLException {
+      if (failure != null) {
+        batch.close();
+        finish();
+      }
+      try {
+        queue.put(batch);
+      } catch (InterruptedException e) {
+        batch.close();
+        cancel();
+        Thread.currentThread().interrupt();
+        throw new ExecutorException("Interrupted while waiting to send a batch.", e);
+      }
+      synchronized (this) {
+        if (!running) {
+          try {
+            executor.execute(this);
+          } catch (RejectedExecutionException e) {
+            // not running, so the queue only holds this batch
+            queue.clear();
+            batch.close();
+            throw new ExecutorException("The batch pipeline executor rejected a batch.  Cause: " + e, e);
+          }
+          running = true;
+        }
+      }
+    }
+
+    /**
+     * Waits for the batches sent so far, then returns their results or throws the failure of one of them.
+     */
+    List<BatchResult> finish() throws SQLException {
+      end();
+      final Throwable t = failure;
+      if (t instanceof SQLException) {
+        throw (SQLException) t;
+      } else if (t instanceof RuntimeException) {
+        throw (RuntimeException) t;
+      } else if (t instanceof Error) {
+        throw (Error) t;
+      } else if (t != null) {
+        throw new ExecutorException("Error executing batch.  Cause: " + t, t);
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+      return retainedResults;
+    }
+
+    /**
+     * Closes the batches that have not started yet and waits for the one in progress, if any.
+     */
+    void cancel() {
+      cancelled = true;
+      end();
+    }
+
+    private void end() {
+      // the statements and the connection can only be released once no batch is executing
+      boolean interrupted = false;
+      synchronized (this) {
+        while (running) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static final class BatchKey {
+    private final MappedStatement mappedStatement;
+    private final String sql;
+
+    BatchKey(MappedStatement mappedStatement, String sql) {
+      this.mappedStatement = mappedStatement;
+      this.sql = sql;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof BatchKey)) {
+        return false;
+      }
+      final BatchKey other = (BatchKey) o;
+      return mappedStatement.equals(other.mappedStatement) && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * mappedStatement.hashCode() + sql.hashCode();
+    }
+  }
+
+  private static final class MultiRowInsert {
+    private final MappedStatement mappedStatement;
+    private final MultiRowInsertSql sql;
+    // rows per statement, fewer than multiRowInsertSize when they would bind too many parameters
+    private final int maxRows;
+    private final BatchResult batchResult;
+    // parameters bound for each row not yet set into a statement
+    private final List<BatchParameterStatement> pendingRows = new ArrayList<>();
+    // handler of the first pending row, to prepare the statement of the group
+    private StatementHandler firstRow;
+    // connection of the pending rows, fetched once per group
+    private Connection connection;
+    private PendingStatement fullStatement;
+
+    MultiRowInsert(MappedStatement mappedStatement, MultiRowInsertSql sql, int maxRows, BatchResult batchResult) {
+      this.mappedStatement = mappedStatement;
+      this.sql = sql;
+      this.maxRows = maxRows;
+      this.batchResult = batchResult;
     }
   }
 
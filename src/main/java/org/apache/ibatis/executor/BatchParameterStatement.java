@@ -0,0 +1,162 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * PreparedStatement proxy used while adding parameters to a batch. It estimates the memory the parameters hold until
+ * the batch is executed.
+ * <p>
+ * A recorder has no statement: it keeps the setter calls and their values, to be replayed later with their index
+ * shifted, so that the parameters of one row of a multi-row insert are set as if the row were the whole statement.
+ * This binds each row when it is added, while the statement is only prepared once the rows of a group are known, or
+ * by the thread executing the batch when pipelining.
+ */
+final class BatchParameterStatement implements InvocationHandler {
+
+  private final PreparedStatement statement;
+  private final ConnectionSupplier connection;
+  private final List<Method> recordedMethods;
+  private final List<Object[]> recordedParams;
+  private long parameterBytes;
+
+  private BatchParameterStatement(PreparedStatement statement, ConnectionSupplier connection, boolean recording) {
+    this.statement = statement;
+    this.connection = connection;
+    this.recordedMethods = recording ? new ArrayList<>() : null;
+    this.recordedParams = recording ? new ArrayList<>() : null;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+    try {
+      if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, params);
+      }
+      final boolean setter = params != null && params.length >= 2 && method.getName().startsWith("set")
+          && method.getParameterTypes()[0] == int.class;
+      if (recordedMethods != null) {
+        return record(method, params, setter);
+      }
+      if (setter) {
+        parameterBytes += estimateSize(params);
+      }
+      return method.invoke(statement, params);
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  private Object record(Method method, Object[] params, boolean setter) throws SQLException {
+    if (setter) {
+      final Object[] copy = params.clone();
+      if (copy[1] instanceof byte[]) {
+        copy[1] = ((byte[]) copy[1]).clone();
+      }
+      recordedMethods.add(method);
+      recordedParams.add(copy);
+      parameterBytes += estimateSize(copy);
+      return null;
+    } else if ("getConnection".equals(method.getName())) {
+      return connection.get();
+    } else if ("clearParameters".equals(method.getName())) {
+      recordedMethods.clear();
+      recordedParams.clear();
+      return null;
+    }
+    throw new SQLFeatureNotSupportedException("Cannot call " + method.getName() + " while recording the parameters of a batch entry.");
+  }
+
+  /**
+   * Sets the recorded parameters into {@code target}, shifting their index by {@code offset}.
+   */
+  void replay(PreparedStatement target, int offset) throws SQLException {
+    for (int i = 0; i < recordedMethods.size(); i++) {
+      final Object[] params = recordedParams.get(i).clone();
+      params[0] = (Integer) params[0] + offset;
+      try {
+        recordedMethods.get(i).invoke(target, params);
+      } catch (Exception e) {
+        final Throwable cause = ExceptionUtil.unwrapThrowable(e);
+        if (cause instanceof SQLException) {
+          throw (SQLException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new SQLException("Could not set parameter " + params[0] + ".", cause);
+      }
+    }
+  }
+
+  /**
+   * Returns the estimated size in bytes of the parameters set through this proxy so far.
+   */
+  long getParameterBytes() {
+    return parameterBytes;
+  }
+
+  PreparedStatement newProxy() {
+    ClassLoader cl = PreparedStatement.class.getClassLoader();
+    return (PreparedStatement) Proxy.newProxyInstance(cl, new Class[]{PreparedStatement.class}, this);
+  }
+
+  static BatchParameterStatement newInstance(PreparedStatement statement) {
+    return new BatchParameterStatement(statement, null, false);
+  }
+
+  /**
+   * Returns a recorder, whose proxy answers {@code getConnection()} with the connection of {@code connection} for the
+   * type handlers that need it.
+   */
+  static BatchParameterStatement newRecorder(ConnectionSupplier connection) {
+    return new BatchParameterStatement(null, connection, true);
+  }
+
+  /**
+   * Supplies the connection of a recorder when a type handler asks for it.
+   */
+  interface ConnectionSupplier {
+    Connection get() throws SQLException;
+  }
+
+  private static long estimateSize(Object[] params) {
+    final Object value = params[1];
+    if (value == null) {
+      return 0;
+    } else if (value instanceof CharSequence) {
+      return 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    } else if ((value instanceof InputStream || value instanceof Reader) && params.length == 3 && params[2] instanceof Number) {
+      return ((Number) params[2]).longValue();
+    }
+    return 8;
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * Receives the results of the statements the batch executor flushes on its own once the {@code batchFlushSize} or
+ * {@code batchFlushBytes} threshold is reached, so that they do not have to be kept until the next explicit flush.
+ * <p>
+ * The one set on the configuration is shared by all the BATCH sessions not opened with their own and must be thread
+ * safe. When
+ * {@code batchPipelineDepth} is set, it is called from the thread executing the batches in the background, except
+ * for the batches executed on the calling thread because of their key generators.
+ *
+ * @see org.apache.ibatis.session.Configuration#setBatchResultHandler(BatchResultHandler)
+ * @see org.apache.ibatis.session.SqlSessionFactory#openSession(BatchResultHandler)
+ */
+public interface BatchResultHandler {
+
+  /**
+   * Called once per statement, in execution order, after its update counts and generated keys are set.
+   */
+  void handleBatchResult(BatchResult batchResult);
+
+}
@@ -0,0 +1,141 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.Locale;
+
+/**
+ * The SQL of an {@code INSERT ... VALUES (...)} statement split around its single row, so that it can be repeated
+ * into an {@code INSERT ... VALUES (...), (...)} statement.
+ */
+final class MultiRowInsertSql {
+
+  private final String head;
+  private final String row;
+  private final String[] sqlByRows;
+
+  private MultiRowInsertSql(String head, String row, int maxRows) {
+    this.head = head;
+    this.row = row;
+    this.sqlByRows = new String[maxRows + 1];
+  }
+
+  /**
+   * Returns the split form of {@code sql}, or null if it is not a plain single-row insert whose placeholders are all
+   * inside the VALUES list.
+   */
+  static MultiRowInsertSql parse(String sql, int maxRows) {
+    final String upperSql = sql.toUpperCase(Locale.ENGLISH);
+    int i = skipWhitespace(upperSql, 0);
+    if (!upperSql.startsWith("INSERT", i)) {
+      return null;
+    }
+    int values = -1;
+    int rowStart = -1;
+    int rowEnd = -1;
+    int depth = 0;
+    for (; i < upperSql.length(); i++) {
+      final char c = upperSql.charAt(i);
+      if (c == '\'' || c == '"') {
+        final int end = upperSql.indexOf(c, i + 1);
+        if (end < 0) {
+          return null;
+        }
+        i = end;
+      } else if (c == '?' && rowStart < 0) {
+        return null;
+      } else if (c == ';' || rowEnd >= 0 && !Character.isWhitespace(c)) {
+        return null;
+      } else if (c == '(') {
+        if (depth++ == 0 && values >= 0) {
+          if (rowStart >= 0 || skipWhitespace(upperSql, values + 6) != i) {
+            return null;
+          }
+          rowStart = i;
+        }
+      } else if (c == ')') {
+        if (--depth == 0 && rowStart >= 0) {
+          rowEnd = i + 1;
+        }
+      } else if (depth == 0 && upperSql.startsWith("VALUES", i) && isWordBoundary(upperSql, i - 1)
+          && isWordBoundary(upperSql, i + 6)) {
+        if (values >= 0) {
+          return null;
+        }
+        values = i;
+        i += 5;
+      }
+    }
+    if (rowEnd < 0) {
+      return null;
+    }
+    return new MultiRowInsertSql(sql.substring(0, rowStart), sql.substring(rowStart, rowEnd), maxRows);
+  }
+
+  /**
+   * Returns how many rows of {@code rowParameters} parameters each a statement may insert, at most {@code maxRows},
+   * without having more than {@code maxParameters} parameters. A {@code maxParameters} of 0 or less sets no limit.
+   */
+  static int maxRows(int maxRows, int rowParameters, int maxParameters) {
+    if (maxParameters <= 0 || rowParameters == 0) {
+      return maxRows;
+    }
+    return Math.max(1, Math.min(maxRows, maxParameters / rowParameters));
+  }
+
+  /**
+   * Returns the most parameters the driver of the named database binds to a statement, or 0 if unknown.
+   */
+  static int maxParameters(String databaseProductName) {
+    if (databaseProductName == null) {
+      return 0;
+    } else if (databaseProductName.startsWith("Microsoft SQL Server")) {
+      return 2100;
+    } else if (databaseProductName.startsWith("PostgreSQL")) {
+      return 65535;
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the statement inserting {@code rows} rows, between 1 and the maximum given to {@link #parse}.
+   */
+  String getSql(int rows) {
+    String sql = sqlByRows[rows];
+    if (sql == null) {
+      final StringBuilder builder = new StringBuilder(head.length() + rows * (row.length() + 1));
+      builder.append(head).append(row);
+      for (int i = 1; i < rows; i++) {
+        builder.append(',').append(row);
+      }
+      sql = builder.toString();
+      sqlByRows[rows] = sql;
+    }
+    return sql;
+  }
+
+  private static int skipWhitespace(String sql, int index) {
+    while (index < sql.length() && Character.isWhitespace(sql.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  private static boolean isWordBoundary(String sql, int index) {
+    return index < 0 || index >= sql.length() || !Character.isLetterOrDigit(sql.charAt(index)) && sql.charAt(index) != '_';
+  }
+
+}
@@ -0,0 +1,459 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.PrimitiveDoubleTypeHandler;
+import org.apache.ibatis.type.PrimitiveIntTypeHandler;
+import org.apache.ibatis.type.PrimitiveLongTypeHandler;
+import org.apache.ibatis.type.PrimitiveTypeHandlers;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A whole result set held column by column in primitive arrays.
+ * <p>
+ * Returned for statements whose result type is {@code ColumnarResult} (alias {@code columnar}). Integer, bigint and
+ * floating point columns are read into {@code int[]}, {@code long[]} and {@code double[]} through the primitive read
+ * methods of type handlers implementing the primitive handler interfaces, character columns are dictionary encoded and any
+ * other column is kept as objects. Arrays grow by the statement fetch size and are trimmed to the row count once all rows
+ * are read.
+ * </p>
+ * <p>
+ * Decimal and numeric columns are kept as {@code BigDecimal} objects, exact like the row mappers return them, unless the
+ * {@code columnarDecimalsAsPrimitives} setting is enabled. Then columns declared with a scale of 0 and at most 18 digits
+ * are read into {@code long[]} and every other decimal column into {@code double[]}, which is approximate.
+ * </p>
+ */
+public class ColumnarResult {
+
+  private static final int DEFAULT_GROWTH = 256;
+
+  public enum ColumnType {
+    INT, LONG, DOUBLE, STRING, OBJECT
+  }
+
+  private final List<String> columnNames;
+  private final Map<String, Integer> columnIndexes = new HashMap<>();
+  private final Column[] columns;
+  private final int growth;
+  private int rowCount;
+
+  ColumnarResult(ResultSetWrapper rsw, int fetchSize, boolean decimalsAsPrimitives) throws SQLException {
+    this.columnNames = Collections.unmodifiableList(new ArrayList<>(rsw.getColumnNames()));
+    this.growth = fetchSize > 0 ? fetchSize : DEFAULT_GROWTH;
+    this.columns = new Column[columnNames.size()];
+    final ResultSetMetaData metaData = decimalsAsPrimitives ? rsw.getResultSet().getMetaData() : null;
+    for (int i = 0; i < columns.length; i++) {
+      final String columnName = columnNames.get(i);
+      columnIndexes.putIfAbsent(columnName.toUpperCase(Locale.ENGLISH), i);
+      columns[i] = createColumn(rsw, columnName, rsw.getJdbcTypes().get(i), metaData, i + 1);
+    }
+  }
+
+  private Column createColumn(ResultSetWrapper rsw, String columnName, JdbcType jdbcType, ResultSetMetaData metaData,
+      int columnIndex) throws SQLException {
+    if (jdbcType != null) {
+      switch (jdbcType) {
+        case INTEGER:
+        case SMALLINT:
+        case TINYINT:
+          TypeHandler<?> intHandler = rsw.getTypeHandler(Integer.class, columnName);
+          if (PrimitiveTypeHandlers.isPrimitiveTypeHandler(intHandler, int.class)) {
+            return new IntColumn((PrimitiveIntTypeHandler) intHandler, growth);
+          }
+          return new ObjectColumn(intHandler, growth);
+        case BIGINT:
+          return createLongColumn(rsw, columnName);
+        case DOUBLE:
+        case FLOAT:
+        case REAL:
+          return createDoubleColumn(rsw, columnName);
+        case DECIMAL:
+        case NUMERIC:
+          if (metaData == null) {
+            // kept exact, as the BigDecimal the row mappers return
+            return new ObjectColumn(rsw.getTypeHandler(BigDecimal.class, columnName), growth);
+          }
+          final int precision = metaData.getPrecision(columnIndex);
+          if (metaData.getScale(columnIndex) == 0 && precision > 0 && precision <= 18) {
+            return createLongColumn(rsw, columnName);
+          }
+          return createDoubleColumn(rsw, columnName);
+        case CHAR:
+        case VARCHAR:
+        case NCHAR:
+        case NVARCHAR:
+        case LONGVARCHAR:
+        case LONGNVARCHAR:
+          return new StringColumn(rsw.getTypeHandler(String.class, columnName), growth);
+        default:
+          break;
+      }
+    }
+    return new ObjectColumn(rsw.getTypeHandler(Object.class, columnName), growth);
+  }
+
+  private Column createLongColumn(ResultSetWrapper rsw, String columnName) {
+    TypeHandler<?> longHandler = rsw.getTypeHandler(Long.class, columnName);
+    if (PrimitiveTypeHandlers.isPrimitiveTypeHandler(longHandler, long.class)) {
+      return new LongColumn((PrimitiveLongTypeHandler) longHandler, growth);
+    }
+    return new ObjectColumn(longHandler, growth);
+  }
+
+  private Column createDoubleColumn(ResultSetWrapper rsw, String columnName) {
+    TypeHandler<?> doubleHandler = rsw.getTypeHandler(Double.class, columnName);
+    if (PrimitiveTypeHandlers.isPrimitiveTypeHandler(doubleHandler, double.class)) {
+      return new DoubleColumn((PrimitiveDoubleTypeHandler) doubleHandler, growth);
+    }
+    return new ObjectColumn(doubleHandler, growth);
+  }
+
+  void readRow(ResultSet rs) throws SQLException {
+    for (int i = 0; i < columns.length; i++) {
+      columns[i].read(rs, i + 1, rowCount);
+    }
+    rowCount++;
+  }
+
+  void trim() {
+    for (Column column : columns) {
+      column.trim(rowCount);
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public ColumnType getColumnType(String columnName) {
+    return column(columnName).type();
+  }
+
+  public boolean isNull(String columnName, int row) {
+    return column(columnName).nulls.get(checkRow(row));
+  }
+
+  /**
+   * Returns the value of a cell boxed, or decoded in the case of a string column.
+   */
+  public Object getValue(String columnName, int row) {
+    Column column = column(columnName);
+    return column.nulls.get(checkRow(row)) ? null : column.get(row);
+  }
+
+  /**
+   * Returns the values of an {@link ColumnType#INT} column; SQL {@code NULL}s are stored as 0.
+   */
+  public int[] getIntColumn(String columnName) {
+    return ((IntColumn) column(columnName, ColumnType.INT)).values;
+  }
+
+  /**
+   * Returns the values of a {@link ColumnType#LONG} column; SQL {@code NULL}s are stored as 0.
+   */
+  public long[] getLongColumn(String columnName) {
+    return ((LongColumn) column(columnName, ColumnType.LONG)).values;
+  }
+
+  /**
+   * Returns the values of a {@link ColumnType#DOUBLE} column; SQL {@code NULL}s are stored as 0.
+   */
+  public double[] getDoubleColumn(String columnName) {
+    return ((DoubleColumn) column(columnName, ColumnType.DOUBLE)).values;
+  }
+
+  /**
+   * Returns the dictionary codes of a {@link ColumnType#STRING} column; SQL {@code NULL}s are stored as -1.
+   */
+  public int[] getStringCodes(String columnName) {
+    return ((StringColumn) column(columnName, ColumnType.STRING)).codes;
+  }
+
+  /**
+   * Returns the distinct values of a {@link ColumnType#STRING} column indexed by their code.
+   */
+  public List<String> getStringDictionary(String columnName) {
+    return Collections.unmodifiableList(((StringColumn) column(columnName, ColumnType.STRING)).dictionary);
+  }
+
+  public Object[] getObjectColumn(String columnName) {
+    return ((ObjectColumn) column(columnName, ColumnType.OBJECT)).values;
+  }
+
+  private Column column(String columnName) {
+    Integer index = columnIndexes.get(columnName.toUpperCase(Locale.ENGLISH));
+    if (index == null) {
+      throw new ExecutorException("Column '" + columnName + "' not found in columnar result. Available columns are " + columnNames);
+    }
+    return columns[index];
+  }
+
+  private Column column(String columnName, ColumnType type) {
+    Column column = column(columnName);
+    if (column.type() != type) {
+      throw new ExecutorException("Column '" + columnName + "' is a " + column.type() + " column, not " + type + ".");
+    }
+    return column;
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("Row " + row + " is out of range [0, " + rowCount + ").");
+    }
+    return row;
+  }
+
+  private abstract static class Column {
+    protected final BitSet nulls = new BitSet();
+    protected final int growth;
+    protected int capacity;
+
+    Column(int growth) {
+      this.growth = growth;
+      this.capacity = growth;
+    }
+
+    protected int nextCapacity() {
+      capacity += Math.max(growth, capacity >> 1);
+      return capacity;
+    }
+
+    abstract ColumnType type();
+
+    abstract void read(ResultSet rs, int columnIndex, int row) throws SQLException;
+
+    abstract void trim(int size);
+
+    abstract Object get(int row);
+  }
+
+  private static class IntColumn extends Column {
+    private final PrimitiveIntTypeHandler typeHandler;
+    private int[] values;
+
+    IntColumn(PrimitiveIntTypeHandler typeHandler, int growth) {
+      super(growth);
+      this.typeHandler = typeHandler;
+      this.values = new int[capacity];
+    }
+
+    @Override
+    ColumnType type() {
+      return ColumnType.INT;
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      if (row == values.length) {
+        values = Arrays.copyOf(values, nextCapacity());
+      }
+      values[row] = typeHandler.getIntResult(rs, columnIndex);
+      if (values[row] == 0 && rs.wasNull()) {
+        nulls.set(row);
+      }
+    }
+
+    @Override
+    void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+  }
+
+  private static class LongColumn extends Column {
+    private final PrimitiveLongTypeHandler typeHandler;
+    private long[] values;
+
+    LongColumn(PrimitiveLongTypeHandler typeHandler, int growth) {
+      super(growth);
+      this.typeHandler = typeHandler;
+      this.values = new long[capacity];
+    }
+
+    @Override
+    ColumnType type() {
+      return ColumnType.LONG;
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      if (row == values.length) {
+        values = Arrays.copyOf(values, nextCapacity());
+      }
+      values[row] = typeHandler.getLongResult(rs, columnIndex);
+      if (values[row] == 0 && rs.wasNull()) {
+        nulls.set(row);
+      }
+    }
+
+    @Override
+    void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+  }
+
+  private static class DoubleColumn extends Column {
+    private final PrimitiveDoubleTypeHandler typeHandler;
+    private double[] values;
+
+    DoubleColumn(PrimitiveDoubleTypeHandler typeHandler, int growth) {
+      super(growth);
+      this.typeHandler = typeHandler;
+      this.values = new double[capacity];
+    }
+
+    @Override
+    ColumnType type() {
+      return ColumnType.DOUBLE;
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      if (row == values.length) {
+        values = Arrays.copyOf(values, nextCapacity());
+      }
+      values[row] = typeHandler.getDoubleResult(rs, columnIndex);
+      if (values[row] == 0 && rs.wasNull()) {
+        nulls.set(row);
+      }
+    }
+
+    @Override
+    void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+  }
+
+  private static class StringColumn extends Column {
+    private final TypeHandler<?> typeHandler;
+    private final Map<String, Integer> codesByValue = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private int[] codes;
+
+    StringColumn(TypeHandler<?> typeHandler, int growth) {
+      super(growth);
+      this.typeHandler = typeHandler;
+      this.codes = new int[capacity];
+    }
+
+    @Override
+    ColumnType type() {
+      return ColumnType.STRING;
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      if (row == codes.length) {
+        codes = Arrays.copyOf(codes, nextCapacity());
+      }
+      final Object value = typeHandler.getResult(rs, columnIndex);
+      if (value == null) {
+        codes[row] = -1;
+        nulls.set(row);
+      } else {
+        final String text = value.toString();
+        Integer code = codesByValue.get(text);
+        if (code == null) {
+          code = dictionary.size();
+          dictionary.add(text);
+          codesByValue.put(text, code);
+        }
+        codes[row] = code;
+      }
+    }
+
+    @Override
+    void trim(int size) {
+      codes = Arrays.copyOf(codes, size);
+    }
+
+    @Override
+    Object get(int row) {
+      return dictionary.get(codes[row]);
+    }
+  }
+
+  private static class ObjectColumn extends Column {
+    private final TypeHandler<?> typeHandler;
+    private Object[] values;
+
+    ObjectColumn(TypeHandler<?> typeHandler, int growth) {
+      super(growth);
+      this.typeHandler = typeHandler;
+      this.values = new Object[capacity];
+    }
+
+    @Override
+    ColumnType type() {
+      return ColumnType.OBJECT;
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      if (row == values.length) {
+        values = Arrays.copyOf(values, nextCapacity());
+      }
+      values[row] = typeHandler.getResult(rs, columnIndex);
+      if (values[row] == null) {
+        nulls.set(row);
+      }
+    }
+
+    @Override
+    void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+  }
+
+}
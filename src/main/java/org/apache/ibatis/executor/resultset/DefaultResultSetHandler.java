@@ -40,12 +40,19 @@ import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.PrimitiveInvoker;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.PrimitiveBooleanTypeHandler;
+import org.apache.ibatis.type.PrimitiveDoubleTypeHandler;
+import org.apache.ibatis.type.PrimitiveIntTypeHandler;
+import org.apache.ibatis.type.PrimitiveLongTypeHandler;
+import org.apache.ibatis.type.PrimitiveTypeHandlers;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -54,13 +61,18 @@ import java.sql.CallableStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * @author Clinton Begin
@@ -94,6 +106,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
+  private final Map<String, PrimitiveInvoker[]> primitivePropertySettersCache = new HashMap<>();
 
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
@@ -108,12 +121,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     private final String property;
     private final TypeHandler<?> typeHandler;
     private final boolean primitive;
+    private final PrimitiveInvoker primitiveSetter;
 
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive,
+        PrimitiveInvoker primitiveSetter) {
       this.column = column;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
+      this.primitiveSetter = primitiveSetter;
     }
   }
 
@@ -298,10 +314,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       } else {
         if (resultHandler == null) {
           DefaultResultHandler defaultResultHandler = new DefaultResultHandler(objectFactory);
-          handleRowValues(rsw, resultMap, defaultResultHandler, rowBounds, null);
+          handleTopLevelRowValues(rsw, resultMap, defaultResultHandler);
           multipleResults.add(defaultResultHandler.getResultList());
         } else {
-          handleRowValues(rsw, resultMap, resultHandler, rowBounds, null);
+          handleTopLevelRowValues(rsw, resultMap, resultHandler);
         }
       }
     } finally {
@@ -310,6 +326,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  private void handleTopLevelRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler) throws SQLException {
+    if (ColumnarResult.class.equals(resultMap.getType())) {
+      handleColumnarRowValues(rsw, resultHandler, rowBounds);
+    } else if (canMapInParallel(resultMap)) {
+      handleRowValuesInParallel(rsw, resultMap, resultHandler, rowBounds);
+    } else {
+      handleRowValues(rsw, resultMap, resultHandler, rowBounds, null);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private List<Object> collapseSingleResultList(List<Object> multipleResults) {
     return multipleResults.size() == 1 ? (List<Object>) multipleResults.get(0) : multipleResults;
@@ -388,6 +414,149 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  //
+  // HANDLE ROWS FOR SIMPLE RESULTMAP IN PARALLEL
+  //
+
+  private boolean canMapInParallel(ResultMap resultMap) {
+    if (configuration.getParallelResultMappingThreads() <= 0 || resultMap.hasNestedResultMaps()
+        || resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null) {
+      return false;
+    }
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (resultMapping.getResultSet() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * The first batch of rows is mapped directly, as a hand-off is not worth it for short results. After that, the calling
+   * thread keeps ownership of the ResultSet and copies rows into batches, worker threads map the batches and the mapped
+   * batches are handed to the ResultHandler on the calling thread in their original order. If a type handler reads a
+   * value the buffered rows cannot convert, all the rows are mapped directly instead.
+   */
+  private void handleRowValuesInParallel(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds)
+      throws SQLException {
+    final int batchSize = Math.max(1, configuration.getParallelResultMappingBatchSize());
+    final int maxPendingBatches = configuration.getParallelResultMappingThreads() * 2;
+    final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+    final ResultSet resultSet = rsw.getResultSet();
+    skipRows(resultSet, rowBounds);
+    while (resultContext.getResultCount() < batchSize && shouldProcessMoreRows(resultContext, rowBounds)
+        && !resultSet.isClosed() && resultSet.next()) {
+      callResultHandler(resultHandler, resultContext, getRowValue(rsw, resultMap, null));
+    }
+    if (resultContext.getResultCount() < batchSize || !shouldProcessMoreRows(resultContext, rowBounds)
+        || resultSet.isClosed() || !resultSet.next()) {
+      return;
+    }
+    final Map<String, Integer> columnIndexes = RowBatchResultSet.columnIndexes(rsw);
+    final ResultSet probe = RowBatchResultSet.newInstance(columnIndexes, Collections.singletonList(RowBatchResultSet.readRow(rsw)));
+    final Object probeValue;
+    try {
+      probeValue = mapRowBatch(new ResultSetWrapper(probe, rsw), resultMap).get(0);
+    } catch (SQLException | RuntimeException e) {
+      if (!RowBatchResultSet.hasFailedConversion(probe)) {
+        throw e;
+      }
+      // the source row is still current
+      do {
+        callResultHandler(resultHandler, resultContext, getRowValue(rsw, resultMap, null));
+      } while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next());
+      return;
+    }
+    callResultHandler(resultHandler, resultContext, probeValue);
+    final Deque<Future<List<Object>>> pendingBatches = new ArrayDeque<>();
+    final List<Object[]> rows = new ArrayList<>(batchSize);
+    int remaining = rowBounds.getLimit() - resultContext.getResultCount();
+    try {
+      while (remaining > 0 && !resultContext.isStopped() && !resultSet.isClosed() && resultSet.next()) {
+        rows.add(RowBatchResultSet.readRow(rsw));
+        remaining--;
+        if (rows.size() == batchSize) {
+          pendingBatches.add(submitRowBatch(rsw, resultMap, columnIndexes, rows));
+          rows.clear();
+          if (pendingBatches.size() >= maxPendingBatches) {
+            storeRowBatch(awaitRowBatch(pendingBatches.poll()), resultHandler, resultContext, rowBounds);
+          }
+        }
+      }
+      if (!rows.isEmpty()) {
+        pendingBatches.add(submitRowBatch(rsw, resultMap, columnIndexes, rows));
+      }
+      while (!pendingBatches.isEmpty() && !resultContext.isStopped()) {
+        storeRowBatch(awaitRowBatch(pendingBatches.poll()), resultHandler, resultContext, rowBounds);
+      }
+    } finally {
+      for (Future<List<Object>> pendingBatch : pendingBatches) {
+        pendingBatch.cancel(true);
+      }
+    }
+  }
+
+  private Future<List<Object>> submitRowBatch(ResultSetWrapper rsw, ResultMap resultMap, Map<String, Integer> columnIndexes, List<Object[]> rows) {
+    final ResultSetWrapper batch = new ResultSetWrapper(RowBatchResultSet.newInstance(columnIndexes, rows), rsw);
+    // a handler per batch keeps the auto-mapping cache and constructor flags confined to the worker thread
+    final DefaultResultSetHandler batchHandler = new DefaultResultSetHandler(executor, mappedStatement, parameterHandler, null, boundSql, rowBounds);
+    return configuration.getResultMappingExecutor().submit(() -> batchHandler.mapRowBatch(batch, resultMap));
+  }
+
+  private List<Object> mapRowBatch(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final List<Object> rowValues = new ArrayList<>();
+    final ResultSet resultSet = rsw.getResultSet();
+    while (resultSet.next()) {
+      rowValues.add(getRowValue(rsw, resultMap, null));
+    }
+    return rowValues;
+  }
+
+  private List<Object> awaitRowBatch(Future<List<Object>> pendingBatch) throws SQLException {
+    try {
+      return pendingBatch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for mapped rows.", e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error mapping rows in parallel.  Cause: " + cause, cause);
+    }
+  }
+
+  private void storeRowBatch(List<Object> rowValues, ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, RowBounds rowBounds) {
+    for (Object rowValue : rowValues) {
+      if (!shouldProcessMoreRows(resultContext, rowBounds)) {
+        break;
+      }
+      callResultHandler(resultHandler, resultContext, rowValue);
+    }
+  }
+
+  //
+  // HANDLE ROWS INTO COLUMNS
+  //
+
+  private void handleColumnarRowValues(ResultSetWrapper rsw, ResultHandler<?> resultHandler, RowBounds rowBounds) throws SQLException {
+    final ResultSet resultSet = rsw.getResultSet();
+    final Integer fetchSize = mappedStatement.getFetchSize() != null ? mappedStatement.getFetchSize() : configuration.getDefaultFetchSize();
+    final ColumnarResult columnarResult = new ColumnarResult(rsw, fetchSize != null ? fetchSize : resultSet.getFetchSize(),
+        configuration.isColumnarDecimalsAsPrimitives());
+    skipRows(resultSet, rowBounds);
+    while (columnarResult.getRowCount() < rowBounds.getLimit() && !resultSet.isClosed() && resultSet.next()) {
+      columnarResult.readRow(resultSet);
+    }
+    columnarResult.trim();
+    callResultHandler(resultHandler, new DefaultResultContext<>(), columnarResult);
+  }
+
   //
   // GET VALUE FROM ROW FOR SIMPLE RESULT MAP
   //
@@ -429,7 +598,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
+    final PrimitiveInvoker[] primitiveSetters = resultMap.getType().isInstance(metaObject.getOriginalObject())
+        ? getPrimitivePropertySetters(resultMap, metaObject) : null;
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
       String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       if (propertyMapping.getNestedResultMapId() != null) {
         // the user added a column attribute to a nested result map, ignore it
@@ -438,6 +610,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (propertyMapping.isCompositeResult()
           || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
           || propertyMapping.getResultSet() != null) {
+        if (primitiveSetters != null && primitiveSetters[i] != null) {
+          foundValues = applyPrimitiveValue(rsw.getResultSet(), column, propertyMapping.getTypeHandler(),
+              primitiveSetters[i], metaObject.getOriginalObject()) || foundValues;
+          continue;
+        }
         Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
@@ -498,7 +675,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           final Class<?> propertyType = metaObject.getSetterType(property);
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive(),
+                resolvePrimitiveSetter(resultMap, metaObject, property, typeHandler)));
           } else {
             configuration.getAutoMappingUnknownColumnBehavior()
                 .doAction(mappedStatement, columnName, property, propertyType);
@@ -517,7 +695,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     List<UnMappedColumnAutoMapping> autoMapping = createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix);
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
+      final Object target = metaObject.getOriginalObject();
+      final boolean primitiveTarget = resultMap.getType().isInstance(target);
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
+        if (primitiveTarget && mapping.primitiveSetter != null) {
+          foundValues = applyPrimitiveValue(rsw.getResultSet(), mapping.column, mapping.typeHandler,
+              mapping.primitiveSetter, target) || foundValues;
+          continue;
+        }
         final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
         if (value != null) {
           foundValues = true;
@@ -531,6 +716,79 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
+  //
+  // PRIMITIVE PROPERTIES
+  //
+
+  private PrimitiveInvoker[] getPrimitivePropertySetters(ResultMap resultMap, MetaObject metaObject) {
+    PrimitiveInvoker[] setters = primitivePropertySettersCache.get(resultMap.getId());
+    if (setters == null) {
+      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+      setters = new PrimitiveInvoker[propertyMappings.size()];
+      for (int i = 0; i < setters.length; i++) {
+        final ResultMapping propertyMapping = propertyMappings.get(i);
+        if (propertyMapping.getProperty() != null && propertyMapping.getColumn() != null
+            && propertyMapping.getNestedQueryId() == null && propertyMapping.getNestedResultMapId() == null
+            && propertyMapping.getResultSet() == null && !propertyMapping.isCompositeResult()) {
+          setters[i] = resolvePrimitiveSetter(resultMap, metaObject, propertyMapping.getProperty(), propertyMapping.getTypeHandler());
+        }
+      }
+      primitivePropertySettersCache.put(resultMap.getId(), setters);
+    }
+    return setters;
+  }
+
+  /**
+   * Returns an unboxed setter when the property of the result type is a primitive and its type handler reads that
+   * primitive type, or null when the value must go through {@link MetaObject#setValue(String, Object)}.
+   */
+  private PrimitiveInvoker resolvePrimitiveSetter(ResultMap resultMap, MetaObject metaObject, String property, TypeHandler<?> typeHandler) {
+    if (!(metaObject.getObjectWrapper() instanceof BeanWrapper)
+        || property.indexOf('.') >= 0 || property.indexOf('[') >= 0) {
+      return null;
+    }
+    final PrimitiveInvoker setter = reflectorFactory.findForClass(resultMap.getType()).getPrimitiveSetter(property);
+    if (setter == null) {
+      return null;
+    }
+    return PrimitiveTypeHandlers.isPrimitiveTypeHandler(typeHandler, setter.getType()) ? setter : null;
+  }
+
+  private boolean applyPrimitiveValue(ResultSet rs, String column, TypeHandler<?> typeHandler, PrimitiveInvoker setter, Object target)
+      throws SQLException {
+    final Class<?> type = setter.getType();
+    try {
+      if (type == int.class) {
+        final int value = ((PrimitiveIntTypeHandler) typeHandler).getIntResult(rs, column);
+        if (value == 0 && rs.wasNull()) {
+          return false;
+        }
+        setter.setInt(target, value);
+      } else if (type == long.class) {
+        final long value = ((PrimitiveLongTypeHandler) typeHandler).getLongResult(rs, column);
+        if (value == 0L && rs.wasNull()) {
+          return false;
+        }
+        setter.setLong(target, value);
+      } else if (type == double.class) {
+        final double value = ((PrimitiveDoubleTypeHandler) typeHandler).getDoubleResult(rs, column);
+        if (value == 0d && rs.wasNull()) {
+          return false;
+        }
+        setter.setDouble(target, value);
+      } else {
+        final boolean value = ((PrimitiveBooleanTypeHandler) typeHandler).getBooleanResult(rs, column);
+        if (!value && rs.wasNull()) {
+          return false;
+        }
+        setter.setBoolean(target, value);
+      }
+    } catch (SQLException e) {
+      throw new ResultMapException("Error attempting to get column '" + column + "' from result set.  Cause: " + e, e);
+    }
+    return true;
+  }
+
   // MULTIPLE RESULT SETS
 
   private void linkToParents(ResultSet rs, ResultMapping parentMapping, Object rowValue) throws SQLException {
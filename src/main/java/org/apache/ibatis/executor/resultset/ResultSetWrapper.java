@@ -62,6 +62,18 @@ public class ResultSetWrapper {
     }
   }
 
+  /**
+   * Wraps a detached copy of the rows of {@code source}, reusing its column metadata.
+   * The lookup caches are not shared so the new wrapper can be used from another thread.
+   */
+  ResultSetWrapper(ResultSet rs, ResultSetWrapper source) {
+    this.typeHandlerRegistry = source.typeHandlerRegistry;
+    this.resultSet = rs;
+    this.columnNames.addAll(source.columnNames);
+    this.classNames.addAll(source.classNames);
+    this.jdbcTypes.addAll(source.jdbcTypes);
+  }
+
   public ResultSet getResultSet() {
     return resultSet;
   }
@@ -0,0 +1,326 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * A batch of rows copied out of a live {@link ResultSet}, exposed again as a forward-only ResultSet proxy so that
+ * the regular type handlers can map it on another thread.
+ * <p>
+ * LOB columns are materialized while the source row is current because their locators do not outlive it. Values are
+ * only converted to the standard JDBC types; a type handler asking for another type fails, and the rows are then
+ * mapped from the source result set.
+ */
+final class RowBatchResultSet implements InvocationHandler {
+
+  private static final Set<Class<?>> CONVERTIBLE_TYPES = new HashSet<>(Arrays.asList(Object.class,
+      int.class, Integer.class, long.class, Long.class, double.class, Double.class, float.class, Float.class,
+      short.class, Short.class, byte.class, Byte.class, boolean.class, Boolean.class, BigDecimal.class, BigInteger.class,
+      String.class, byte[].class, Timestamp.class, Date.class, Time.class, LocalDateTime.class, LocalDate.class,
+      LocalTime.class, Blob.class, Clob.class, InputStream.class, Reader.class));
+
+  private final Map<String, Integer> columnIndexes;
+  private final List<Object[]> rows;
+  private int cursor = -1;
+  private boolean wasNull;
+  private boolean closed;
+  private volatile boolean conversionFailed;
+
+  private RowBatchResultSet(Map<String, Integer> columnIndexes, List<Object[]> rows) {
+    this.columnIndexes = columnIndexes;
+    this.rows = rows;
+  }
+
+  /**
+   * Builds the case-insensitive label to index lookup shared by every batch of one result set.
+   */
+  static Map<String, Integer> columnIndexes(ResultSetWrapper rsw) {
+    Map<String, Integer> indexes = new HashMap<>();
+    List<String> columnNames = rsw.getColumnNames();
+    for (int i = columnNames.size(); i > 0; i--) {
+      // first occurrence wins, as in most drivers
+      indexes.put(columnNames.get(i - 1).toUpperCase(Locale.ENGLISH), i);
+    }
+    return indexes;
+  }
+
+  /**
+   * Copies the current row of the wrapped result set.
+   */
+  static Object[] readRow(ResultSetWrapper rsw) throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
+    final List<JdbcType> jdbcTypes = rsw.getJdbcTypes();
+    final Object[] row = new Object[jdbcTypes.size()];
+    for (int i = 0; i < row.length; i++) {
+      JdbcType jdbcType = jdbcTypes.get(i);
+      if (jdbcType == JdbcType.BLOB || jdbcType == JdbcType.LONGVARBINARY) {
+        row[i] = rs.getBytes(i + 1);
+      } else if (jdbcType == JdbcType.CLOB || jdbcType == JdbcType.NCLOB
+          || jdbcType == JdbcType.LONGVARCHAR || jdbcType == JdbcType.LONGNVARCHAR) {
+        row[i] = rs.getString(i + 1);
+      } else {
+        row[i] = rs.getObject(i + 1);
+      }
+    }
+    return row;
+  }
+
+  static ResultSet newInstance(Map<String, Integer> columnIndexes, List<Object[]> rows) {
+    InvocationHandler handler = new RowBatchResultSet(columnIndexes, new ArrayList<>(rows));
+    ClassLoader cl = ResultSet.class.getClassLoader();
+    return (ResultSet) Proxy.newProxyInstance(cl, new Class[]{ResultSet.class}, handler);
+  }
+
+  /**
+   * Returns whether a type handler asked the given batch for a value it could not convert from the buffered one, in
+   * which case the rows have to be mapped from the source result set.
+   */
+  static boolean hasFailedConversion(ResultSet resultSet) {
+    return ((RowBatchResultSet) Proxy.getInvocationHandler(resultSet)).conversionFailed;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+    try {
+      if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, params);
+      }
+      final String name = method.getName();
+      switch (name) {
+        case "next":
+          return ++cursor < rows.size();
+        case "close":
+          closed = true;
+          return null;
+        case "isClosed":
+          return closed;
+        case "wasNull":
+          return wasNull;
+        case "findColumn":
+          return findColumn((String) params[0]);
+        case "getType":
+          return ResultSet.TYPE_FORWARD_ONLY;
+        case "getRow":
+          return cursor + 1;
+        default:
+          break;
+      }
+      if (name.startsWith("get") && params != null && params.length > 0
+          && (params[0] instanceof Integer || params[0] instanceof String)) {
+        final Object value = getValue(params[0]);
+        wasNull = value == null;
+        try {
+          if ("getObject".equals(name)) {
+            if (params.length == 1) {
+              return value;
+            }
+            if (!(params[1] instanceof Class)) {
+              throw new SQLException("Cannot convert buffered value with a type map.");
+            }
+            return convert(value, (Class<?>) params[1]);
+          }
+          if ("getBigDecimal".equals(name) && params.length == 2 && value != null) {
+            return ((BigDecimal) convert(value, BigDecimal.class)).setScale((Integer) params[1], RoundingMode.HALF_UP);
+          }
+          return convert(value, method.getReturnType());
+        } catch (SQLException e) {
+          conversionFailed = true;
+          throw e;
+        }
+      }
+      throw new SQLFeatureNotSupportedException("Method '" + name + "' is not supported on buffered rows.");
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  private int findColumn(String columnLabel) throws SQLException {
+    Integer index = columnIndexes.get(columnLabel.toUpperCase(Locale.ENGLISH));
+    if (index == null) {
+      throw new SQLException("Column '" + columnLabel + "' not found.");
+    }
+    return index;
+  }
+
+  private Object getValue(Object column) throws SQLException {
+    if (cursor < 0 || cursor >= rows.size()) {
+      throw new SQLException("No current row.");
+    }
+    final int index = column instanceof Integer ? (Integer) column : findColumn((String) column);
+    final Object[] row = rows.get(cursor);
+    if (index < 1 || index > row.length) {
+      throw new SQLException("Column index " + index + " out of range.");
+    }
+    return row[index - 1];
+  }
+
+  private static Object convert(Object value, Class<?> type) throws SQLException {
+    if (!CONVERTIBLE_TYPES.contains(type)) {
+      // even from a null or an instance of the type, so that the probe row tells how every row converts
+      throw new SQLException("Cannot convert buffered value to " + type.getName() + ".");
+    }
+    if (value == null) {
+      return type.isPrimitive() ? defaultPrimitive(type) : null;
+    }
+    if (type.isInstance(value)) {
+      return value;
+    }
+    if (type == int.class || type == Integer.class) {
+      return toNumber(value).intValue();
+    } else if (type == long.class || type == Long.class) {
+      return toNumber(value).longValue();
+    } else if (type == double.class || type == Double.class) {
+      return toNumber(value).doubleValue();
+    } else if (type == float.class || type == Float.class) {
+      return toNumber(value).floatValue();
+    } else if (type == short.class || type == Short.class) {
+      return toNumber(value).shortValue();
+    } else if (type == byte.class || type == Byte.class) {
+      return toNumber(value).byteValue();
+    } else if (type == boolean.class || type == Boolean.class) {
+      return toBoolean(value);
+    } else if (type == BigDecimal.class) {
+      return value instanceof Boolean ? ((Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO) : new BigDecimal(value.toString());
+    } else if (type == BigInteger.class) {
+      return new BigDecimal(value.toString()).toBigInteger();
+    } else if (type == String.class) {
+      return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : value.toString();
+    } else if (type == byte[].class && value instanceof String) {
+      return ((String) value).getBytes(StandardCharsets.UTF_8);
+    } else if (type == Timestamp.class || type == Date.class || type == Time.class) {
+      return toSqlDate(value, type);
+    } else if (type == LocalDateTime.class || type == LocalDate.class || type == LocalTime.class) {
+      return toLocalDate(value, type);
+    } else if (type == Blob.class) {
+      return new SerialBlob((byte[]) convert(value, byte[].class));
+    } else if (type == Clob.class) {
+      return new SerialClob(value.toString().toCharArray());
+    } else if (type == InputStream.class) {
+      return new ByteArrayInputStream((byte[]) convert(value, byte[].class));
+    } else if (type == Reader.class) {
+      return new StringReader(value.toString());
+    }
+    throw new SQLException("Cannot convert buffered value of " + value.getClass().getName() + " to " + type.getName() + ".");
+  }
+
+  private static Object defaultPrimitive(Class<?> type) {
+    if (type == boolean.class) {
+      return Boolean.FALSE;
+    } else if (type == double.class) {
+      return 0d;
+    } else if (type == float.class) {
+      return 0f;
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == short.class) {
+      return (short) 0;
+    } else if (type == byte.class) {
+      return (byte) 0;
+    }
+    return 0;
+  }
+
+  private static Number toNumber(Object value) throws SQLException {
+    if (value instanceof Number) {
+      return (Number) value;
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? 1 : 0;
+    }
+    try {
+      return new BigDecimal(value.toString().trim());
+    } catch (NumberFormatException e) {
+      throw new SQLException("Cannot convert buffered value '" + value + "' to a number.", e);
+    }
+  }
+
+  private static Boolean toBoolean(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    } else if (value instanceof Number) {
+      return ((Number) value).intValue() != 0;
+    }
+    final String text = value.toString().trim();
+    return "true".equalsIgnoreCase(text) || "1".equals(text);
+  }
+
+  private static Object toSqlDate(Object value, Class<?> type) throws SQLException {
+    final long time;
+    if (value instanceof java.util.Date) {
+      time = ((java.util.Date) value).getTime();
+    } else if (value instanceof LocalDateTime) {
+      time = Timestamp.valueOf((LocalDateTime) value).getTime();
+    } else if (value instanceof LocalDate) {
+      time = Date.valueOf((LocalDate) value).getTime();
+    } else if (value instanceof LocalTime) {
+      time = Time.valueOf((LocalTime) value).getTime();
+    } else {
+      throw new SQLException("Cannot convert buffered value of " + value.getClass().getName() + " to " + type.getName() + ".");
+    }
+    if (type == Timestamp.class) {
+      Timestamp timestamp = new Timestamp(time);
+      if (value instanceof Timestamp) {
+        timestamp.setNanos(((Timestamp) value).getNanos());
+      }
+      return timestamp;
+    }
+    return type == Date.class ? new Date(time) : new Time(time);
+  }
+
+  private static Object toLocalDate(Object value, Class<?> type) throws SQLException {
+    final Timestamp timestamp = (Timestamp) toSqlDate(value, Timestamp.class);
+    if (type == LocalDateTime.class) {
+      return timestamp.toLocalDateTime();
+    }
+    return type == LocalDate.class ? timestamp.toLocalDateTime().toLocalDate() : timestamp.toLocalDateTime().toLocalTime();
+  }
+
+}
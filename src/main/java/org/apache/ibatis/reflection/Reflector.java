@@ -35,6 +35,7 @@ import java.util.Map.Entry;
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
 
@@ -62,6 +63,10 @@ public class Reflector {
 	private final Map<String, Class<?>> setTypes = new HashMap<>();
 	// get方法的返回值的类型 key是属性名，value是对应的 字节码对象
 	private final Map<String, Class<?>> getTypes = new HashMap<>();
+	// 基本类型属性的 setting 调用者，不需要装箱
+	private final Map<String, PrimitiveInvoker> primitiveSetters = new HashMap<>();
+	// 基本类型属性的 getting 调用者，不需要装箱
+	private final Map<String, PrimitiveInvoker> primitiveGetters = new HashMap<>();
 	// 默认的构造方法
 	private Constructor<?> defaultConstructor;
 	// 不区分大小写的属性
@@ -199,6 +204,9 @@ public class Reflector {
 			Type returnType = TypeParameterResolver.resolveReturnType(method, type);
 			// 添加到 getTypes 中
 			getTypes.put(name, typeToClass(returnType));
+			if (PrimitiveInvoker.isSupported(method.getReturnType())) {
+				primitiveGetters.put(name, PrimitiveInvoker.forGetter(method));
+			}
 		}
 	}
 
@@ -301,6 +309,9 @@ public class Reflector {
 			Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
 			// 添加到 Type 里面
 			setTypes.put(name, typeToClass(paramTypes[0]));
+			if (PrimitiveInvoker.isSupported(method.getParameterTypes()[0])) {
+				primitiveSetters.put(name, PrimitiveInvoker.forSetter(method));
+			}
 		}
 	}
 	// Type 转换成 class 字节码对象，寻找真正的类 TODO Type 还要再学习理解
@@ -366,6 +377,9 @@ public class Reflector {
 			setMethods.put(field.getName(), new SetFieldInvoker(field));
 			Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
 			setTypes.put(field.getName(), typeToClass(fieldType));
+			if (PrimitiveInvoker.isSupported(field.getType())) {
+				primitiveSetters.put(field.getName(), PrimitiveInvoker.forSetter(field));
+			}
 		}
 	}
 
@@ -375,6 +389,9 @@ public class Reflector {
 			getMethods.put(field.getName(), new GetFieldInvoker(field));
 			Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
 			getTypes.put(field.getName(), typeToClass(fieldType));
+			if (PrimitiveInvoker.isSupported(field.getType())) {
+				primitiveGetters.put(field.getName(), PrimitiveInvoker.forGetter(field));
+			}
 		}
 	}
 	/**
@@ -532,6 +549,28 @@ public class Reflector {
 		return method;
 	}
 
+	/**
+	 * Gets the unboxed setter of an {@code int}, {@code long}, {@code double} or {@code boolean} property.
+	 *
+	 * @param propertyName
+	 *            - the name of the property
+	 * @return the invoker, or null if the property is not writable or not of one of those types
+	 */
+	public PrimitiveInvoker getPrimitiveSetter(String propertyName) {
+		return primitiveSetters.get(propertyName);
+	}
+
+	/**
+	 * Gets the unboxed getter of an {@code int}, {@code long}, {@code double} or {@code boolean} property.
+	 *
+	 * @param propertyName
+	 *            - the name of the property
+	 * @return the invoker, or null if the property is not readable or not of one of those types
+	 */
+	public PrimitiveInvoker getPrimitiveGetter(String propertyName) {
+		return primitiveGetters.get(propertyName);
+	}
+
 	/**
 	 * Gets the type for a property setter
 	 *
@@ -0,0 +1,183 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Reads or writes an {@code int}, {@code long}, {@code double} or {@code boolean} property without boxing the value.
+ * <p>
+ * The underlying getter, setter or field is bound to a {@link MethodHandle} on first use.
+ * </p>
+ */
+// 基本类型属性的调用者，通过 MethodHandle 直接读写，避免装箱
+@IgnoreJreRequirement
+public final class PrimitiveInvoker {
+	// 对应的方法或字段
+	private final Member member;
+	// 是否为写操作
+	private final boolean setter;
+	// 基本类型
+	private final Class<?> type;
+	// 延迟绑定的 MethodHandle
+	private volatile MethodHandle handle;
+
+	private PrimitiveInvoker(Member member, boolean setter, Class<?> type) {
+		this.member = member;
+		this.setter = setter;
+		this.type = type;
+	}
+
+	/**
+	 * Returns true if values of {@code type} can be read and written by this invoker.
+	 */
+	public static boolean isSupported(Class<?> type) {
+		return type == int.class || type == long.class || type == double.class || type == boolean.class;
+	}
+
+	public static PrimitiveInvoker forGetter(Method method) {
+		return new PrimitiveInvoker(method, false, method.getReturnType());
+	}
+
+	public static PrimitiveInvoker forSetter(Method method) {
+		return new PrimitiveInvoker(method, true, method.getParameterTypes()[0]);
+	}
+
+	public static PrimitiveInvoker forGetter(Field field) {
+		return new PrimitiveInvoker(field, false, field.getType());
+	}
+
+	public static PrimitiveInvoker forSetter(Field field) {
+		return new PrimitiveInvoker(field, true, field.getType());
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public int getInt(Object target) {
+		try {
+			return (int) handle().invokeExact(target);
+		} catch (Throwable t) {
+			throw fail(target, t);
+		}
+	}
+
+	public long getLong(Object target) {
+		try {
+			return (long) handle().invokeExact(target);
+		} catch (Throwable t) {
+			throw fail(target, t);
+		}
+	}
+
+	public double getDouble(Object target) {
+		try {
+			return (double) handle().invokeExact(target);
+		} catch (Throwable t) {
+			throw fail(target, t);
+		}
+	}
+
+	public boolean getBoolean(Object target) {
+		try {
+			return (boolean) handle().invokeExact(target);
+		} catch (Throwable t) {
+			throw fail(target, t);
+		}
+	}
+
+	public void setInt(Object target, int value) {
+		try {
+			handle().invokeExact(target, value);
+		} catch (Throwable t) {
+			throw fail(target, t);
+		}
+	}
+
+	public void setLong(Object target, long value) {
+		try {
+			handle().invokeExact(target, value);
+		} catch (Throwable t) {
+			throw fail(target, t);
+		}
+	}
+
+	public void setDouble(Object target, double value) {
+		try {
+			handle().invokeExact(target, value);
+		} catch (Throwable t) {
+			throw fail(target, t);
+		}
+	}
+
+	public void setBoolean(Object target, boolean value) {
+		try {
+			handle().invokeExact(target, value);
+		} catch (Throwable t) {
+			throw fail(target, t);
+		}
+	}
+
+	// 绑定 MethodHandle，并统一为 (Object)type 或 (Object,type)void 的签名
+	private MethodHandle handle() {
+		MethodHandle result = handle;
+		if (result == null) {
+			try {
+				result = unreflect();
+			} catch (IllegalAccessException e) {
+				if (!Reflector.canControlMemberAccessible()) {
+					throw new ReflectionException("Could not access '" + member + "'. Cause: " + e, e);
+				}
+				((AccessibleObject) member).setAccessible(true);
+				try {
+					result = unreflect();
+				} catch (IllegalAccessException e2) {
+					throw new ReflectionException("Could not access '" + member + "'. Cause: " + e2, e2);
+				}
+			}
+			result = result.asType(setter ? MethodType.methodType(void.class, Object.class, type)
+					: MethodType.methodType(type, Object.class));
+			handle = result;
+		}
+		return result;
+	}
+
+	private MethodHandle unreflect() throws IllegalAccessException {
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		if (member instanceof Method) {
+			return lookup.unreflect((Method) member);
+		}
+		return setter ? lookup.unreflectSetter((Field) member) : lookup.unreflectGetter((Field) member);
+	}
+
+	private RuntimeException fail(Object target, Throwable t) {
+		if (t instanceof ReflectionException) {
+			return (ReflectionException) t;
+		}
+		return new ReflectionException("Could not " + (setter ? "set" : "get") + " '" + member.getName() + "' of '"
+				+ (target == null ? null : target.getClass().getName()) + "'. Cause: " + t, t);
+	}
+}
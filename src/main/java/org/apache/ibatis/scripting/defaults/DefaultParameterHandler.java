@@ -17,7 +17,9 @@ package org.apache.ibatis.scripting.defaults;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -26,8 +28,15 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.invoker.PrimitiveInvoker;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.PrimitiveBooleanTypeHandler;
+import org.apache.ibatis.type.PrimitiveDoubleTypeHandler;
+import org.apache.ibatis.type.PrimitiveIntTypeHandler;
+import org.apache.ibatis.type.PrimitiveLongTypeHandler;
+import org.apache.ibatis.type.PrimitiveTypeHandlers;
 import org.apache.ibatis.type.TypeException;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
@@ -74,6 +83,8 @@ public class DefaultParameterHandler implements ParameterHandler {
             value = null;
           } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
             value = parameterObject;
+          } else if (setPrimitiveParameter(ps, i + 1, parameterMapping)) {
+            continue;
           } else {
             MetaObject metaObject = configuration.newMetaObject(parameterObject);
             value = metaObject.getValue(propertyName);
@@ -95,4 +106,44 @@ public class DefaultParameterHandler implements ParameterHandler {
     }
   }
 
+  /**
+   * Binds an {@code int}, {@code long}, {@code double} or {@code boolean} bean property straight from its getter
+   * when the type handler of the mapping reads and writes that primitive type, so the value is never boxed.
+   *
+   * @return false if the parameter must be bound through {@link TypeHandler#setParameter}
+   */
+  private boolean setPrimitiveParameter(PreparedStatement ps, int index, ParameterMapping parameterMapping) {
+    final String propertyName = parameterMapping.getProperty();
+    if (parameterObject instanceof Map || parameterObject instanceof Collection || parameterObject instanceof ObjectWrapper
+        || propertyName.indexOf('.') >= 0 || propertyName.indexOf('[') >= 0
+        || configuration.getObjectWrapperFactory().hasWrapperFor(parameterObject)) {
+      return false;
+    }
+    final PrimitiveInvoker getter = configuration.getReflectorFactory().findForClass(parameterObject.getClass())
+        .getPrimitiveGetter(propertyName);
+    if (getter == null) {
+      return false;
+    }
+    final Class<?> type = getter.getType();
+    final TypeHandler<?> typeHandler = parameterMapping.getTypeHandler();
+    try {
+      if (!PrimitiveTypeHandlers.isPrimitiveTypeHandler(typeHandler, type)) {
+        return false;
+      } else if (type == int.class) {
+        ((PrimitiveIntTypeHandler) typeHandler).setIntParameter(ps, index, getter.getInt(parameterObject));
+      } else if (type == long.class) {
+        ((PrimitiveLongTypeHandler) typeHandler).setLongParameter(ps, index, getter.getLong(parameterObject));
+      } else if (type == double.class) {
+        ((PrimitiveDoubleTypeHandler) typeHandler).setDoubleParameter(ps, index, getter.getDouble(parameterObject));
+      } else if (type == boolean.class) {
+        ((PrimitiveBooleanTypeHandler) typeHandler).setBooleanParameter(ps, index, getter.getBoolean(parameterObject));
+      } else {
+        return false;
+      }
+    } catch (SQLException e) {
+      throw new TypeException("Could not set parameters for mapping: " + parameterMapping + ". Cause: " + e, e);
+    }
+    return true;
+  }
+
 }
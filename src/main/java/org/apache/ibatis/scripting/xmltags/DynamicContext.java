@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,6 +23,7 @@ import ognl.OgnlContext;
 import ognl.OgnlRuntime;
 import ognl.PropertyAccessor;
 
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 
@@ -40,6 +42,8 @@ public class DynamicContext {
   private final ContextMap bindings;
   private final StringBuilder sqlBuilder = new StringBuilder();
   private int uniqueNumber = 0;
+  private Map<String, ParameterMapping> preparedParameterMappings;
+  private boolean textSubstitution;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
     if (parameterObject != null && !(parameterObject instanceof Map)) {
@@ -73,6 +77,35 @@ public class DynamicContext {
     return uniqueNumber++;
   }
 
+  /**
+   * Registers the already resolved mapping of a <code>#{content}</code> token appended to this context, so that
+   * parsing the generated SQL does not build it again. The value must be bound under the mapping's property.
+   */
+  public void prepareParameterMapping(String content, ParameterMapping parameterMapping) {
+    if (preparedParameterMappings == null) {
+      preparedParameterMappings = new HashMap<>();
+    }
+    preparedParameterMappings.put(content, parameterMapping);
+  }
+
+  public Map<String, ParameterMapping> getPreparedParameterMappings() {
+    if (preparedParameterMappings == null) {
+      return Collections.emptyMap();
+    }
+    return preparedParameterMappings;
+  }
+
+  /**
+   * Records that a <code>${}</code> value was substituted into the generated SQL, which then cannot be reused.
+   */
+  public void markTextSubstitution() {
+    textSubstitution = true;
+  }
+
+  public boolean hasTextSubstitution() {
+    return textSubstitution;
+  }
+
   static class ContextMap extends HashMap<String, Object> {
     private static final long serialVersionUID = 2977601501966151582L;
 
@@ -15,11 +15,16 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.builder.SqlSourceBuilder;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -29,6 +34,14 @@ public class DynamicSqlSource implements SqlSource {
 
   private final Configuration configuration;
   private final SqlNode rootSqlNode;
+  private final Map<String, CompiledShape> compiledShapes = new LinkedHashMap<String, CompiledShape>(16, 0.75f, true) {
+    private static final long serialVersionUID = 6390417585263311475L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CompiledShape> eldest) {
+      return size() > configuration.getDynamicSqlShapeCacheSize();
+    }
+  };
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
@@ -39,9 +52,14 @@ public class DynamicSqlSource implements SqlSource {
   public BoundSql getBoundSql(Object parameterObject) {
     DynamicContext context = new DynamicContext(configuration, parameterObject);
     rootSqlNode.apply(context);
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    SqlSource sqlSource;
+    if (configuration.getDynamicSqlShapeCacheSize() > 0 && !context.hasTextSubstitution()) {
+      sqlSource = getCompiledSqlSource(context, parameterType);
+    } else {
+      SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+      sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings(), context.getPreparedParameterMappings());
+    }
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     for (Map.Entry<String, Object> entry : context.getBindings().entrySet()) {
       boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
@@ -49,4 +67,92 @@ public class DynamicSqlSource implements SqlSource {
     return boundSql;
   }
 
+  /**
+   * Without <code>${}</code> substitutions the generated SQL text is fully determined by the branches taken and the
+   * foreach sizes, so it is used as the key of the parsed shape; calls that substituted a <code>${}</code> are never
+   * cached, as every value would become a key of its own. Shapes are evicted least recently used first. A shape is
+   * reused only while the parameter type and the types of the bindings its parameter mappings were resolved from are
+   * unchanged.
+   * <p>
+   * The SqlNode tree is still applied on every call, since that is where the branches are decided and the bindings
+   * made; the cache only saves parsing the generated SQL and resolving its parameter mappings.
+   */
+  private SqlSource getCompiledSqlSource(DynamicContext context, Class<?> parameterType) {
+    final String sql = context.getSql();
+    final Map<String, Object> bindings = context.getBindings();
+    CompiledShape shape;
+    synchronized (compiledShapes) {
+      shape = compiledShapes.get(sql);
+    }
+    if (shape != null && shape.matches(parameterType, bindings, configuration)) {
+      return shape.sqlSource;
+    }
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    SqlSource sqlSource = sqlSourceParser.parse(sql, parameterType, bindings, context.getPreparedParameterMappings());
+    shape = new CompiledShape(parameterType, sqlSource, configuration.newMetaObject(bindings));
+    synchronized (compiledShapes) {
+      compiledShapes.put(sql, shape);
+    }
+    return sqlSource;
+  }
+
+  private static final class CompiledShape {
+
+    private final Class<?> parameterType;
+    private final SqlSource sqlSource;
+    private final String[] properties;
+    private final Class<?>[] boundTypes;
+    private final boolean bindingDependent;
+
+    CompiledShape(Class<?> parameterType, SqlSource sqlSource, MetaObject metaBindings) {
+      this.parameterType = parameterType;
+      this.sqlSource = sqlSource;
+      final List<ParameterMapping> parameterMappings = sqlSource.getBoundSql(null).getParameterMappings();
+      this.properties = new String[parameterMappings.size()];
+      this.boundTypes = new Class<?>[properties.length];
+      boolean dependent = false;
+      for (int i = 0; i < properties.length; i++) {
+        properties[i] = parameterMappings.get(i).getProperty();
+        boundTypes[i] = boundType(metaBindings, properties[i]);
+        dependent |= boundTypes[i] != null;
+      }
+      this.bindingDependent = dependent;
+    }
+
+    boolean matches(Class<?> parameterType, Map<String, Object> bindings, Configuration configuration) {
+      if (this.parameterType != parameterType) {
+        return false;
+      }
+      if (!bindingDependent && !hasBoundProperty(bindings)) {
+        // nothing was resolved from the bindings then and nothing would be now
+        return true;
+      }
+      final MetaObject metaBindings = configuration.newMetaObject(bindings);
+      for (int i = 0; i < properties.length; i++) {
+        if (boundTypes[i] != boundType(metaBindings, properties[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // same first step as MapWrapper.hasGetter, without creating a MetaObject
+    private boolean hasBoundProperty(Map<String, Object> bindings) {
+      for (String property : properties) {
+        if (property != null) {
+          final PropertyTokenizer prop = new PropertyTokenizer(property);
+          if (bindings.containsKey(prop.hasNext() ? prop.getIndexedName() : prop.getName())) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    // mirrors the additional parameter lookup of SqlSourceBuilder (issue #448)
+    private static Class<?> boundType(MetaObject metaBindings, String property) {
+      return property != null && metaBindings.hasGetter(property) ? metaBindings.getGetterType(property) : null;
+    }
+  }
+
 }
@@ -0,0 +1,48 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Evaluates the expressions of dynamic SQL: the tests of {@code <if>} and {@code <when>}, the collections of
+ * {@code <foreach>}, the values of {@code <bind>} and the <code>${}</code> substitutions.
+ * <p>
+ * The engine is chosen globally with the {@code expressionEngine} setting, or per language driver by overriding
+ * {@link XMLLanguageDriver#getExpressionEngine(org.apache.ibatis.session.Configuration)}. Implementations must be
+ * thread safe.
+ *
+ * @see OgnlExpressionEngine
+ * @see NativeExpressionEngine
+ */
+public interface ExpressionEngine {
+
+  /**
+   * @param expression the expression as written in the mapper
+   * @param root the bindings of the current {@link DynamicContext}
+   * @return the value of the expression
+   */
+  Object getValue(String expression, Object root);
+
+  /**
+   * Called by the {@link Configuration} the engine is installed in, before any expression is evaluated. Engines used
+   * by a language driver only are not installed and never receive it.
+   */
+  default void setConfiguration(Configuration configuration) {
+    // nothing to configure
+  }
+
+}
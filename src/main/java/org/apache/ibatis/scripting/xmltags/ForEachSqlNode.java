@@ -15,10 +15,16 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.builder.ParameterExpression;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
 
 /**
  * @author Clinton Begin
@@ -35,9 +41,25 @@ public class ForEachSqlNode implements SqlNode {
   private final String item;
   private final String index;
   private final Configuration configuration;
+  private final ItemTemplate itemTemplate;
+  private final Boolean padding;
 
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
-    this.evaluator = new ExpressionEvaluator();
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, new ExpressionEvaluator());
+  }
+
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator,
+      ExpressionEvaluator evaluator) {
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, evaluator, false);
+  }
+
+  /**
+   * @param padding whether to pad the collection to a bucket size by repeating its last element, or null to follow
+   *          {@link Configuration#isInListPadding()}, which is only meant for a {@code foreach} building an IN list
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator,
+      ExpressionEvaluator evaluator, Boolean padding) {
+    this.evaluator = evaluator;
     this.collectionExpression = collectionExpression;
     this.contents = contents;
     this.open = open;
@@ -46,15 +68,28 @@ public class ForEachSqlNode implements SqlNode {
     this.index = index;
     this.item = item;
     this.configuration = configuration;
+    this.itemTemplate = ItemTemplate.of(contents, item);
+    this.padding = padding;
   }
 
   @Override
   public boolean apply(DynamicContext context) {
     Map<String, Object> bindings = context.getBindings();
-    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
     if (!iterable.iterator().hasNext()) {
       return true;
     }
+    if (padding != null ? padding : configuration.isInListPadding()) {
+      iterable = pad(iterable, configuration.getInListChunkSize());
+    }
+    if (itemTemplate != null) {
+      applyOpen(context);
+      applyItemTemplate(context, iterable);
+      applyClose(context);
+      context.getBindings().remove(item);
+      context.getBindings().remove(index);
+      return true;
+    }
     boolean first = true;
     applyOpen(context);
     int i = 0;
@@ -89,6 +124,62 @@ public class ForEachSqlNode implements SqlNode {
     return true;
   }
 
+  /**
+   * Renders each element as the general loop would, but binds only its itemized name and hands the resolved
+   * parameter mapping to the context instead of wrapping the context and rewriting the body for every element.
+   */
+  private void applyItemTemplate(DynamicContext context, Iterable<?> iterable) {
+    boolean first = true;
+    for (Object o : iterable) {
+      // Issue #709
+      final Object value = o instanceof Map.Entry ? ((Map.Entry<?, ?>) o).getValue() : o;
+      final String property = itemTemplate.propertyPrefix + context.getUniqueNumber();
+      context.bind(property, value);
+      context.appendSql(first || separator == null ? "" : separator);
+      final String content = property + itemTemplate.attributes;
+      context.appendSql(itemTemplate.before + "#{" + content + "}" + itemTemplate.after);
+      context.prepareParameterMapping(content, new ParameterMapping.Builder(configuration, property,
+          value == null ? Object.class : value.getClass()).jdbcType(itemTemplate.jdbcType).build());
+      first = false;
+    }
+  }
+
+  /**
+   * Repeats the last element until the size reaches the next power of two, capped at {@code chunkSize}, so that
+   * varying sizes share a few SQL texts. Lists already longer than {@code chunkSize} are left as they are.
+   */
+  private static Iterable<?> pad(Iterable<?> iterable, int chunkSize) {
+    int size = 0;
+    if (iterable instanceof Collection) {
+      size = ((Collection<?>) iterable).size();
+    } else {
+      for (Object o : iterable) {
+        size++;
+      }
+    }
+    final int bucketSize = bucketSize(size, chunkSize);
+    if (bucketSize <= size) {
+      return iterable;
+    }
+    final List<Object> elements = new ArrayList<>(bucketSize);
+    for (Object o : iterable) {
+      elements.add(o);
+    }
+    final Object last = elements.get(size - 1);
+    while (elements.size() < bucketSize) {
+      elements.add(last);
+    }
+    return elements;
+  }
+
+  private static int bucketSize(int size, int chunkSize) {
+    if (chunkSize > 0 && size >= chunkSize) {
+      return size;
+    }
+    final int bucketSize = size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    return chunkSize > 0 ? Math.min(bucketSize, chunkSize) : bucketSize;
+  }
+
   private void applyIndex(DynamicContext context, Object o, int i) {
     if (index != null) {
       context.bind(index, o);
@@ -119,6 +210,66 @@ public class ForEachSqlNode implements SqlNode {
     return ITEM_PREFIX + item + "_" + i;
   }
 
+  /**
+   * A body made of static text holding a single <code>#{item}</code> token, with at most a {@code jdbcType}.
+   */
+  private static final class ItemTemplate {
+    private final String before;
+    private final String attributes;
+    private final String after;
+    private final String propertyPrefix;
+    private final JdbcType jdbcType;
+
+    private ItemTemplate(String before, String attributes, String after, String propertyPrefix, JdbcType jdbcType) {
+      this.before = before;
+      this.attributes = attributes;
+      this.after = after;
+      this.propertyPrefix = propertyPrefix;
+      this.jdbcType = jdbcType;
+    }
+
+    static ItemTemplate of(SqlNode contents, String item) {
+      if (contents instanceof MixedSqlNode) {
+        final List<SqlNode> nodes = ((MixedSqlNode) contents).getContents();
+        contents = nodes.size() == 1 ? nodes.get(0) : null;
+      }
+      if (item == null || !(contents instanceof StaticTextSqlNode)) {
+        return null;
+      }
+      final String text = ((StaticTextSqlNode) contents).getText();
+      final int start = text.indexOf("#{");
+      final int end = text.indexOf('}', start);
+      if (start < 0 || end < 0 || text.indexOf("#{", end) >= 0 || text.indexOf('\\') >= 0) {
+        return null;
+      }
+      final String content = text.substring(start + 2, end);
+      // same match as FilteredDynamicContext#appendSql, but a nested property or a ':' suffix is left to it
+      int nameStart = 0;
+      while (nameStart < content.length() && Character.isWhitespace(content.charAt(nameStart))) {
+        nameStart++;
+      }
+      final int nameEnd = nameStart + item.length();
+      if (!content.startsWith(item, nameStart)
+          || nameEnd < content.length() && content.charAt(nameEnd) != ',' && !Character.isWhitespace(content.charAt(nameEnd))) {
+        return null;
+      }
+      final JdbcType jdbcType;
+      try {
+        final ParameterExpression expression = new ParameterExpression(content);
+        final String jdbcTypeName = expression.get("jdbcType");
+        if (!item.equals(expression.get("property")) || expression.size() > (jdbcTypeName == null ? 1 : 2)) {
+          return null;
+        }
+        jdbcType = jdbcTypeName == null ? null : JdbcType.valueOf(jdbcTypeName);
+      } catch (RuntimeException e) {
+        // reported by the general path
+        return null;
+      }
+      return new ItemTemplate(text.substring(0, start), content.substring(nameEnd), text.substring(end + 1),
+          ITEM_PREFIX + item + "_", jdbcType);
+    }
+  }
+
   private static class FilteredDynamicContext extends DynamicContext {
     private final DynamicContext delegate;
     private final int index;
@@ -166,6 +317,21 @@ public class ForEachSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public void prepareParameterMapping(String content, ParameterMapping parameterMapping) {
+      delegate.prepareParameterMapping(content, parameterMapping);
+    }
+
+    @Override
+    public Map<String, ParameterMapping> getPreparedParameterMappings() {
+      return delegate.getPreparedParameterMappings();
+    }
+
+    @Override
+    public void markTextSubstitution() {
+      delegate.markTextSubstitution();
+    }
+
   }
 
 
@@ -213,6 +379,21 @@ public class ForEachSqlNode implements SqlNode {
     public int getUniqueNumber() {
       return delegate.getUniqueNumber();
     }
+
+    @Override
+    public void prepareParameterMapping(String content, ParameterMapping parameterMapping) {
+      delegate.prepareParameterMapping(content, parameterMapping);
+    }
+
+    @Override
+    public Map<String, ParameterMapping> getPreparedParameterMappings() {
+      return delegate.getPreparedParameterMappings();
+    }
+
+    @Override
+    public void markTextSubstitution() {
+      delegate.markTextSubstitution();
+    }
   }
 
 }
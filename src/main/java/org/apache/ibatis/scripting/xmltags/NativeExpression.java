@@ -0,0 +1,602 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * A compiled expression of the {@link NativeExpressionEngine}.
+ * <p>
+ * The parser and the property lookup are shared with {@link SimpleExpression}, which evaluates the subset of the
+ * syntax whose result is the same as OGNL's.
+ */
+final class NativeExpression {
+
+  /**
+   * Returned by the lenient lookups for a value OGNL would read differently than this class, or fail to read.
+   */
+  static final Object UNREADABLE = new Object();
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final String expression;
+  private final Node root;
+
+  private NativeExpression(String expression, Node root) {
+    this.expression = expression;
+    this.root = root;
+  }
+
+  /**
+   * Returns the compiled form of {@code expression}, or null if it uses syntax this engine does not support.
+   */
+  static NativeExpression compile(String expression) {
+    final Node node = parse(expression);
+    return node == null ? null : new NativeExpression(expression, node);
+  }
+
+  /**
+   * Returns the syntax tree of {@code expression}, or null if it uses syntax this engine does not support.
+   */
+  static Node parse(String expression) {
+    final List<Object> tokens = tokenize(expression);
+    if (tokens == null || tokens.isEmpty()) {
+      return null;
+    }
+    final Parser parser = new Parser(tokens);
+    final Node node = parser.or();
+    return parser.atEnd() ? node : null;
+  }
+
+  Object evaluate(Object bindings, ReflectorFactory reflectorFactory) {
+    try {
+      return root.evaluate(bindings, reflectorFactory);
+    } catch (BuilderException e) {
+      throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e.getMessage(), e);
+    }
+  }
+
+  //
+  // NODES
+  //
+
+  interface Node {
+    Object evaluate(Object bindings, ReflectorFactory reflectorFactory);
+  }
+
+  static final class Literal implements Node {
+    final Object value;
+    // false for a string OGNL reads otherwise: a single quoted character or an escape sequence
+    final boolean ognlValue;
+
+    Literal(Object value) {
+      this(value, true);
+    }
+
+    Literal(Object value, boolean ognlValue) {
+      this.value = value;
+      this.ognlValue = ognlValue;
+    }
+
+    @Override
+    public Object evaluate(Object bindings, ReflectorFactory reflectorFactory) {
+      return value;
+    }
+  }
+
+  static final class Path implements Node {
+    final String[] names;
+
+    Path(String[] names) {
+      this.names = names;
+    }
+
+    @Override
+    public Object evaluate(Object bindings, ReflectorFactory reflectorFactory) {
+      return readPath(bindings, names, reflectorFactory, false);
+    }
+  }
+
+  static final class Size implements Node {
+    final Path target;
+    // size, length or isEmpty
+    final String method;
+    private final boolean empty;
+
+    Size(Path target, String method) {
+      this.target = target;
+      this.method = method;
+      this.empty = "isEmpty".equals(method);
+    }
+
+    @Override
+    public Object evaluate(Object bindings, ReflectorFactory reflectorFactory) {
+      final Object value = target.evaluate(bindings, reflectorFactory);
+      final int size;
+      if (value instanceof Collection) {
+        size = ((Collection<?>) value).size();
+      } else if (value instanceof Map) {
+        size = ((Map<?, ?>) value).size();
+      } else if (value instanceof CharSequence) {
+        size = ((CharSequence) value).length();
+      } else if (value != null && value.getClass().isArray()) {
+        size = Array.getLength(value);
+      } else {
+        throw new BuilderException("Cannot get the size of " + (value == null ? "null" : "a " + value.getClass().getName()) + ".");
+      }
+      return empty ? (Object) (size == 0) : (Object) size;
+    }
+  }
+
+  static final class Not implements Node {
+    private final Node operand;
+
+    Not(Node operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    public Object evaluate(Object bindings, ReflectorFactory reflectorFactory) {
+      return !isTrue(operand.evaluate(bindings, reflectorFactory));
+    }
+  }
+
+  static final class Logical implements Node {
+    final Node[] operands;
+    final boolean and;
+
+    Logical(Node[] operands, boolean and) {
+      this.operands = operands;
+      this.and = and;
+    }
+
+    @Override
+    public Object evaluate(Object bindings, ReflectorFactory reflectorFactory) {
+      for (Node operand : operands) {
+        if (isTrue(operand.evaluate(bindings, reflectorFactory)) != and) {
+          return !and;
+        }
+      }
+      return and;
+    }
+  }
+
+  static final class Comparison implements Node {
+    final Node left;
+    final String operator;
+    final Node right;
+
+    Comparison(Node left, String operator, Node right) {
+      this.left = left;
+      this.operator = operator;
+      this.right = right;
+    }
+
+    @Override
+    public Object evaluate(Object bindings, ReflectorFactory reflectorFactory) {
+      final Object leftValue = left.evaluate(bindings, reflectorFactory);
+      final Object rightValue = right.evaluate(bindings, reflectorFactory);
+      switch (operator) {
+        case "==":
+          return isEqual(leftValue, rightValue);
+        case "!=":
+          return !isEqual(leftValue, rightValue);
+        case "<":
+          return compare(leftValue, rightValue) < 0;
+        case "<=":
+          return compare(leftValue, rightValue) <= 0;
+        case ">":
+          return compare(leftValue, rightValue) > 0;
+        default:
+          return compare(leftValue, rightValue) >= 0;
+      }
+    }
+  }
+
+  //
+  // VALUES
+  //
+
+  // same truthiness as ExpressionEvaluator#evaluateBoolean
+  private static boolean isTrue(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if (value instanceof Number) {
+      return toBigDecimal((Number) value).signum() != 0;
+    }
+    return value != null;
+  }
+
+  private static boolean isEqual(Object left, Object right) {
+    if (left == right) {
+      return true;
+    } else if (left == null || right == null) {
+      return false;
+    } else if (left instanceof Number && right instanceof Number) {
+      return compareNumbers((Number) left, (Number) right) == 0;
+    } else if (left instanceof Enum && right instanceof String) {
+      return ((Enum<?>) left).name().equals(right);
+    } else if (left instanceof String && right instanceof Enum) {
+      return ((Enum<?>) right).name().equals(left);
+    } else if (left instanceof Character || right instanceof Character) {
+      return left.toString().equals(right.toString());
+    }
+    return left.equals(right);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static int compare(Object left, Object right) {
+    if (left instanceof Number && right instanceof Number) {
+      return compareNumbers((Number) left, (Number) right);
+    } else if (left instanceof Comparable && right != null && left.getClass() == right.getClass()) {
+      return ((Comparable) left).compareTo(right);
+    }
+    throw new BuilderException("Cannot compare " + describe(left) + " with " + describe(right) + ".");
+  }
+
+  private static int compareNumbers(Number left, Number right) {
+    if (isIntegral(left) && isIntegral(right)) {
+      return Long.compare(left.longValue(), right.longValue());
+    }
+    return toBigDecimal(left).compareTo(toBigDecimal(right));
+  }
+
+  private static boolean isIntegral(Number number) {
+    return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+  }
+
+  private static BigDecimal toBigDecimal(Number number) {
+    if (number instanceof BigDecimal) {
+      return (BigDecimal) number;
+    } else if (number instanceof BigInteger) {
+      return new BigDecimal((BigInteger) number);
+    } else if (isIntegral(number)) {
+      return BigDecimal.valueOf(number.longValue());
+    }
+    return new BigDecimal(String.valueOf(number));
+  }
+
+  private static String describe(Object value) {
+    return value == null ? "null" : "'" + value + "' (" + value.getClass().getName() + ")";
+  }
+
+  /**
+   * Reads a property path from the bindings the way OGNL reads it with the accessors MyBatis installs. A lenient read
+   * returns {@link #UNREADABLE} where a strict one fails with a {@link BuilderException}, except when a getter throws:
+   * it has run by then and reading the path again would call it twice.
+   */
+  static Object readPath(Object bindings, String[] names, ReflectorFactory reflectorFactory, boolean lenient) {
+    Object value = readBinding(bindings, names[0], reflectorFactory, lenient);
+    for (int i = 1; i < names.length && value != UNREADABLE; i++) {
+      if (value == null) {
+        if (lenient) {
+          return UNREADABLE;
+        }
+        throw new BuilderException("'" + names[i - 1] + "' is null when reading '" + names[i] + "'.");
+      }
+      value = readProperty(value, names[i], reflectorFactory, lenient);
+    }
+    return value;
+  }
+
+  // same lookup as DynamicContext.ContextAccessor
+  private static Object readBinding(Object bindings, String name, ReflectorFactory reflectorFactory, boolean lenient) {
+    if (!(bindings instanceof DynamicContext.ContextMap)) {
+      if (bindings == null) {
+        if (lenient) {
+          return UNREADABLE;
+        }
+        throw new BuilderException("The root object is null when reading '" + name + "'.");
+      }
+      return readProperty(bindings, name, reflectorFactory, lenient);
+    }
+    final Map<?, ?> map = (Map<?, ?>) bindings;
+    final Object result = map.get(name);
+    if (result != null || map.containsKey(name)) {
+      return result;
+    }
+    final Object parameterObject = map.get(DynamicContext.PARAMETER_OBJECT_KEY);
+    if (parameterObject instanceof Map) {
+      return ((Map<?, ?>) parameterObject).get(name);
+    }
+    return null;
+  }
+
+  // pseudo-properties follow OGNL's MapPropertyAccessor, ListPropertyAccessor and ArrayPropertyAccessor
+  private static Object readProperty(Object target, String name, ReflectorFactory reflectorFactory, boolean lenient) {
+    if (target instanceof Map) {
+      final Map<?, ?> map = (Map<?, ?>) target;
+      switch (name) {
+        case "size":
+          return map.size();
+        case "isEmpty":
+          return map.isEmpty();
+        case "keys":
+        case "keySet":
+          return map.keySet();
+        case "values":
+          return map.values();
+        default:
+          return map.get(name);
+      }
+    } else if (target instanceof Collection && ("size".equals(name) || "isEmpty".equals(name))) {
+      final Collection<?> collection = (Collection<?>) target;
+      return "size".equals(name) ? (Object) collection.size() : (Object) collection.isEmpty();
+    } else if (target.getClass().isArray() && "length".equals(name)) {
+      return Array.getLength(target);
+    } else if (lenient && (target instanceof Iterator || target instanceof Enumeration || target instanceof Class)) {
+      // OGNL has dedicated accessors for these
+      return UNREADABLE;
+    }
+    final Reflector reflector = reflectorFactory.findForClass(target.getClass());
+    if (!reflector.hasGetter(name)) {
+      if (lenient) {
+        return UNREADABLE;
+      }
+      throw new BuilderException("There is no getter for property named '" + name + "' in '" + target.getClass().getName() + "'.");
+    }
+    try {
+      return reflector.getGetInvoker(name).invoke(target, NO_ARGUMENTS);
+    } catch (Exception e) {
+      throw new BuilderException("Could not read property '" + name + "' of '" + target.getClass().getName() + "'. Cause: " + e, e);
+    }
+  }
+
+  //
+  // PARSING
+  //
+
+  private static final class Parser {
+    private final List<Object> tokens;
+    private int position;
+
+    Parser(List<Object> tokens) {
+      this.tokens = tokens;
+    }
+
+    boolean atEnd() {
+      return position >= tokens.size();
+    }
+
+    private Object peek() {
+      return atEnd() ? null : tokens.get(position);
+    }
+
+    private boolean accept(String symbol) {
+      if (symbol.equals(peek())) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    Node or() {
+      return logical(false);
+    }
+
+    private Node logical(boolean and) {
+      final List<Node> operands = new ArrayList<>();
+      do {
+        final Node operand = and ? not() : logical(true);
+        if (operand == null) {
+          return null;
+        }
+        operands.add(operand);
+      } while (accept(and ? "&&" : "||"));
+      return operands.size() == 1 ? operands.get(0) : new Logical(operands.toArray(new Node[operands.size()]), and);
+    }
+
+    private Node not() {
+      if (accept("!")) {
+        final Node operand = not();
+        return operand == null ? null : new Not(operand);
+      }
+      return comparison();
+    }
+
+    private Node comparison() {
+      final Node left = primary();
+      if (left == null) {
+        return null;
+      }
+      final Object operator = peek();
+      if ("==".equals(operator) || "!=".equals(operator) || "<".equals(operator)
+          || "<=".equals(operator) || ">".equals(operator) || ">=".equals(operator)) {
+        position++;
+        final Node right = primary();
+        return right == null ? null : new Comparison(left, (String) operator, right);
+      }
+      return left;
+    }
+
+    private Node primary() {
+      if (atEnd()) {
+        return null;
+      }
+      if (accept("(")) {
+        final Node node = or();
+        return node != null && accept(")") ? node : null;
+      }
+      final Object token = tokens.get(position++);
+      if (token instanceof Literal) {
+        return (Literal) token;
+      } else if (!(token instanceof Identifier)) {
+        return null;
+      }
+      final List<String> names = new ArrayList<>();
+      names.add(((Identifier) token).name);
+      Node node = null;
+      while (accept(".")) {
+        final Object next = peek();
+        if (!(next instanceof Identifier)) {
+          return null;
+        }
+        position++;
+        final String name = ((Identifier) next).name;
+        if (!accept("(")) {
+          names.add(name);
+          continue;
+        }
+        if (!accept(")") || !("size".equals(name) || "length".equals(name) || "isEmpty".equals(name))) {
+          return null;
+        }
+        node = new Size(new Path(names.toArray(new String[names.size()])), name);
+        break;
+      }
+      return node != null ? node : new Path(names.toArray(new String[names.size()]));
+    }
+  }
+
+  private static final class Identifier {
+    private final String name;
+
+    Identifier(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Splits the expression into {@link Identifier}s, {@link Literal}s and operator strings, or returns null on
+   * anything this engine does not support.
+   */
+  private static List<Object> tokenize(String expression) {
+    final List<Object> tokens = new ArrayList<>();
+    final int length = expression.length();
+    int i = 0;
+    while (i < length) {
+      final char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int end = i + 1;
+        while (end < length && Character.isJavaIdentifierPart(expression.charAt(end))) {
+          end++;
+        }
+        final Object word = word(expression.substring(i, end));
+        if (word == null) {
+          return null;
+        }
+        tokens.add(word);
+        i = end;
+      } else if (Character.isDigit(c)) {
+        int end = i + 1;
+        while (end < length && (Character.isDigit(expression.charAt(end))
+            || expression.charAt(end) == '.' && end + 1 < length && Character.isDigit(expression.charAt(end + 1)))) {
+          end++;
+        }
+        if (end < length && Character.isJavaIdentifierPart(expression.charAt(end))) {
+          return null;
+        }
+        final String number = expression.substring(i, end);
+        tokens.add(new Literal(number.indexOf('.') >= 0 ? new BigDecimal(number) : toInteger(number)));
+        i = end;
+      } else if (c == '\'' || c == '"') {
+        final StringBuilder value = new StringBuilder();
+        boolean escaped = false;
+        int end = i + 1;
+        while (end < length && expression.charAt(end) != c) {
+          if (expression.charAt(end) == '\\' && end + 1 < length) {
+            escaped = true;
+            end++;
+          }
+          value.append(expression.charAt(end++));
+        }
+        if (end >= length) {
+          return null;
+        }
+        // a single character between single quotes is a Character in OGNL
+        tokens.add(new Literal(value.toString(), !escaped && !(c == '\'' && end == i + 2)));
+        i = end + 1;
+      } else {
+        final String twoChars = i + 1 < length ? expression.substring(i, i + 2) : "";
+        if ("==".equals(twoChars) || "!=".equals(twoChars) || "<=".equals(twoChars) || ">=".equals(twoChars)
+            || "&&".equals(twoChars) || "||".equals(twoChars)) {
+          tokens.add(twoChars);
+          i += 2;
+        } else if ("<>!().".indexOf(c) >= 0) {
+          tokens.add(String.valueOf(c));
+          i++;
+        } else {
+          return null;
+        }
+      }
+    }
+    return tokens;
+  }
+
+  private static Object word(String word) {
+    switch (word) {
+      case "and":
+        return "&&";
+      case "or":
+        return "||";
+      case "not":
+        return "!";
+      case "eq":
+        return "==";
+      case "neq":
+        return "!=";
+      case "lt":
+        return "<";
+      case "lte":
+        return "<=";
+      case "gt":
+        return ">";
+      case "gte":
+        return ">=";
+      case "null":
+        return new Literal(null);
+      case "true":
+        return new Literal(Boolean.TRUE);
+      case "false":
+        return new Literal(Boolean.FALSE);
+      case "in":
+      case "instanceof":
+      case "new":
+      case "bor":
+      case "xor":
+      case "band":
+      case "shl":
+      case "shr":
+      case "ushr":
+        return null;
+      default:
+        return new Identifier(word);
+    }
+  }
+
+  private static Number toInteger(String number) {
+    if (number.length() > 18) {
+      return new BigDecimal(number);
+    }
+    final long value = Long.parseLong(number);
+    return value <= Integer.MAX_VALUE ? (Number) (int) value : (Number) value;
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * An {@link ExpressionEngine} that evaluates the expression syntax mappers commonly use without OGNL, reading
+ * properties through MyBatis' own {@link org.apache.ibatis.reflection.Reflector} cache.
+ * <p>
+ * Supported syntax:
+ * <ul>
+ * <li>property paths ({@code author.name}); maps are read by key and beans through their getters or fields</li>
+ * <li>{@code size()}, {@code length()} and {@code isEmpty()} on collections, maps, arrays and strings</li>
+ * <li>{@code null}, {@code true}, {@code false}, integer and decimal numbers, and quoted strings</li>
+ * <li>{@code == != < <= > >=} and their {@code eq neq lt lte gt gte} aliases</li>
+ * <li>{@code and or not} (or {@code && || !}) and parentheses</li>
+ * </ul>
+ * Numbers compare by value whatever their types, enums compare equal to their name, and a string is never equal to a
+ * number (unlike OGNL, {@code 0 == ''} is false). Any other syntax is handed to OGNL.
+ */
+public class NativeExpressionEngine implements ExpressionEngine {
+
+  private static final Object NOT_NATIVE = new Object();
+
+  private final ReflectorFactory reflectorFactory;
+  private final Map<String, Object> expressionCache = new ConcurrentHashMap<>();
+  private volatile Configuration configuration;
+  private volatile ReflectorFactory localReflectorFactory;
+
+  /**
+   * Creates an engine reading properties through the {@link ReflectorFactory} of the configuration it is installed
+   * in, or through one of its own when it is only used by a language driver.
+   */
+  public NativeExpressionEngine() {
+    this(null);
+  }
+
+  /**
+   * Creates an engine reading properties through the given factory whatever configuration it is installed in.
+   */
+  public NativeExpressionEngine(ReflectorFactory reflectorFactory) {
+    this.reflectorFactory = reflectorFactory;
+  }
+
+  @Override
+  public Object getValue(String expression, Object root) {
+    Object compiled = expressionCache.get(expression);
+    if (compiled == null) {
+      compiled = NativeExpression.compile(expression);
+      if (compiled == null) {
+        compiled = NOT_NATIVE;
+      }
+      expressionCache.put(expression, compiled);
+    }
+    if (compiled == NOT_NATIVE) {
+      return OgnlCache.getValue(expression, root);
+    }
+    return ((NativeExpression) compiled).evaluate(root, getReflectorFactory());
+  }
+
+  @Override
+  public void setConfiguration(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  private ReflectorFactory getReflectorFactory() {
+    if (reflectorFactory != null) {
+      return reflectorFactory;
+    }
+    final Configuration configuration = this.configuration;
+    if (configuration != null) {
+      return configuration.getReflectorFactory();
+    }
+    ReflectorFactory factory = localReflectorFactory;
+    if (factory == null) {
+      factory = new DefaultReflectorFactory();
+      localReflectorFactory = factory;
+    }
+    return factory;
+  }
+
+}
@@ -0,0 +1,75 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The default {@link ExpressionEngine}, evaluating expressions with OGNL through {@link OgnlCache}.
+ * <p>
+ * When installed in a configuration with {@code simpleExpressionFastPath} enabled, expressions of the shapes
+ * described in {@link SimpleExpression} are evaluated without OGNL as long as their values allow it, reading
+ * properties through the configuration's {@link org.apache.ibatis.reflection.ReflectorFactory}.
+ */
+public class OgnlExpressionEngine implements ExpressionEngine {
+
+  private static final Object NOT_SIMPLE = new Object();
+
+  private final Map<String, Object> simpleExpressionCache = new ConcurrentHashMap<>();
+  private volatile Configuration configuration;
+
+  @Override
+  public Object getValue(String expression, Object root) {
+    final Configuration configuration = this.configuration;
+    if (configuration != null && configuration.isSimpleExpressionFastPath()) {
+      final Object simpleExpression = getSimpleExpression(expression);
+      if (simpleExpression != NOT_SIMPLE) {
+        final Object value;
+        try {
+          value = ((SimpleExpression) simpleExpression).evaluate(root, configuration.getReflectorFactory());
+        } catch (BuilderException e) {
+          throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e.getMessage(), e);
+        }
+        if (value != SimpleExpression.UNSUPPORTED) {
+          return value;
+        }
+      }
+    }
+    return OgnlCache.getValue(expression, root);
+  }
+
+  @Override
+  public void setConfiguration(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  private Object getSimpleExpression(String expression) {
+    Object simpleExpression = simpleExpressionCache.get(expression);
+    if (simpleExpression == null) {
+      simpleExpression = SimpleExpression.compile(expression);
+      if (simpleExpression == null) {
+        simpleExpression = NOT_SIMPLE;
+      }
+      simpleExpressionCache.put(expression, simpleExpression);
+    }
+    return simpleExpression;
+  }
+
+}
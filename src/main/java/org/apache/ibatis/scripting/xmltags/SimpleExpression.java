@@ -0,0 +1,259 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.scripting.xmltags.NativeExpression.Comparison;
+import org.apache.ibatis.scripting.xmltags.NativeExpression.Literal;
+import org.apache.ibatis.scripting.xmltags.NativeExpression.Logical;
+import org.apache.ibatis.scripting.xmltags.NativeExpression.Node;
+import org.apache.ibatis.scripting.xmltags.NativeExpression.Path;
+import org.apache.ibatis.scripting.xmltags.NativeExpression.Size;
+
+/**
+ * Evaluates the handful of expression shapes that make up most dynamic SQL tests without going through OGNL:
+ * a property path ({@code a.b}), comparisons of a path with {@code null} or a string literal, comparisons of a
+ * path or of {@code path.size()} with an integer literal, and chains of those joined only by {@code and} or only
+ * by {@code or}.
+ * <p>
+ * Expressions are parsed by {@link NativeExpression} and properties read with its lenient lookup. Whenever a value
+ * falls outside what is handled here (an OGNL conversion, a missing getter...) {@link #evaluate} returns
+ * {@link #UNSUPPORTED} and the caller evaluates the expression with OGNL instead. A getter that throws is reported
+ * as is, since handing the expression to OGNL would call it a second time.
+ *
+ * @see OgnlExpressionEngine
+ */
+final class SimpleExpression {
+
+  static final Object UNSUPPORTED = NativeExpression.UNREADABLE;
+
+  private final Term[] terms;
+  private final boolean conjunction;
+
+  private SimpleExpression(Term[] terms, boolean conjunction) {
+    this.terms = terms;
+    this.conjunction = conjunction;
+  }
+
+  /**
+   * Returns the compiled form of {@code expression}, or null if it is not one of the supported shapes.
+   */
+  static SimpleExpression compile(String expression) {
+    final Node node = NativeExpression.parse(expression);
+    if (node == null) {
+      return null;
+    }
+    final Node[] operands = node instanceof Logical ? ((Logical) node).operands : new Node[] { node };
+    final Term[] terms = new Term[operands.length];
+    for (int i = 0; i < terms.length; i++) {
+      terms[i] = term(operands[i], operands.length == 1);
+      if (terms[i] == null) {
+        return null;
+      }
+    }
+    return new SimpleExpression(terms, !(node instanceof Logical) || ((Logical) node).and);
+  }
+
+  /**
+   * Returns the value of the expression, or {@link #UNSUPPORTED} if it must be evaluated by OGNL.
+   */
+  Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+    if (terms.length == 1) {
+      return terms[0].evaluate(root, reflectorFactory);
+    }
+    for (Term term : terms) {
+      final Object value = term.evaluate(root, reflectorFactory);
+      if (value == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      if ((Boolean) value != conjunction) {
+        return value;
+      }
+    }
+    return conjunction;
+  }
+
+  private static Term term(Node node, boolean alone) {
+    if (node instanceof Path) {
+      // truthiness of arbitrary values within a chain is left to OGNL
+      return alone ? new PathTerm(((Path) node).names) : null;
+    } else if (!(node instanceof Comparison)) {
+      return null;
+    }
+    final Comparison comparison = (Comparison) node;
+    Node left = comparison.left;
+    Node right = comparison.right;
+    String operator = comparison.operator;
+    if (right instanceof Path || right instanceof Size) {
+      // null != x
+      left = comparison.right;
+      right = comparison.left;
+      operator = mirror(operator);
+    }
+    if (!(right instanceof Literal) || !((Literal) right).ognlValue) {
+      return null;
+    }
+    final Object literal = ((Literal) right).value;
+    final boolean equality = "==".equals(operator) || "!=".equals(operator);
+    final boolean integer = literal instanceof Integer || literal instanceof Long;
+    if (left instanceof Path) {
+      final String[] path = ((Path) left).names;
+      if (literal == null && equality) {
+        return new NullTerm(path, "==".equals(operator));
+      } else if (literal instanceof String && equality) {
+        return new StringTerm(path, (String) literal, "==".equals(operator));
+      } else if (integer) {
+        return new NumberTerm(path, false, operator, ((Number) literal).longValue());
+      }
+    } else if (left instanceof Size && "size".equals(((Size) left).method) && integer) {
+      return new NumberTerm(((Size) left).target.names, true, operator, ((Number) literal).longValue());
+    }
+    return null;
+  }
+
+  private static String mirror(String operator) {
+    switch (operator) {
+      case ">":
+        return "<";
+      case ">=":
+        return "<=";
+      case "<":
+        return ">";
+      case "<=":
+        return ">=";
+      default:
+        return operator;
+    }
+  }
+
+  private static Object readPath(Object root, String[] path, ReflectorFactory reflectorFactory) {
+    return NativeExpression.readPath(root, path, reflectorFactory, true);
+  }
+
+  //
+  // TERMS
+  //
+
+  private interface Term {
+    Object evaluate(Object root, ReflectorFactory reflectorFactory);
+  }
+
+  private static final class PathTerm implements Term {
+    private final String[] path;
+
+    PathTerm(String[] path) {
+      this.path = path;
+    }
+
+    @Override
+    public Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      return readPath(root, path, reflectorFactory);
+    }
+  }
+
+  private static final class NullTerm implements Term {
+    private final String[] path;
+    private final boolean equal;
+
+    NullTerm(String[] path, boolean equal) {
+      this.path = path;
+      this.equal = equal;
+    }
+
+    @Override
+    public Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      final Object value = readPath(root, path, reflectorFactory);
+      if (value == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      return (value == null) == equal;
+    }
+  }
+
+  private static final class StringTerm implements Term {
+    private final String[] path;
+    private final String literal;
+    private final boolean equal;
+
+    StringTerm(String[] path, String literal, boolean equal) {
+      this.path = path;
+      this.literal = literal;
+      this.equal = equal;
+    }
+
+    @Override
+    public Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      final Object value = readPath(root, path, reflectorFactory);
+      if (value == null) {
+        return !equal;
+      } else if (value instanceof String) {
+        return literal.equals(value) == equal;
+      }
+      // OGNL converts numbers, characters... before comparing (e.g. 0 == '')
+      return UNSUPPORTED;
+    }
+  }
+
+  private static final class NumberTerm implements Term {
+    private final String[] path;
+    private final boolean size;
+    private final String operator;
+    private final long literal;
+
+    NumberTerm(String[] path, boolean size, String operator, long literal) {
+      this.path = path;
+      this.size = size;
+      this.operator = operator;
+      this.literal = literal;
+    }
+
+    @Override
+    public Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      final Object value = readPath(root, path, reflectorFactory);
+      final long number;
+      if (size && value instanceof Collection) {
+        number = ((Collection<?>) value).size();
+      } else if (size && value instanceof Map) {
+        number = ((Map<?, ?>) value).size();
+      } else if (!size && (value instanceof Integer || value instanceof Long
+          || value instanceof Short || value instanceof Byte)) {
+        number = ((Number) value).longValue();
+      } else if (!size && value == null && ("==".equals(operator) || "!=".equals(operator))) {
+        return "!=".equals(operator);
+      } else {
+        return UNSUPPORTED;
+      }
+      switch (operator) {
+        case "==":
+          return number == literal;
+        case "!=":
+          return number != literal;
+        case ">":
+          return number > literal;
+        case ">=":
+          return number >= literal;
+        case "<":
+          return number < literal;
+        default:
+          return number <= literal;
+      }
+    }
+  }
+
+}
@@ -25,6 +25,10 @@ public class StaticTextSqlNode implements SqlNode {
     this.text = text;
   }
 
+  String getText() {
+    return text;
+  }
+
   @Override
   public boolean apply(DynamicContext context) {
     context.appendSql(text);
@@ -28,14 +28,24 @@ import org.apache.ibatis.type.SimpleTypeRegistry;
 public class TextSqlNode implements SqlNode {
   private final String text;
   private final Pattern injectionFilter;
+  private final ExpressionEvaluator evaluator;
 
   public TextSqlNode(String text) {
     this(text, null);
   }
 
   public TextSqlNode(String text, Pattern injectionFilter) {
+    this(text, injectionFilter, new ExpressionEvaluator());
+  }
+
+  public TextSqlNode(String text, Pattern injectionFilter, ExpressionEvaluator evaluator) {
     this.text = text;
     this.injectionFilter = injectionFilter;
+    this.evaluator = evaluator;
+  }
+
+  String getText() {
+    return text;
   }
 
   public boolean isDynamic() {
@@ -47,7 +57,7 @@ public class TextSqlNode implements SqlNode {
 
   @Override
   public boolean apply(DynamicContext context) {
-    GenericTokenParser parser = createParser(new BindingTokenParser(context, injectionFilter));
+    GenericTokenParser parser = createParser(new BindingTokenParser(context, injectionFilter, evaluator));
     context.appendSql(parser.parse(text));
     return true;
   }
@@ -60,10 +70,12 @@ public class TextSqlNode implements SqlNode {
 
     private DynamicContext context;
     private Pattern injectionFilter;
+    private ExpressionEvaluator evaluator;
 
-    public BindingTokenParser(DynamicContext context, Pattern injectionFilter) {
+    public BindingTokenParser(DynamicContext context, Pattern injectionFilter, ExpressionEvaluator evaluator) {
       this.context = context;
       this.injectionFilter = injectionFilter;
+      this.evaluator = evaluator;
     }
 
     @Override
@@ -74,7 +86,8 @@ public class TextSqlNode implements SqlNode {
       } else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
         context.getBindings().put("value", parameter);
       }
-      Object value = OgnlCache.getValue(content, context.getBindings());
+      Object value = evaluator.getValue(content, context.getBindings());
+      context.markTextSubstitution();
       String srtValue = value == null ? "" : String.valueOf(value); // issue #274 return "" instead of "null"
       checkInjection(srtValue);
       return srtValue;
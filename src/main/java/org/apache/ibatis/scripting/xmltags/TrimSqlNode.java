@@ -22,6 +22,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.StringTokenizer;
 
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -108,6 +109,21 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public void prepareParameterMapping(String content, ParameterMapping parameterMapping) {
+      delegate.prepareParameterMapping(content, parameterMapping);
+    }
+
+    @Override
+    public Map<String, ParameterMapping> getPreparedParameterMappings() {
+      return delegate.getPreparedParameterMappings();
+    }
+
+    @Override
+    public void markTextSubstitution() {
+      delegate.markTextSubstitution();
+    }
+
     @Override
     public void appendSql(String sql) {
       sqlBuffer.append(sql);
@@ -40,7 +40,7 @@ public class XMLLanguageDriver implements LanguageDriver {
 
   @Override
   public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
-    XMLScriptBuilder builder = new XMLScriptBuilder(configuration, script, parameterType);
+    XMLScriptBuilder builder = new XMLScriptBuilder(configuration, script, parameterType, getExpressionEngine(configuration));
     return builder.parseScriptNode();
   }
 
@@ -53,7 +53,7 @@ public class XMLLanguageDriver implements LanguageDriver {
     } else {
       // issue #127
       script = PropertyParser.parse(script, configuration.getVariables());
-      TextSqlNode textSqlNode = new TextSqlNode(script);
+      TextSqlNode textSqlNode = new TextSqlNode(script, null, new ExpressionEvaluator(getExpressionEngine(configuration)));
       if (textSqlNode.isDynamic()) {
         return new DynamicSqlSource(configuration, textSqlNode);
       } else {
@@ -62,4 +62,12 @@ public class XMLLanguageDriver implements LanguageDriver {
     }
   }
 
+  /**
+   * Returns the engine evaluating the expressions of the scripts this driver builds. Defaults to the
+   * {@code expressionEngine} of the configuration; override it to use another engine for this language only.
+   */
+  protected ExpressionEngine getExpressionEngine(Configuration configuration) {
+    return configuration.getExpressionEngine();
+  }
+
 }
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
@@ -34,9 +35,13 @@ import org.w3c.dom.NodeList;
  */
 public class XMLScriptBuilder extends BaseBuilder {
 
+  private static final Pattern ENDS_WITH_IN = Pattern.compile("(?is).*\\bIN\\s*\\(?\\s*");
+  private static final Pattern STARTS_WITH_IN = Pattern.compile("(?is)\\s*IN\\b.*");
+
   private final XNode context;
   private boolean isDynamic;
   private final Class<?> parameterType;
+  private final ExpressionEvaluator evaluator;
   private final Map<String, NodeHandler> nodeHandlerMap = new HashMap<>();
 
   public XMLScriptBuilder(Configuration configuration, XNode context) {
@@ -44,9 +49,14 @@ public class XMLScriptBuilder extends BaseBuilder {
   }
 
   public XMLScriptBuilder(Configuration configuration, XNode context, Class<?> parameterType) {
+    this(configuration, context, parameterType, configuration.getExpressionEngine());
+  }
+
+  public XMLScriptBuilder(Configuration configuration, XNode context, Class<?> parameterType, ExpressionEngine expressionEngine) {
     super(configuration);
     this.context = context;
     this.parameterType = parameterType;
+    this.evaluator = new ExpressionEvaluator(expressionEngine);
     initNodeHandlerMap();
   }
 
@@ -81,7 +91,7 @@ public class XMLScriptBuilder extends BaseBuilder {
       XNode child = node.newXNode(children.item(i));
       if (child.getNode().getNodeType() == Node.CDATA_SECTION_NODE || child.getNode().getNodeType() == Node.TEXT_NODE) {
         String data = child.getStringBody("");
-        TextSqlNode textSqlNode = new TextSqlNode(data);
+        TextSqlNode textSqlNode = new TextSqlNode(data, null, evaluator);
         if (textSqlNode.isDynamic()) {
           contents.add(textSqlNode);
           isDynamic = true;
@@ -114,7 +124,7 @@ public class XMLScriptBuilder extends BaseBuilder {
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
       final String name = nodeToHandle.getStringAttribute("name");
       final String expression = nodeToHandle.getStringAttribute("value");
-      final VarDeclSqlNode node = new VarDeclSqlNode(name, expression);
+      final VarDeclSqlNode node = new VarDeclSqlNode(name, expression, evaluator);
       targetContents.add(node);
     }
   }
@@ -176,11 +186,32 @@ public class XMLScriptBuilder extends BaseBuilder {
       String open = nodeToHandle.getStringAttribute("open");
       String close = nodeToHandle.getStringAttribute("close");
       String separator = nodeToHandle.getStringAttribute("separator");
-      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+      Boolean padding = nodeToHandle.getBooleanAttribute("padding");
+      if (padding == null && !isInList(targetContents, open)) {
+        // inListPadding would duplicate the rows of an INSERT ... VALUES or the terms of an OR list
+        padding = false;
+      }
+      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator, evaluator, padding);
       targetContents.add(forEachSqlNode);
     }
   }
 
+  private boolean isInList(List<SqlNode> precedingContents, String open) {
+    if (open != null && STARTS_WITH_IN.matcher(open).matches()) {
+      return true;
+    }
+    final SqlNode preceding = precedingContents.isEmpty() ? null : precedingContents.get(precedingContents.size() - 1);
+    final String text;
+    if (preceding instanceof StaticTextSqlNode) {
+      text = ((StaticTextSqlNode) preceding).getText();
+    } else if (preceding instanceof TextSqlNode) {
+      text = ((TextSqlNode) preceding).getText();
+    } else {
+      return false;
+    }
+    return ENDS_WITH_IN.matcher(text).matches();
+  }
+
   private class IfHandler implements NodeHandler {
     public IfHandler() {
       // Prevent Synthetic Access
@@ -190,7 +221,7 @@ public class XMLScriptBuilder extends BaseBuilder {
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
       MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
       String test = nodeToHandle.getStringAttribute("test");
-      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test);
+      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test, evaluator);
       targetContents.add(ifSqlNode);
     }
   }
@@ -25,6 +25,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -43,6 +46,7 @@ import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResultHandler;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
@@ -52,6 +56,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ColumnarResult;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -85,6 +90,9 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.ExpressionEngine;
+import org.apache.ibatis.scripting.xmltags.NativeExpressionEngine;
+import org.apache.ibatis.scripting.xmltags.OgnlExpressionEngine;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -121,6 +129,25 @@ public class Configuration {
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
+  protected int parallelResultMappingThreads;
+  protected int parallelResultMappingBatchSize = 1000;
+  protected boolean columnarDecimalsAsPrimitives;
+  protected volatile ExecutorService resultMappingExecutor;
+  private boolean ownsResultMappingExecutor;
+  protected volatile ExecutorService batchPipelineExecutor;
+  private boolean ownsBatchPipelineExecutor;
+  protected int dynamicSqlShapeCacheSize;
+  protected ExpressionEngine expressionEngine = new OgnlExpressionEngine();
+  protected boolean simpleExpressionFastPath;
+  protected boolean inListPadding;
+  protected int inListChunkSize;
+  protected int multiRowInsertSize;
+  protected int multiRowInsertMaxParameters;
+  protected boolean batchStatementGrouping;
+  protected int batchFlushSize;
+  protected long batchFlushBytes;
+  protected BatchResultHandler batchResultHandler;
+  protected int batchPipelineDepth;
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
   protected AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior = AutoMappingUnknownColumnBehavior.NONE;
@@ -177,6 +204,7 @@ public class Configuration {
   }
 
   public Configuration() {
+    expressionEngine.setConfiguration(this);
     typeAliasRegistry.registerAlias("JDBC", JdbcTransactionFactory.class);
     typeAliasRegistry.registerAlias("MANAGED", ManagedTransactionFactory.class);
 
@@ -192,9 +220,14 @@ public class Configuration {
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
+    typeAliasRegistry.registerAlias("COLUMNAR", ColumnarResult.class);
+
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
 
+    typeAliasRegistry.registerAlias("OGNL", OgnlExpressionEngine.class);
+    typeAliasRegistry.registerAlias("NATIVE", NativeExpressionEngine.class);
+
     typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
     typeAliasRegistry.registerAlias("COMMONS_LOGGING", JakartaCommonsLoggingImpl.class);
     typeAliasRegistry.registerAlias("LOG4J", Log4jImpl.class);
@@ -264,6 +297,291 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  public int getParallelResultMappingThreads() {
+    return parallelResultMappingThreads;
+  }
+
+  /**
+   * Enables mapping of simple result maps on a pool of worker threads while the calling thread keeps fetching rows.
+   * A value of 0 (the default) maps every row on the calling thread.
+   */
+  public void setParallelResultMappingThreads(int parallelResultMappingThreads) {
+    this.parallelResultMappingThreads = parallelResultMappingThreads;
+  }
+
+  public int getParallelResultMappingBatchSize() {
+    return parallelResultMappingBatchSize;
+  }
+
+  public void setParallelResultMappingBatchSize(int parallelResultMappingBatchSize) {
+    this.parallelResultMappingBatchSize = parallelResultMappingBatchSize;
+  }
+
+  public boolean isColumnarDecimalsAsPrimitives() {
+    return columnarDecimalsAsPrimitives;
+  }
+
+  /**
+   * Makes columnar results read decimal and numeric columns into primitive arrays instead of keeping them as
+   * {@code BigDecimal}: columns with a scale of 0 and at most 18 digits become long columns, all others double columns,
+   * which lose precision beyond what a double holds.
+   */
+  public void setColumnarDecimalsAsPrimitives(boolean columnarDecimalsAsPrimitives) {
+    this.columnarDecimalsAsPrimitives = columnarDecimalsAsPrimitives;
+  }
+
+  public int getDynamicSqlShapeCacheSize() {
+    return dynamicSqlShapeCacheSize;
+  }
+
+  /**
+   * Sets how many distinct generated SQL shapes each dynamic statement keeps already parsed, together with their
+   * parameter mappings. The dynamic SQL is still evaluated on every call; only the parsing of its result is saved.
+   * The least recently used shapes are evicted first and calls substituting a <code>${}</code> value are not cached.
+   * A value of 0 (the default) parses the generated SQL on every call.
+   */
+  public void setDynamicSqlShapeCacheSize(int dynamicSqlShapeCacheSize) {
+    this.dynamicSqlShapeCacheSize = dynamicSqlShapeCacheSize;
+  }
+
+  public boolean isInListPadding() {
+    return inListPadding;
+  }
+
+  /**
+   * Sets whether {@code foreach} elements building an IN list, that is following the {@code IN} keyword or opening
+   * with it, repeat the last element of their collection up to the next power of two, so that lists of varying sizes
+   * share a few SQL texts and prepared statements. The {@code padding} attribute of a {@code foreach} overrides it.
+   */
+  public void setInListPadding(boolean inListPadding) {
+    this.inListPadding = inListPadding;
+  }
+
+  public int getInListChunkSize() {
+    return inListChunkSize;
+  }
+
+  /**
+   * Sets the largest size padding produces, usually the IN list limit of the database. Collections of that size or
+   * longer are not padded. A value of 0 (the default) uses powers of two whatever the size.
+   */
+  public void setInListChunkSize(int inListChunkSize) {
+    this.inListChunkSize = inListChunkSize;
+  }
+
+  public int getMultiRowInsertSize() {
+    return multiRowInsertSize;
+  }
+
+  /**
+   * Sets how many consecutive calls of a plain {@code INSERT ... VALUES (...)} statement the batch executor sends as
+   * one {@code INSERT ... VALUES (...), (...)} statement. Values below 2 (the default is 0) disable the rewrite.
+   */
+  public void setMultiRowInsertSize(int multiRowInsertSize) {
+    this.multiRowInsertSize = multiRowInsertSize;
+  }
+
+  public int getMultiRowInsertMaxParameters() {
+    return multiRowInsertMaxParameters;
+  }
+
+  /**
+   * Sets the most parameters a multi-row insert statement may bind, fewer rows than {@code multiRowInsertSize} being
+   * inserted per statement when their parameters would exceed it. 0 (the default) uses the limit of the driver when
+   * known: 2100 for SQL Server and 65535 for PostgreSQL. A negative value sets no limit.
+   */
+  public void setMultiRowInsertMaxParameters(int multiRowInsertMaxParameters) {
+    this.multiRowInsertMaxParameters = multiRowInsertMaxParameters;
+  }
+
+  public boolean isBatchStatementGrouping() {
+    return batchStatementGrouping;
+  }
+
+  /**
+   * Sets whether the batch executor keeps one statement open per mapped statement and SQL until the batch is
+   * flushed, instead of only reusing the statement of the previous call. Interleaved calls, such as parent and child
+   * inserts, are then sent as one JDBC batch each, executed in the order each statement was first used.
+   */
+  public void setBatchStatementGrouping(boolean batchStatementGrouping) {
+    this.batchStatementGrouping = batchStatementGrouping;
+  }
+
+  public int getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  /**
+   * Sets how many parameter objects the batch executor accepts before executing the pending batch on its own.
+   * A value of 0 (the default) waits for an explicit flush or commit.
+   */
+  public void setBatchFlushSize(int batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  public long getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  /**
+   * Sets the estimated size in bytes of the parameters the batch executor holds before executing the pending batch on
+   * its own. A value of 0 (the default) waits for an explicit flush or commit.
+   */
+  public void setBatchFlushBytes(long batchFlushBytes) {
+    this.batchFlushBytes = batchFlushBytes;
+  }
+
+  public BatchResultHandler getBatchResultHandler() {
+    return batchResultHandler;
+  }
+
+  /**
+   * Sets the default handler receiving the results of automatic batch flushes, used by the BATCH sessions not opened
+   * with their own. Without one, they are kept and returned by the next explicit flush.
+   *
+   * @see SqlSessionFactory#openSession(BatchResultHandler)
+   */
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    this.batchResultHandler = batchResultHandler;
+  }
+
+  public int getBatchPipelineDepth() {
+    return batchPipelineDepth;
+  }
+
+  /**
+   * Sets how many batches taken at the {@code batchFlushSize} or {@code batchFlushBytes} threshold may wait for a
+   * thread of the {@link #getBatchPipelineExecutor() batch pipeline executor} to execute them while the batch executor
+   * records the parameters of the next one. A value of 0 (the default) executes them on the calling thread.
+   * <p>
+   * The pool thread prepares and executes the statements, generates their keys and calls the
+   * {@link BatchResultHandler}; the calling thread does not use the connection meanwhile. Statements whose key
+   * generator runs queries, such as {@code selectKey}, and statements other than prepared ones are bound on the calling thread once
+   * the pool thread is done, and their batch is executed on the calling thread.
+   */
+  public void setBatchPipelineDepth(int batchPipelineDepth) {
+    this.batchPipelineDepth = batchPipelineDepth;
+  }
+
+  public ExpressionEngine getExpressionEngine() {
+    return expressionEngine;
+  }
+
+  /**
+   * Sets the engine evaluating the expressions of dynamic SQL ({@code test}, {@code collection}, {@code bind} and
+   * {@code ${}}) for languages that do not choose their own. {@code null} restores the OGNL engine.
+   */
+  public void setExpressionEngine(ExpressionEngine expressionEngine) {
+    if (expressionEngine == null) {
+      expressionEngine = new OgnlExpressionEngine();
+    }
+    expressionEngine.setConfiguration(this);
+    this.expressionEngine = expressionEngine;
+  }
+
+  public boolean isSimpleExpressionFastPath() {
+    return simpleExpressionFastPath;
+  }
+
+  /**
+   * Lets the OGNL expression engine evaluate property paths, comparisons with {@code null}, string and integer
+   * literals, {@code size()} comparisons and plain and/or chains of those through the {@link ReflectorFactory}
+   * instead of OGNL. Values OGNL would convert before comparing are still handed to OGNL.
+   */
+  public void setSimpleExpressionFastPath(boolean simpleExpressionFastPath) {
+    this.simpleExpressionFastPath = simpleExpressionFastPath;
+  }
+
+  /**
+   * Returns the pool used for parallel result mapping, creating a daemon pool of
+   * {@link #getParallelResultMappingThreads()} threads unless one was supplied.
+   */
+  public ExecutorService getResultMappingExecutor() {
+    ExecutorService executor = resultMappingExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        executor = resultMappingExecutor;
+        if (executor == null) {
+          final AtomicInteger threadNumber = new AtomicInteger();
+          executor = Executors.newFixedThreadPool(Math.max(1, parallelResultMappingThreads), runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-result-mapping-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+          ownsResultMappingExecutor = true;
+          resultMappingExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Supplies the pool used for parallel result mapping. The caller keeps ownership of it; a pool created by this
+   * configuration is shut down.
+   */
+  public synchronized void setResultMappingExecutor(ExecutorService resultMappingExecutor) {
+    shutdownResultMappingExecutor();
+    this.resultMappingExecutor = resultMappingExecutor;
+  }
+
+  /**
+   * Shuts down the pool of parallel result mapping if this configuration created it. A later parallel mapping
+   * creates a new one.
+   */
+  public synchronized void shutdownResultMappingExecutor() {
+    if (ownsResultMappingExecutor) {
+      resultMappingExecutor.shutdown();
+      ownsResultMappingExecutor = false;
+    }
+    resultMappingExecutor = null;
+  }
+
+  /**
+   * Returns the pool executing the batches pipelined by {@code batchPipelineDepth}, creating a daemon pool of as many
+   * threads as available processors unless one was supplied. A session only takes a thread while its batches wait.
+   */
+  public ExecutorService getBatchPipelineExecutor() {
+    ExecutorService executor = batchPipelineExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        executor = batchPipelineExecutor;
+        if (executor == null) {
+          final AtomicInteger threadNumber = new AtomicInteger();
+          executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-batch-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+          ownsBatchPipelineExecutor = true;
+          batchPipelineExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Supplies the pool executing pipelined batches. The caller keeps ownership of it; a pool created by this
+   * configuration is shut down.
+   */
+  public synchronized void setBatchPipelineExecutor(ExecutorService batchPipelineExecutor) {
+    shutdownBatchPipelineExecutor();
+    this.batchPipelineExecutor = batchPipelineExecutor;
+  }
+
+  /**
+   * Shuts down the pool executing pipelined batches if this configuration created it. A later pipelined batch creates
+   * a new one.
+   */
+  public synchronized void shutdownBatchPipelineExecutor() {
+    if (ownsBatchPipelineExecutor) {
+      batchPipelineExecutor.shutdown();
+      ownsBatchPipelineExecutor = false;
+    }
+    batchPipelineExecutor = null;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -570,11 +888,19 @@ public class Configuration {
   }
 
   public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+    return newExecutor(transaction, executorType, null);
+  }
+
+  /**
+   * Creates an executor whose BATCH executor reports automatic flushes to the given handler, or to the one of this
+   * configuration when it is null.
+   */
+  public Executor newExecutor(Transaction transaction, ExecutorType executorType, BatchResultHandler batchResultHandler) {
     executorType = executorType == null ? defaultExecutorType : executorType;
     executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
     Executor executor;
     if (ExecutorType.BATCH == executorType) {
-      executor = new BatchExecutor(this, transaction);
+      executor = new BatchExecutor(this, transaction, batchResultHandler);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
     } else {
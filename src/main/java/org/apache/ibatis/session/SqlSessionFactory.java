@@ -17,6 +17,8 @@ package org.apache.ibatis.session;
 
 import java.sql.Connection;
 
+import org.apache.ibatis.executor.BatchResultHandler;
+
 /**
  * Creates an {@link SqlSession} out of a connection or a DataSource
  *
@@ -35,6 +37,12 @@ public interface SqlSessionFactory {
   SqlSession openSession(ExecutorType execType, TransactionIsolationLevel level);
   SqlSession openSession(ExecutorType execType, Connection connection);
 
+  /**
+   * Opens a BATCH session reporting its automatic flushes to the given handler instead of the one of the
+   * configuration, which is used when it is null.
+   */
+  SqlSession openSession(BatchResultHandler batchResultHandler);
+
   Configuration getConfiguration();
 
 }
@@ -27,6 +27,7 @@ import java.util.Properties;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultHandler;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
@@ -107,6 +108,10 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     this.localSqlSession.set(openSession(execType, connection));
   }
 
+  public void startManagedSession(BatchResultHandler batchResultHandler) {
+    this.localSqlSession.set(openSession(batchResultHandler));
+  }
+
   public boolean isManagedSessionStarted() {
     return this.localSqlSession.get() != null;
   }
@@ -151,6 +156,11 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionFactory.openSession(execType, connection);
   }
 
+  @Override
+  public SqlSession openSession(BatchResultHandler batchResultHandler) {
+    return sqlSessionFactory.openSession(batchResultHandler);
+  }
+
   @Override
   public Configuration getConfiguration() {
     return sqlSessionFactory.getConfiguration();
@@ -18,6 +18,8 @@ package org.apache.ibatis.transaction;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import org.apache.ibatis.mapping.MappedStatement;
+
 /**
  * Wraps a database connection.
  * Handles the connection lifecycle that comprises: its creation, preparation, commit/rollback and close.
@@ -33,6 +35,18 @@ public interface Transaction {
    */
   Connection getConnection() throws SQLException;
 
+  /**
+   * Retrieve the database connection the given statement should run on.
+   * Transactions spanning several databases use it to route each statement;
+   * by default it is the connection returned by {@link #getConnection()}.
+   * @param ms the statement about to be executed
+   * @return DataBase connection
+   * @throws SQLException
+   */
+  default Connection getConnection(MappedStatement ms) throws SQLException {
+    return getConnection();
+  }
+
   /**
    * Commit inner database connection.
    * @throws SQLException
@@ -0,0 +1,321 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lazy handle on a BLOB or CLOB column that streams the value straight into a caller supplied sink instead of
+ * loading it into memory.
+ * <p>
+ * Handles are created by {@link LobHandleTypeHandler} for properties of this type and are meant to be consumed from
+ * a {@link org.apache.ibatis.cursor.Cursor} or a {@link org.apache.ibatis.session.ResultHandler}: they can only be
+ * transferred once and only while the row they were read from is still the current row of its result set.
+ * Handles on columns other than BLOB and CLOB need a driver that reports the current row through
+ * {@link ResultSet#getRow()}; otherwise they refuse to transfer rather than risk reading another row.
+ * Data is copied through a small pool of reusable buffers.
+ * </p>
+ */
+public final class LobHandle {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int MAX_POOLED_BUFFERS = 64;
+  private static final Queue<byte[]> BYTE_BUFFERS = new ConcurrentLinkedQueue<>();
+  private static final Queue<char[]> CHAR_BUFFERS = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger pooledByteBuffers = new AtomicInteger();
+  private static final AtomicInteger pooledCharBuffers = new AtomicInteger();
+
+  private final Source source;
+  private final boolean character;
+  private final ResultSet resultSet;
+  private final int row;
+  private boolean consumed;
+
+  private LobHandle(Source source, boolean character, ResultSet resultSet, int row) {
+    this.source = source;
+    this.character = character;
+    this.resultSet = resultSet;
+    this.row = row;
+  }
+
+  static LobHandle forBlob(Blob blob, ResultSet resultSet) throws SQLException {
+    return blob == null ? null : new LobHandle(new Source() {
+      @Override
+      public InputStream openStream() throws SQLException {
+        return blob.getBinaryStream();
+      }
+
+      @Override
+      public void release() throws SQLException {
+        blob.free();
+      }
+    }, false, resultSet, currentRow(resultSet));
+  }
+
+  static LobHandle forClob(Clob clob, ResultSet resultSet) throws SQLException {
+    return clob == null ? null : new LobHandle(new Source() {
+      @Override
+      public Reader openReader() throws SQLException {
+        return clob.getCharacterStream();
+      }
+
+      @Override
+      public void release() throws SQLException {
+        clob.free();
+      }
+    }, true, resultSet, currentRow(resultSet));
+  }
+
+  /**
+   * Creates a handle that opens the column stream again when transferred, as any other column read invalidates it.
+   * Returns {@code null} for a SQL {@code NULL}.
+   */
+  static LobHandle forColumn(ResultSet resultSet, int columnIndex, boolean character) throws SQLException {
+    final Source source = new Source() {
+      @Override
+      public InputStream openStream() throws SQLException {
+        return resultSet.getBinaryStream(columnIndex);
+      }
+
+      @Override
+      public Reader openReader() throws SQLException {
+        return resultSet.getCharacterStream(columnIndex);
+      }
+
+      @Override
+      public boolean isRowBound() {
+        return true;
+      }
+    };
+    final Closeable value = character ? source.openReader() : source.openStream();
+    final boolean isNull = value == null || resultSet.wasNull();
+    if (value != null) {
+      try {
+        value.close();
+      } catch (IOException e) {
+        throw new TypeException("Error closing the stream of column " + columnIndex + ".", e);
+      }
+    }
+    return isNull ? null : new LobHandle(source, character, resultSet, currentRow(resultSet));
+  }
+
+  private static int currentRow(ResultSet resultSet) throws SQLException {
+    try {
+      return resultSet == null ? 0 : resultSet.getRow();
+    } catch (SQLException e) {
+      // getRow() is optional on forward only result sets
+      return 0;
+    }
+  }
+
+  public boolean isCharacter() {
+    return character;
+  }
+
+  /**
+   * Streams the value into the given stream. Character data is encoded as UTF-8.
+   *
+   * @return the number of bytes written
+   */
+  public long transferTo(OutputStream out) throws IOException, SQLException {
+    return transferTo(out, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Streams the value into the given stream, encoding character data with the given charset.
+   *
+   * @return the number of bytes written, or of characters written for character data
+   */
+  public long transferTo(OutputStream out, Charset charset) throws IOException, SQLException {
+    if (isCharacter()) {
+      Writer writer = new OutputStreamWriter(out, charset);
+      long count = transferTo(writer);
+      writer.flush();
+      return count;
+    }
+    begin();
+    final byte[] buffer = borrowByteBuffer();
+    try (InputStream in = source.openStream()) {
+      long count = 0;
+      int n;
+      while (in != null && (n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+        count += n;
+      }
+      return count;
+    } finally {
+      releaseByteBuffer(buffer);
+      source.release();
+    }
+  }
+
+  /**
+   * Streams the value into the given channel. Character data is encoded as UTF-8.
+   *
+   * @return the number of bytes written, or of characters written for character data
+   */
+  public long transferTo(WritableByteChannel channel) throws IOException, SQLException {
+    if (isCharacter()) {
+      return transferTo(Channels.newOutputStream(channel));
+    }
+    begin();
+    final byte[] buffer = borrowByteBuffer();
+    try (InputStream in = source.openStream()) {
+      final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+      long count = 0;
+      int n;
+      while (in != null && (n = in.read(buffer)) != -1) {
+        byteBuffer.clear().limit(n);
+        while (byteBuffer.hasRemaining()) {
+          channel.write(byteBuffer);
+        }
+        count += n;
+      }
+      return count;
+    } finally {
+      releaseByteBuffer(buffer);
+      source.release();
+    }
+  }
+
+  /**
+   * Streams the value into the given file, replacing it if it exists. Character data is encoded as UTF-8.
+   *
+   * @return the number of bytes written, or of characters written for character data
+   */
+  public long transferTo(Path file) throws IOException, SQLException {
+    try (OutputStream out = Files.newOutputStream(file)) {
+      return transferTo(out);
+    }
+  }
+
+  /**
+   * Streams a character value into the given writer.
+   *
+   * @return the number of characters written
+   */
+  public long transferTo(Writer writer) throws IOException, SQLException {
+    if (!isCharacter()) {
+      throw new TypeException("Cannot write a binary LOB to a Writer.");
+    }
+    begin();
+    final char[] buffer = borrowCharBuffer();
+    try (Reader in = source.openReader()) {
+      long count = 0;
+      int n;
+      while (in != null && (n = in.read(buffer)) != -1) {
+        writer.write(buffer, 0, n);
+        count += n;
+      }
+      return count;
+    } finally {
+      releaseCharBuffer(buffer);
+      source.release();
+    }
+  }
+
+  private void begin() throws SQLException {
+    if (consumed) {
+      throw new TypeException("This LOB handle has already been transferred.");
+    }
+    if (resultSet != null && (resultSet.isClosed() || (row > 0 && currentRow(resultSet) != row))) {
+      throw new TypeException("This LOB handle is no longer readable because its row is not the current row anymore. "
+          + "Transfer LOB handles from a Cursor or a ResultHandler before moving to the next row.");
+    }
+    if (row == 0 && source.isRowBound()) {
+      throw new TypeException("This LOB handle cannot be transferred because the driver does not report the current row "
+          + "of its result set, so a stale handle could not be told apart. Read the column as a BLOB or CLOB instead.");
+    }
+    consumed = true;
+  }
+
+  private interface Source {
+
+    default InputStream openStream() throws SQLException {
+      throw new TypeException("Cannot read a character LOB as a binary stream.");
+    }
+
+    default Reader openReader() throws SQLException {
+      throw new TypeException("Cannot read a binary LOB as a character stream.");
+    }
+
+    default void release() throws SQLException {
+      // nothing to release
+    }
+
+    /**
+     * Whether the data can only be read while its row is the current row, unlike a LOB locator.
+     */
+    default boolean isRowBound() {
+      return false;
+    }
+  }
+
+  private static byte[] borrowByteBuffer() {
+    byte[] buffer = BYTE_BUFFERS.poll();
+    if (buffer == null) {
+      return new byte[BUFFER_SIZE];
+    }
+    pooledByteBuffers.decrementAndGet();
+    return buffer;
+  }
+
+  private static void releaseByteBuffer(byte[] buffer) {
+    if (pooledByteBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+      BYTE_BUFFERS.offer(buffer);
+    } else {
+      pooledByteBuffers.decrementAndGet();
+    }
+  }
+
+  private static char[] borrowCharBuffer() {
+    char[] buffer = CHAR_BUFFERS.poll();
+    if (buffer == null) {
+      return new char[BUFFER_SIZE];
+    }
+    pooledCharBuffers.decrementAndGet();
+    return buffer;
+  }
+
+  private static void releaseCharBuffer(char[] buffer) {
+    if (pooledCharBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+      CHAR_BUFFERS.offer(buffer);
+    } else {
+      pooledCharBuffers.decrementAndGet();
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * The {@link TypeHandler} for {@link LobHandle}.
+ * <p>
+ * BLOB and CLOB columns are kept as locators and SQL {@code NULL}s are returned as {@code null}. Any other column
+ * is opened with {@link ResultSet#getCharacterStream(int)} or {@link ResultSet#getBinaryStream(int)} once to detect
+ * SQL {@code NULL}s, which are returned as {@code null} too, and again when the handle is transferred, as JDBC
+ * invalidates such streams as soon as another column is read.
+ * </p>
+ */
+public class LobHandleTypeHandler extends BaseTypeHandler<LobHandle> {
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, LobHandle parameter, JdbcType jdbcType)
+      throws SQLException {
+    throw new TypeException("LobHandle can only be used to read results.");
+  }
+
+  @Override
+  public LobHandle getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return getNullableResult(rs, rs.findColumn(columnName));
+  }
+
+  @Override
+  public LobHandle getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    final int sqlType = rs.getMetaData().getColumnType(columnIndex);
+    if (sqlType == Types.BLOB) {
+      return LobHandle.forBlob(rs.getBlob(columnIndex), rs);
+    } else if (sqlType == Types.CLOB || sqlType == Types.NCLOB) {
+      return LobHandle.forClob(rs.getClob(columnIndex), rs);
+    }
+    return LobHandle.forColumn(rs, columnIndex, isCharacterColumn(sqlType));
+  }
+
+  @Override
+  public LobHandle getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    if (isCharacterColumn(cs.getParameterMetaData().getParameterType(columnIndex))) {
+      return LobHandle.forClob(cs.getClob(columnIndex), null);
+    }
+    return LobHandle.forBlob(cs.getBlob(columnIndex), null);
+  }
+
+  private boolean isCharacterColumn(int sqlType) {
+    switch (sqlType) {
+      case Types.CLOB:
+      case Types.NCLOB:
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.LONGNVARCHAR:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+}
@@ -23,7 +23,7 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class LongTypeHandler extends BaseTypeHandler<Long> {
+public class LongTypeHandler extends BaseTypeHandler<Long> implements PrimitiveLongTypeHandler {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Long parameter, JdbcType jdbcType)
@@ -51,4 +51,24 @@ public class LongTypeHandler extends BaseTypeHandler<Long> {
     long result = cs.getLong(columnIndex);
     return result == 0 && cs.wasNull() ? null : result;
   }
+
+  @Override
+  public void setLongParameter(PreparedStatement ps, int i, long parameter) throws SQLException {
+    ps.setLong(i, parameter);
+  }
+
+  @Override
+  public long getLongResult(ResultSet rs, String columnName) throws SQLException {
+    return rs.getLong(columnName);
+  }
+
+  @Override
+  public long getLongResult(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getLong(columnIndex);
+  }
+
+  @Override
+  public long getLongResult(CallableStatement cs, int columnIndex) throws SQLException {
+    return cs.getLong(columnIndex);
+  }
 }
@@ -0,0 +1,45 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A {@link TypeHandler} that can also read and write its values as a primitive {@code boolean}, without boxing.
+ * <p>
+ * A SQL {@code NULL} is read as {@code false}; callers that need to tell it apart must check {@code wasNull()}
+ * right after the call.
+ * </p>
+ * <p>
+ * The primitive methods must bind and read the same values as the boxed methods of {@link TypeHandler}: MyBatis
+ * calls either of them for primitive properties and columnar results of a handler whose class declares this
+ * interface, see {@link PrimitiveTypeHandlers}.
+ * </p>
+ */
+public interface PrimitiveBooleanTypeHandler extends TypeHandler<Boolean> {
+
+  void setBooleanParameter(PreparedStatement ps, int i, boolean parameter) throws SQLException;
+
+  boolean getBooleanResult(ResultSet rs, String columnName) throws SQLException;
+
+  boolean getBooleanResult(ResultSet rs, int columnIndex) throws SQLException;
+
+  boolean getBooleanResult(CallableStatement cs, int columnIndex) throws SQLException;
+
+}
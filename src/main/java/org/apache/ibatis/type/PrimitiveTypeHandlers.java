@@ -0,0 +1,58 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+/**
+ * Tells which type handlers MyBatis may call through {@link PrimitiveIntTypeHandler}, {@link PrimitiveLongTypeHandler},
+ * {@link PrimitiveDoubleTypeHandler} or {@link PrimitiveBooleanTypeHandler} to map primitive values without boxing.
+ * <p>
+ * A handler qualifies when its own class declares the interface. A class that only inherits it, such as a subclass
+ * of {@link IntegerTypeHandler} overriding {@code getNullableResult}, has not promised that its primitive methods
+ * agree with its boxed ones, so it is always called through {@link TypeHandler}.
+ */
+public final class PrimitiveTypeHandlers {
+
+  private static final ClassValue<Class<?>> PRIMITIVE_TYPES = new ClassValue<Class<?>>() {
+    @Override
+    protected Class<?> computeValue(Class<?> handlerType) {
+      for (Class<?> declared : handlerType.getInterfaces()) {
+        if (declared == PrimitiveIntTypeHandler.class) {
+          return int.class;
+        } else if (declared == PrimitiveLongTypeHandler.class) {
+          return long.class;
+        } else if (declared == PrimitiveDoubleTypeHandler.class) {
+          return double.class;
+        } else if (declared == PrimitiveBooleanTypeHandler.class) {
+          return boolean.class;
+        }
+      }
+      return null;
+    }
+  };
+
+  private PrimitiveTypeHandlers() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Returns whether {@code typeHandler} may be called through the primitive interface of {@code primitiveType},
+   * one of {@code int}, {@code long}, {@code double} and {@code boolean}.
+   */
+  public static boolean isPrimitiveTypeHandler(TypeHandler<?> typeHandler, Class<?> primitiveType) {
+    return typeHandler != null && PRIMITIVE_TYPES.get(typeHandler.getClass()) == primitiveType;
+  }
+
+}
@@ -42,6 +42,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.io.ResolverUtil;
@@ -60,6 +61,11 @@ public final class TypeHandlerRegistry {
 
   private static final Map<JdbcType, TypeHandler<?>> NULL_TYPE_HANDLER_MAP = Collections.emptyMap();
 
+  private static final Object NO_TYPE_HANDLER = new Object();
+  private static final int JDBC_TYPE_SLOTS = JdbcType.values().length + 1;
+
+  private final AtomicReference<ResolvedTypeHandlers> resolvedTypeHandlers = new AtomicReference<>(new ResolvedTypeHandlers(0));
+
   private Class<? extends TypeHandler> defaultEnumTypeHandler = EnumTypeHandler.class;
 
   public TypeHandlerRegistry() {
@@ -120,6 +126,7 @@ public final class TypeHandlerRegistry {
     register(JdbcType.NUMERIC, new BigDecimalTypeHandler());
 
     register(InputStream.class, new BlobInputStreamTypeHandler());
+    register(LobHandle.class, new LobHandleTypeHandler());
     register(Byte[].class, new ByteObjectArrayTypeHandler());
     register(Byte[].class, JdbcType.BLOB, new BlobByteObjectArrayTypeHandler());
     register(Byte[].class, JdbcType.LONGVARBINARY, new BlobByteObjectArrayTypeHandler());
@@ -171,6 +178,7 @@ public final class TypeHandlerRegistry {
    */
   public void setDefaultEnumTypeHandler(Class<? extends TypeHandler> typeHandler) {
     this.defaultEnumTypeHandler = typeHandler;
+    invalidateResolvedTypeHandlers();
   }
 
   public boolean hasTypeHandler(Class<?> javaType) {
@@ -218,6 +226,19 @@ public final class TypeHandlerRegistry {
     if (ParamMap.class.equals(type)) {
       return null;
     }
+    final int slot = jdbcType == null ? 0 : jdbcType.ordinal() + 1;
+    final ResolvedTypeHandlers resolved = resolvedTypeHandlers.get();
+    final Object cached = resolved.get(type, slot);
+    if (cached != null) {
+      return cached == NO_TYPE_HANDLER ? null : (TypeHandler<T>) cached;
+    }
+    final TypeHandler<T> handler = resolveTypeHandler(type, jdbcType);
+    cacheResolvedTypeHandler(resolved.generation, type, slot, handler == null ? NO_TYPE_HANDLER : handler);
+    return handler;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> TypeHandler<T> resolveTypeHandler(Type type, JdbcType jdbcType) {
     Map<JdbcType, TypeHandler<?>> jdbcHandlerMap = getJdbcHandlerMap(type);
     TypeHandler<?> handler = null;
     if (jdbcHandlerMap != null) {
@@ -234,6 +255,24 @@ public final class TypeHandlerRegistry {
     return (TypeHandler<T>) handler;
   }
 
+  /**
+   * Publishes a resolved lookup unless a registration happened since the lookup started.
+   */
+  private void cacheResolvedTypeHandler(int generation, Type type, int slot, Object handler) {
+    ResolvedTypeHandlers current = resolvedTypeHandlers.get();
+    while (current.generation == generation
+        && !resolvedTypeHandlers.compareAndSet(current, current.with(type, slot, handler))) {
+      current = resolvedTypeHandlers.get();
+    }
+  }
+
+  private void invalidateResolvedTypeHandlers() {
+    ResolvedTypeHandlers current;
+    do {
+      current = resolvedTypeHandlers.get();
+    } while (!resolvedTypeHandlers.compareAndSet(current, new ResolvedTypeHandlers(current.generation + 1)));
+  }
+
   private Map<JdbcType, TypeHandler<?>> getJdbcHandlerMap(Type type) {
     Map<JdbcType, TypeHandler<?>> jdbcHandlerMap = TYPE_HANDLER_MAP.get(type);
     if (NULL_TYPE_HANDLER_MAP.equals(jdbcHandlerMap)) {
@@ -377,6 +416,7 @@ public final class TypeHandlerRegistry {
         TYPE_HANDLER_MAP.put(javaType, map);
       }
       map.put(jdbcType, handler);
+      invalidateResolvedTypeHandlers();
     }
     ALL_TYPE_HANDLERS_MAP.put(handler.getClass(), handler);
   }
@@ -462,4 +502,38 @@ public final class TypeHandlerRegistry {
     return Collections.unmodifiableCollection(ALL_TYPE_HANDLERS_MAP.values());
   }
 
+  /**
+   * Immutable table of fully resolved lookups, indexed by java type and then by jdbc type ordinal (slot 0 is the
+   * null jdbc type). Types without a handler are cached as {@link #NO_TYPE_HANDLER}. Lookups read it without
+   * locking; new entries are published by copying it, and any registration replaces it with an empty one.
+   */
+  private static final class ResolvedTypeHandlers {
+
+    private final int generation;
+    private final Map<Type, Object[]> handlers;
+
+    ResolvedTypeHandlers(int generation) {
+      this(generation, Collections.<Type, Object[]>emptyMap());
+    }
+
+    private ResolvedTypeHandlers(int generation, Map<Type, Object[]> handlers) {
+      this.generation = generation;
+      this.handlers = handlers;
+    }
+
+    Object get(Type type, int slot) {
+      final Object[] row = handlers.get(type);
+      return row == null ? null : row[slot];
+    }
+
+    ResolvedTypeHandlers with(Type type, int slot, Object handler) {
+      final Map<Type, Object[]> copy = new HashMap<>(handlers);
+      final Object[] row = copy.get(type);
+      final Object[] newRow = row == null ? new Object[JDBC_TYPE_SLOTS] : row.clone();
+      newRow[slot] = handler;
+      copy.put(type, newRow);
+      return new ResolvedTypeHandlers(generation, copy);
+    }
+  }
+
 }
@@ -43,6 +43,8 @@ import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.NativeExpressionEngine;
+import org.apache.ibatis.scripting.xmltags.OgnlExpressionEngine;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
@@ -94,6 +96,13 @@ public class XmlConfigBuilderTest {
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo(new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString")));
       assertThat(config.isSafeResultHandlerEnabled()).isTrue();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(XMLLanguageDriver.class);
+      assertThat(config.getExpressionEngine()).isInstanceOf(OgnlExpressionEngine.class);
+      assertThat(config.isInListPadding()).isFalse();
+      assertThat(config.getInListChunkSize()).isEqualTo(0);
+      assertThat(config.getBatchFlushSize()).isEqualTo(0);
+      assertThat(config.getBatchFlushBytes()).isEqualTo(0L);
+      assertNull(config.getBatchResultHandler());
+      assertThat(config.getBatchPipelineDepth()).isEqualTo(0);
       assertThat(config.isCallSettersOnNulls()).isFalse();
       assertNull(config.getLogPrefix());
       assertNull(config.getLogImpl());
@@ -187,6 +196,12 @@ public class XmlConfigBuilderTest {
         assertThat(config.getLazyLoadTriggerMethods()).isEqualTo(new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString", "xxx")));
         assertThat(config.isSafeResultHandlerEnabled()).isFalse();
         assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(RawLanguageDriver.class);
+        assertThat(config.getExpressionEngine()).isInstanceOf(NativeExpressionEngine.class);
+        assertThat(config.isInListPadding()).isTrue();
+        assertThat(config.getInListChunkSize()).isEqualTo(256);
+        assertThat(config.getBatchFlushSize()).isEqualTo(1000);
+        assertThat(config.getBatchFlushBytes()).isEqualTo(1048576L);
+        assertThat(config.getBatchPipelineDepth()).isEqualTo(2);
         assertThat(config.isCallSettersOnNulls()).isTrue();
         assertThat(config.getLogPrefix()).isEqualTo("mybatis_");
         assertThat(config.getLogImpl().getName()).isEqualTo(Slf4jImpl.class.getName());
@@ -29,13 +29,17 @@ import java.util.Map;
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
 import org.apache.ibatis.scripting.xmltags.IfSqlNode;
 import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
@@ -399,6 +403,124 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     Assertions.assertEquals("id=", sql);
   }
 
+  @Test
+  public void shouldReuseParsedShapeOnlyWhileBindingTypesMatch() {
+    final Configuration configuration = new Configuration();
+    configuration.setDynamicSqlShapeCacheSize(16);
+    final DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{id}")), "ids", null, "id", "(", ")", ","),
+        new IfSqlNode(mixedContents(new TextSqlNode("AND TITLE = #{title}")), "title != null")));
+    final Map<String, Object> param = new HashMap<>();
+    param.put("ids", Arrays.asList(1, 2));
+    param.put("title", null);
+    BoundSql first = source.getBoundSql(param);
+    BoundSql second = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID IN (  ? , ? )", second.getSql());
+    Assertions.assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(Integer.class, second.getParameterMappings().get(0).getJavaType());
+
+    param.put("ids", Arrays.asList(1L, 2L));
+    BoundSql longs = source.getBoundSql(param);
+    Assertions.assertNotSame(first.getParameterMappings(), longs.getParameterMappings());
+    assertEquals(Long.class, longs.getParameterMappings().get(0).getJavaType());
+
+    param.put("title", "Title");
+    BoundSql withTitle = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID IN (  ? , ? ) AND TITLE = ?", withTitle.getSql());
+    assertEquals(3, withTitle.getParameterMappings().size());
+    Assertions.assertSame(param, withTitle.getAdditionalParameter("_parameter"));
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedShapes() {
+    final Configuration configuration = new Configuration();
+    configuration.setDynamicSqlShapeCacheSize(1);
+    final DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID = #{id}"),
+        new IfSqlNode(mixedContents(new TextSqlNode("AND TITLE = #{title}")), "title != null")));
+    final Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("title", null);
+    BoundSql withoutTitle = source.getBoundSql(param);
+    param.put("title", "Title");
+    BoundSql withTitle = source.getBoundSql(param);
+    Assertions.assertSame(withTitle.getParameterMappings(), source.getBoundSql(param).getParameterMappings());
+    param.put("title", null);
+    Assertions.assertNotSame(withoutTitle.getParameterMappings(), source.getBoundSql(param).getParameterMappings());
+  }
+
+  @Test
+  public void shouldNotCacheShapesWithSubstitutedText() {
+    final Configuration configuration = new Configuration();
+    configuration.setDynamicSqlShapeCacheSize(16);
+    final DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM ${table} WHERE ID = #{id}")));
+    final Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("table", "BLOG");
+    BoundSql first = source.getBoundSql(param);
+    BoundSql second = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID = ?", second.getSql());
+    Assertions.assertNotSame(first.getParameterMappings(), second.getParameterMappings());
+  }
+
+  @Test
+  public void shouldRenderSingleItemBodyLikeGeneralLoop() {
+    final Configuration configuration = new Configuration();
+    final Map<String, Object> param = new HashMap<>();
+    param.put("ids", Arrays.asList(1, null, 3L));
+    // a TextSqlNode body takes the general path
+    final BoundSql general = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode(" #{ id ,jdbcType=NUMERIC} ")), "ids", "i", "id", "(", ")", ","))).getBoundSql(param);
+    final BoundSql template = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new StaticTextSqlNode(" #{ id ,jdbcType=NUMERIC} ")), "ids", "i", "id", "(", ")", ","))).getBoundSql(param);
+    assertEquals(general.getSql(), template.getSql());
+    assertEquals(3, template.getParameterMappings().size());
+    for (int i = 0; i < 3; i++) {
+      ParameterMapping expected = general.getParameterMappings().get(i);
+      ParameterMapping actual = template.getParameterMappings().get(i);
+      assertEquals(expected.getProperty(), actual.getProperty());
+      assertEquals(expected.getJavaType(), actual.getJavaType());
+      assertEquals(expected.getJdbcType(), actual.getJdbcType());
+      assertEquals(expected.getTypeHandler().getClass(), actual.getTypeHandler().getClass());
+      assertEquals(general.getAdditionalParameter(expected.getProperty()), template.getAdditionalParameter(actual.getProperty()));
+    }
+    assertEquals(Long.class, template.getParameterMappings().get(2).getJavaType());
+    Assertions.assertFalse(template.hasAdditionalParameter("id"));
+
+    final DynamicContext context = new DynamicContext(configuration, param);
+    new ForEachSqlNode(configuration, mixedContents(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",").apply(context);
+    assertEquals(3, context.getPreparedParameterMappings().size());
+  }
+
+  @Test
+  public void shouldPadInListsToBucketSizes() {
+    final Configuration configuration = new Configuration();
+    configuration.setInListPadding(true);
+    configuration.setInListChunkSize(4);
+    final DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",", new ExpressionEvaluator(), null)));
+    final Map<String, Object> param = new HashMap<>();
+    param.put("ids", Arrays.asList(1, 2, 3));
+    BoundSql three = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID IN (  ? , ? , ? , ? )", three.getSql());
+    assertEquals(3, three.getAdditionalParameter(three.getParameterMappings().get(3).getProperty()));
+    // never padded beyond the chunk size
+    param.put("ids", Arrays.asList(1, 2, 3, 4, 5));
+    assertEquals(5, source.getBoundSql(param).getParameterMappings().size());
+    param.put("ids", new int[] { 1 });
+    assertEquals(1, source.getBoundSql(param).getParameterMappings().size());
+
+    final DynamicSqlSource unpadded = new DynamicSqlSource(configuration, mixedContents(
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",", new ExpressionEvaluator(), false)));
+    param.put("ids", Arrays.asList(1, 2, 3));
+    assertEquals(3, unpadded.getBoundSql(param).getParameterMappings().size());
+  }
+
   public static class Bean {
     public String id;
     public Bean(String property) {
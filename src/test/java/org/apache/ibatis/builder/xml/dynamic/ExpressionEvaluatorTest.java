@@ -17,11 +17,21 @@ package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
 import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
+import org.apache.ibatis.scripting.xmltags.NativeExpressionEngine;
+import org.apache.ibatis.session.Configuration;
 import org.junit.jupiter.api.Test;
 
 public class ExpressionEvaluatorTest {
@@ -85,5 +95,130 @@ public class ExpressionEvaluatorTest {
     }
   }
 
+  @Test
+  public void shouldEvaluateCommonIdiomsAgainstBindings() {
+    Configuration configuration = new Configuration();
+    configuration.setSimpleExpressionFastPath(true);
+    ExpressionEvaluator evaluator = new ExpressionEvaluator(configuration.getExpressionEngine());
+    Map<String, Object> param = new HashMap<>();
+    param.put("name", "cbegin");
+    param.put("empty", "");
+    param.put("zero", 0);
+    param.put("list", Arrays.asList(1, 2));
+    param.put("none", Collections.emptyList());
+    param.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), param).getBindings();
+    assertTrue(evaluator.evaluateBoolean("name != null", bindings));
+    assertTrue(evaluator.evaluateBoolean("name != null and name != ''", bindings));
+    assertFalse(evaluator.evaluateBoolean("empty != null and empty != ''", bindings));
+    assertFalse(evaluator.evaluateBoolean("missing != null && missing != ''", bindings));
+    assertTrue(evaluator.evaluateBoolean("missing == null or missing == ''", bindings));
+    assertTrue(evaluator.evaluateBoolean("null != author.username", bindings));
+    assertFalse(evaluator.evaluateBoolean("author.password != null", bindings));
+    assertTrue(evaluator.evaluateBoolean("author.id gt 0", bindings));
+    assertTrue(evaluator.evaluateBoolean("list != null and list.size() > 0", bindings));
+    assertFalse(evaluator.evaluateBoolean("none.size() > 0", bindings));
+    assertTrue(evaluator.evaluateBoolean("_parameter.size() == 6", bindings));
+    assertTrue(evaluator.evaluateBoolean("_parameter.size == 6 and _parameter.keySet.size() == 6", bindings));
+    assertTrue(evaluator.evaluateBoolean("name != 'it\\'s'", bindings));
+    // values OGNL converts before comparing are still evaluated by OGNL
+    assertTrue(evaluator.evaluateBoolean("zero == ''", bindings));
+    assertTrue(evaluator.evaluateBoolean("list.size > 1", bindings));
+    assertTrue(evaluator.evaluateBoolean("name != null and (list.size() > 0 or none.size() > 0)", bindings));
+    assertThrows(NullPointerException.class, () -> evaluator.evaluateBoolean("missing.size() > 0", bindings));
+  }
+
+  @Test
+  public void shouldReadSimpleExpressionsThroughTheConfiguredReflectorFactory() {
+    final AtomicInteger lookups = new AtomicInteger();
+    Configuration configuration = new Configuration();
+    configuration.setReflectorFactory(new DefaultReflectorFactory() {
+      @Override
+      public Reflector findForClass(Class<?> type) {
+        lookups.incrementAndGet();
+        return super.findForClass(type);
+      }
+    });
+    ExpressionEvaluator evaluator = new ExpressionEvaluator(configuration.getExpressionEngine());
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    assertTrue(evaluator.evaluateBoolean("username != null", author));
+    assertEquals(0, lookups.get());
+
+    configuration.setSimpleExpressionFastPath(true);
+    assertTrue(evaluator.evaluateBoolean("username != null", author));
+    assertEquals(1, lookups.get());
+  }
+
+  @Test
+  public void shouldReadThroughTheReflectorFactoryOfTheConfigurationInstallingTheNativeEngine() {
+    final AtomicInteger lookups = new AtomicInteger();
+    Configuration configuration = new Configuration();
+    configuration.setExpressionEngine(new NativeExpressionEngine());
+    configuration.setReflectorFactory(new DefaultReflectorFactory() {
+      @Override
+      public Reflector findForClass(Class<?> type) {
+        lookups.incrementAndGet();
+        return super.findForClass(type);
+      }
+    });
+    ExpressionEvaluator evaluator = new ExpressionEvaluator(configuration.getExpressionEngine());
+    assertTrue(evaluator.evaluateBoolean("username != null",
+        new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS)));
+    assertEquals(1, lookups.get());
+  }
+
+  @Test
+  public void shouldNotCallAFailingGetterAgainThroughOgnl() {
+    Configuration configuration = new Configuration();
+    configuration.setSimpleExpressionFastPath(true);
+    ExpressionEvaluator evaluator = new ExpressionEvaluator(configuration.getExpressionEngine());
+    FailingBean bean = new FailingBean();
+    BuilderException e = assertThrows(BuilderException.class, () -> evaluator.evaluateBoolean("name != null", bean));
+    assertTrue(e.getMessage().contains("name != null"));
+    assertEquals(1, bean.calls);
+  }
+
+  @Test
+  public void shouldEvaluateWithNativeEngine() {
+    ExpressionEvaluator nativeEvaluator = new ExpressionEvaluator(new NativeExpressionEngine());
+    Map<String, Object> param = new HashMap<>();
+    param.put("name", "cbegin");
+    param.put("empty", "");
+    param.put("zero", 0);
+    param.put("big", 10L);
+    param.put("list", Arrays.asList(1, 2));
+    param.put("none", Collections.emptyList());
+    param.put("array", new String[] { "a" });
+    param.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), param).getBindings();
+    assertTrue(nativeEvaluator.evaluateBoolean("name != null and name != ''", bindings));
+    assertFalse(nativeEvaluator.evaluateBoolean("empty != null and empty != ''", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("missing == null || missing == \"\"", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("author.username == 'cbegin' and author.password == null", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("author.id gte 1 and big > author.id", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("author.favouriteSection == 'NEWS'", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("list.size() == 2 and list.size == 2 and none.isEmpty()", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("array.length == 1 and name.length() == 6", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("not (zero or none.size() > 0)", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("_parameter.size() == 8", bindings));
+    assertTrue(nativeEvaluator.evaluateBoolean("_parameter.keySet.size() == 8 and _parameter.keys.size() == 8", bindings));
+    assertEquals(Arrays.asList(1, 2), nativeEvaluator.evaluateIterable("list", bindings));
+    // a string is never equal to a number natively
+    assertFalse(nativeEvaluator.evaluateBoolean("zero == ''", bindings));
+    // unsupported syntax is handed to OGNL
+    assertTrue(nativeEvaluator.evaluateBoolean("list[1] == 2 and name.startsWith('c')", bindings));
+    BuilderException e = assertThrows(BuilderException.class, () -> nativeEvaluator.evaluateBoolean("missing.size() > 0", bindings));
+    assertTrue(e.getMessage().contains("missing.size() > 0"));
+    assertThrows(BuilderException.class, () -> nativeEvaluator.evaluateBoolean("author.unknown != null", bindings));
+  }
+
+  public static class FailingBean {
+    private int calls;
+
+    public String getName() {
+      calls++;
+      throw new IllegalStateException("not readable");
+    }
+  }
 
 }
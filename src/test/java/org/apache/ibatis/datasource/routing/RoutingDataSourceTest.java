@@ -0,0 +1,238 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.annotations.UsePrimary;
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RoutingDataSourceTest {
+
+  private FailingDataSource primary;
+  private FailingDataSource replica1;
+  private FailingDataSource replica2;
+  private RoutingDataSource dataSource;
+
+  @BeforeEach
+  public void setup() throws SQLException {
+    primary = createDatabase("primary");
+    replica1 = createDatabase("replica1");
+    replica2 = createDatabase("replica2");
+    dataSource = new RoutingDataSource(primary);
+    dataSource.setHealthCheckInterval(0);
+  }
+
+  @Test
+  public void shouldReadFromReplicasUntilTheTransactionWrites() {
+    dataSource.addReplica(replica1, 1);
+    for (ExecutorType executorType : ExecutorType.values()) {
+      try (SqlSession session = createSqlSessionFactory().openSession(executorType, true)) {
+        Mapper mapper = session.getMapper(Mapper.class);
+        assertEquals("replica1", mapper.whoAmI());
+        mapper.touch();
+        assertEquals("primary", mapper.whoAmI());
+        session.commit(true);
+        assertEquals("replica1", mapper.whoAmI());
+      }
+    }
+  }
+
+  @Test
+  public void shouldReadFromThePrimaryWhenHinted() {
+    dataSource.addReplica(replica1, 1);
+    try (SqlSession session = createSqlSessionFactory().openSession(true)) {
+      assertEquals("primary", session.getMapper(Mapper.class).whoIsPrimary());
+      assertEquals("primary", session.getMapper(PrimaryMapper.class).whoAmI());
+      assertEquals("replica1", session.getMapper(Mapper.class).whoAmI());
+    }
+  }
+
+  @Test
+  public void shouldReadFromThePrimaryInTransactionsUnlessReadOnly() {
+    dataSource.addReplica(replica1, 1);
+    try (SqlSession session = createSqlSessionFactory().openSession()) {
+      assertEquals("primary", session.getMapper(Mapper.class).whoAmI());
+    }
+    Properties properties = new Properties();
+    properties.setProperty("readOnly", "true");
+    try (SqlSession session = createSqlSessionFactory(properties).openSession()) {
+      assertEquals("replica1", session.getMapper(Mapper.class).whoAmI());
+    }
+  }
+
+  @Test
+  public void shouldSpreadReadsByWeight() throws SQLException {
+    dataSource.addReplica(replica1, 3);
+    dataSource.addReplica(replica2, 1);
+    int replica1Reads = 0;
+    for (int i = 0; i < 1000; i++) {
+      if ("replica1".equals(whoAmI(dataSource.getReplicaConnection()))) {
+        replica1Reads++;
+      }
+    }
+    assertTrue(replica1Reads > 650 && replica1Reads < 850, "replica1 got " + replica1Reads + " reads");
+    assertThrows(DataSourceException.class, () -> dataSource.addReplica(replica2, 0));
+  }
+
+  @Test
+  public void shouldEjectFailingReplicasAndReadmitThemOnceHealthy() throws SQLException {
+    dataSource.addReplica(replica1, 1);
+    replica1.failing = true;
+    assertEquals("primary", whoAmI(dataSource.getReplicaConnection()));
+    assertEquals(0, dataSource.getAvailableReplicaCount());
+
+    dataSource.checkReplicas();
+    assertEquals(0, dataSource.getAvailableReplicaCount());
+
+    replica1.failing = false;
+    dataSource.checkReplicas();
+    assertEquals(1, dataSource.getAvailableReplicaCount());
+    assertEquals("replica1", whoAmI(dataSource.getReplicaConnection()));
+  }
+
+  @Test
+  public void shouldLetAnUnusedDataSourceBeGarbageCollected() throws Exception {
+    WeakReference<RoutingDataSource> reference = openUnusedDataSource();
+    for (int i = 0; i < 100 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(reference.get());
+  }
+
+  private WeakReference<RoutingDataSource> openUnusedDataSource() {
+    RoutingDataSource ds = new RoutingDataSource(primary);
+    ds.setHealthCheckInterval(10);
+    ds.addReplica(replica1, 1);
+    return new WeakReference<>(ds);
+  }
+
+  @Test
+  public void shouldEjectReplicasLaggingBehind() throws SQLException {
+    dataSource.addReplica(replica1, 1);
+    dataSource.addReplica(replica2, 1);
+    dataSource.setReplicaLagQuery("SELECT LAG FROM REPLICATION");
+    dataSource.setMaxReplicaLag(1000);
+    execute(replica2, "UPDATE REPLICATION SET LAG = 5000");
+
+    dataSource.checkReplicas();
+    assertEquals(1, dataSource.getAvailableReplicaCount());
+    for (int i = 0; i < 10; i++) {
+      assertEquals("replica1", whoAmI(dataSource.getReplicaConnection()));
+    }
+
+    execute(replica2, "UPDATE REPLICATION SET LAG = 0");
+    dataSource.checkReplicas();
+    assertEquals(2, dataSource.getAvailableReplicaCount());
+  }
+
+  private SqlSessionFactory createSqlSessionFactory() {
+    return createSqlSessionFactory(null);
+  }
+
+  private SqlSessionFactory createSqlSessionFactory(Properties properties) {
+    RoutingTransactionFactory transactionFactory = new RoutingTransactionFactory();
+    transactionFactory.setProperties(properties);
+    Configuration configuration = new Configuration(new Environment("test", transactionFactory, dataSource));
+    configuration.addMapper(Mapper.class);
+    configuration.addMapper(PrimaryMapper.class);
+    return new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  private static FailingDataSource createDatabase(String name) throws SQLException {
+    FailingDataSource ds = new FailingDataSource("jdbc:hsqldb:mem:routing_" + name);
+    execute(ds, "DROP TABLE DATABASE IF EXISTS");
+    execute(ds, "DROP TABLE REPLICATION IF EXISTS");
+    execute(ds, "CREATE TABLE DATABASE (NAME VARCHAR(20))");
+    execute(ds, "INSERT INTO DATABASE VALUES ('" + name + "')");
+    execute(ds, "CREATE TABLE REPLICATION (LAG INTEGER)");
+    execute(ds, "INSERT INTO REPLICATION VALUES (0)");
+    return ds;
+  }
+
+  private static void execute(DataSource ds, String sql) throws SQLException {
+    try (Connection connection = ds.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private static String whoAmI(Connection connection) throws SQLException {
+    try (Connection c = connection; Statement statement = c.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT NAME FROM DATABASE")) {
+      rs.next();
+      return rs.getString(1);
+    }
+  }
+
+  static class FailingDataSource extends UnpooledDataSource {
+    volatile boolean failing;
+
+    FailingDataSource(String url) {
+      super("org.hsqldb.jdbcDriver", url, "sa", "");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      if (failing) {
+        throw new SQLException("Connection refused");
+      }
+      return super.getConnection();
+    }
+  }
+
+  interface Mapper {
+    @Select("SELECT NAME FROM DATABASE")
+    String whoAmI();
+
+    @UsePrimary
+    @Select("SELECT NAME FROM DATABASE")
+    String whoIsPrimary();
+
+    @Update("UPDATE DATABASE SET NAME = NAME")
+    int touch();
+  }
+
+  @UsePrimary
+  interface PrimaryMapper {
+    @Select("SELECT NAME FROM DATABASE")
+    String whoAmI();
+  }
+
+}
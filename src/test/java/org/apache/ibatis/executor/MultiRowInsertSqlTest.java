@@ -0,0 +1,55 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class MultiRowInsertSqlTest {
+
+  @Test
+  public void shouldRepeatTheValuesRow() {
+    MultiRowInsertSql sql = MultiRowInsertSql.parse("insert into users (id, name) values (?, upper(?))\n", 3);
+    assertEquals("insert into users (id, name) values (?, upper(?))", sql.getSql(1));
+    assertEquals("insert into users (id, name) values (?, upper(?)),(?, upper(?)),(?, upper(?))", sql.getSql(3));
+    assertEquals("INSERT INTO t VALUES(?, ')'),(?, ')')", MultiRowInsertSql.parse("INSERT INTO t VALUES(?, ')')", 2).getSql(2));
+  }
+
+  @Test
+  public void shouldRejectOtherInserts() {
+    assertNull(MultiRowInsertSql.parse("update users set name = ?", 2));
+    assertNull(MultiRowInsertSql.parse("insert into users select * from users where id = ?", 2));
+    assertNull(MultiRowInsertSql.parse("insert into users values (?, ?), (?, ?)", 2));
+    assertNull(MultiRowInsertSql.parse("insert into users values (?, ?) on duplicate key update name = ?", 2));
+    assertNull(MultiRowInsertSql.parse("insert into users (id) values (?); delete from users", 2));
+    assertNull(MultiRowInsertSql.parse("insert into users_? (id) values (?)", 2));
+  }
+
+  @Test
+  public void shouldKeepTheRowsUnderTheParameterLimit() {
+    assertEquals(1000, MultiRowInsertSql.maxRows(1000, 2, 0));
+    assertEquals(1000, MultiRowInsertSql.maxRows(1000, 2, -1));
+    assertEquals(1000, MultiRowInsertSql.maxRows(1000, 0, 2100));
+    assertEquals(700, MultiRowInsertSql.maxRows(1000, 3, 2100));
+    assertEquals(1, MultiRowInsertSql.maxRows(1000, 3000, 2100));
+    assertEquals(2100, MultiRowInsertSql.maxParameters("Microsoft SQL Server"));
+    assertEquals(65535, MultiRowInsertSql.maxParameters("PostgreSQL"));
+    assertEquals(0, MultiRowInsertSql.maxParameters("HSQL Database Engine"));
+  }
+
+}
@@ -15,7 +15,16 @@
  */
 package org.apache.ibatis.executor;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
 import org.junit.jupiter.api.Test;
 
 public class ReuseExecutorTest extends BaseExecutorTest {
@@ -30,6 +39,42 @@ public class ReuseExecutorTest extends BaseExecutorTest {
     super.shouldFetchPostWithBlogWithCompositeKey();
   }
 
+  @Test
+  public void shouldReuseStatementsOfPooledConnectionsAcrossSessions() throws Exception {
+    PooledDataSource pooledDataSource = createPooledDataSource(BLOG_PROPERTIES);
+    pooledDataSource.setPoolStatementCacheSize(1);
+    try {
+      MappedStatement selectAuthors = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      MappedStatement selectAuthor = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      for (int i = 0; i < 2; i++) {
+        Executor executor = createExecutor(new JdbcTransaction(pooledDataSource, null, false));
+        try {
+          List<Author> authors = executor.query(selectAuthors, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+          assertEquals(2, authors.size());
+          executor.commit(true);
+        } finally {
+          executor.close(false);
+        }
+      }
+      assertEquals(1, pooledDataSource.getPoolState().getStatementCacheMissCount());
+      assertEquals(1, pooledDataSource.getPoolState().getStatementCacheHitCount());
+
+      Executor executor = createExecutor(new JdbcTransaction(pooledDataSource, null, false));
+      try {
+        executor.query(selectAuthor, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        executor.query(selectAuthors, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      } finally {
+        executor.close(false);
+      }
+      assertEquals(2, pooledDataSource.getPoolState().getStatementCacheMissCount());
+      assertEquals(2, pooledDataSource.getPoolState().getStatementCacheHitCount());
+      // the cache holds one statement, so one of the two returned is closed
+      assertEquals(1, pooledDataSource.getPoolState().getStatementCacheEvictionCount());
+    } finally {
+      pooledDataSource.forceCloseAll();
+    }
+  }
+
   @Override
   protected Executor createExecutor(Transaction transaction) {
     return new ReuseExecutor(config,transaction);
@@ -17,16 +17,30 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.BaseDataTest;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.ibatis.datasource.pooled.Histogram;
+import org.apache.ibatis.datasource.pooled.PoolListener;
+import org.apache.ibatis.datasource.pooled.PoolState;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
@@ -75,6 +89,234 @@ public class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  public void shouldShareConnectionsBetweenThreads() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(3);
+      ds.setPoolTimeToWait(100);
+      AtomicInteger inUse = new AtomicInteger();
+      AtomicInteger maxInUse = new AtomicInteger();
+      List<Thread> threads = new ArrayList<>();
+      List<Throwable> failures = new CopyOnWriteArrayList<>();
+      for (int i = 0; i < 12; i++) {
+        threads.add(new Thread(() -> {
+          try {
+            for (int j = 0; j < 50; j++) {
+              try (Connection c = ds.getConnection()) {
+                maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                c.getAutoCommit();
+                inUse.decrementAndGet();
+              }
+            }
+          } catch (Throwable t) {
+            failures.add(t);
+          }
+        }));
+      }
+      for (Thread thread : threads) {
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertTrue(failures.isEmpty(), failures.toString());
+      assertTrue(maxInUse.get() <= 3);
+      assertEquals(600, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 3);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldServeShortLivedThreadsWithoutThreadAffinity() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolThreadAffinity(false);
+      List<Throwable> failures = new CopyOnWriteArrayList<>();
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        // a thread per task, each borrowing a single connection
+        Thread thread = new Thread(() -> {
+          try (Connection c = ds.getConnection()) {
+            c.getAutoCommit();
+          } catch (Throwable t) {
+            failures.add(t);
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertTrue(failures.isEmpty(), failures.toString());
+      assertEquals(200, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 3);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldKeepMinimumIdleConnectionsOpen() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(4);
+      ds.setPoolMaximumIdleConnections(3);
+      ds.setPoolMinimumIdleConnections(2);
+      try (Connection c = ds.getConnection()) {
+        waitForIdleConnections(ds, 2);
+        assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      }
+      waitForIdleConnections(ds, 3);
+      try (Connection c1 = ds.getConnection(); Connection c2 = ds.getConnection(); Connection c3 = ds.getConnection()) {
+        // only one connection is left to open
+        waitForIdleConnections(ds, 1);
+        assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      }
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseIdleConnectionsInTheBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumIdleConnections(3);
+      ds.setPoolMinimumIdleConnections(1);
+      ds.setPoolIdleTimeout(100);
+      ds.setPoolHousekeepingInterval(20);
+      try (Connection c1 = ds.getConnection(); Connection c2 = ds.getConnection(); Connection c3 = ds.getConnection()) {
+        c1.getAutoCommit();
+      }
+      waitForIdleConnections(ds, 1);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReplaceConnectionsInTheBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(1);
+      ds.setPoolKeepaliveTime(10);
+      ds.setPoolMaximumLifetime(300);
+      ds.setPoolHousekeepingInterval(20);
+      Connection realConnection;
+      try (Connection c = ds.getConnection()) {
+        realConnection = PooledDataSource.unwrapConnection(c);
+      }
+      Connection otherConnection;
+      try (Connection c = ds.getConnection()) {
+        otherConnection = PooledDataSource.unwrapConnection(c);
+      }
+      // broken while idle, found by the keepalive test
+      realConnection.close();
+      otherConnection.close();
+      Thread.sleep(100);
+      try (Connection c = ds.getConnection()) {
+        realConnection = PooledDataSource.unwrapConnection(c);
+        assertFalse(realConnection.isClosed());
+      }
+      // closed at the end of its lifetime
+      for (int i = 0; i < 100 && !realConnection.isClosed(); i++) {
+        Thread.sleep(10);
+      }
+      assertTrue(realConnection.isClosed());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldLetAnUnusedPoolBeGarbageCollected() throws Exception {
+    WeakReference<PooledDataSource> reference = openUnusedPool();
+    for (int i = 0; i < 100 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(reference.get());
+  }
+
+  private WeakReference<PooledDataSource> openUnusedPool() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolIdleTimeout(100);
+    ds.setPoolHousekeepingInterval(10);
+    ds.getConnection().close();
+    return new WeakReference<>(ds);
+  }
+
+  @Test
+  public void shouldTimeOutWaitingForAConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(10000);
+      ds.setPoolMaximumWaitTime(100);
+      try (Connection c = ds.getConnection()) {
+        long start = System.currentTimeMillis();
+        assertThrows(SQLTransientConnectionException.class, ds::getConnection);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+      }
+      assertEquals(1, ds.getPoolState().getTimedOutWaitCount());
+      Histogram waitTimes = ds.getPoolState().getWaitTimeHistogram();
+      assertEquals(2, waitTimes.getCount());
+      assertTrue(waitTimes.getMax() >= 100);
+      assertTrue(waitTimes.getPercentile(50) < 100);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldServeWaitingThreadsInArrivalOrder() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      List<String> order = new CopyOnWriteArrayList<>();
+      List<Thread> threads = new ArrayList<>();
+      try (Connection c = ds.getConnection()) {
+        for (String name : new String[] { "first", "second", "third" }) {
+          Thread thread = new Thread(() -> {
+            try (Connection waited = ds.getConnection()) {
+              order.add(name);
+            } catch (SQLException e) {
+              order.add(e.toString());
+            }
+          });
+          threads.add(thread);
+          thread.start();
+          while (thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(5);
+          }
+        }
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(Arrays.asList("first", "second", "third"), order);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private void waitForIdleConnections(PooledDataSource ds, int count) throws InterruptedException {
+    for (int i = 0; i < 500 && ds.getPoolState().getIdleConnectionCount() != count; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, ds.getPoolState().getIdleConnectionCount());
+  }
+
   @Test
   public void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -83,6 +325,191 @@ public class PooledDataSourceTest extends BaseDataTest {
     c.toString();
   }
 
+  @Test
+  public void shouldRejectCallsOnAReturnedConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    Connection c = ds.getConnection();
+    c.close();
+    try {
+      c.createStatement();
+      fail("Expected an SQLException");
+    } catch (SQLException e) {
+      assertEquals("Error accessing PooledConnection. Connection is invalid.", e.getMessage());
+    }
+    c.close();
+    assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    assertEquals(1, ds.getPoolState().getBadConnectionCount());
+  }
+
+  @Test
+  public void shouldCacheStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolStatementCacheSize(2);
+    String sql = "SELECT COUNT(*) FROM PRODUCT WHERE CATEGORY = ?";
+    PreparedStatement first;
+    try (Connection c = ds.getConnection()) {
+      first = c.prepareStatement(sql);
+      first.setString(1, "FISH");
+      first.setQueryTimeout(5);
+      try (ResultSet rs = first.executeQuery()) {
+        assertTrue(rs.next());
+      }
+      assertSame(c, first.getConnection());
+      first.close();
+      assertTrue(first.isClosed());
+      try {
+        first.executeQuery();
+        fail("Expected an SQLException");
+      } catch (SQLException e) {
+        // expected
+      }
+    }
+    try (Connection c = ds.getConnection(); PreparedStatement second = c.prepareStatement(sql)) {
+      assertNotSame(first, second);
+      assertEquals(0, second.getQueryTimeout());
+      second.setString(1, "DOGS");
+      try (ResultSet rs = second.executeQuery()) {
+        assertTrue(rs.next());
+      }
+    }
+    assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    assertEquals(1, ds.getPoolState().getStatementCacheMissCount());
+    assertEquals(0.5, ds.getPoolState().getStatementCacheHitRatio(), 0.001);
+    ds.forceCloseAll();
+  }
+
+  @Test
+  public void shouldCloseResultSetsBeforeCachingStatements() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolStatementCacheSize(2);
+    try (Connection c = ds.getConnection()) {
+      PreparedStatement st = c.prepareStatement("SELECT COUNT(*) FROM PRODUCT WHERE CATEGORY = ?");
+      st.setString(1, "FISH");
+      ResultSet queried = st.executeQuery();
+      st.close();
+      assertTrue(queried.isClosed());
+
+      st = c.prepareStatement("SELECT COUNT(*) FROM PRODUCT WHERE CATEGORY = ?");
+      st.setString(1, "FISH");
+      assertTrue(st.execute());
+      ResultSet current = st.getResultSet();
+      st.close();
+      assertTrue(current.isClosed());
+    }
+    ds.forceCloseAll();
+  }
+
+  @Test
+  public void shouldReportMetricsToListenersAndJmx() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    List<String> events = new CopyOnWriteArrayList<>();
+    ds.addPoolListener(new PoolListener() {
+      @Override
+      public void connectionCreated(long createTime) {
+        events.add("created");
+      }
+
+      @Override
+      public void connectionBorrowed(long waitTime) {
+        events.add("borrowed");
+      }
+
+      @Override
+      public void connectionReturned(long holdTime) {
+        events.add("returned");
+      }
+
+      @Override
+      public void connectionClosed() {
+        events.add("closed");
+      }
+    });
+    ds.setPoolJmxName("metrics-test");
+    try {
+      Connection c = ds.getConnection();
+      Thread.sleep(20);
+      c.close();
+      ds.forceCloseAll();
+      assertEquals(Arrays.asList("created", "borrowed", "returned", "closed"), events);
+
+      PoolState poolState = ds.getPoolState();
+      assertEquals(1, poolState.getHoldTimeHistogram().getCount());
+      assertTrue(poolState.getHoldTimeHistogram().get99thPercentile() >= 20);
+      assertEquals(1, poolState.getCreateTimeHistogram().getCount());
+      assertEquals(0, poolState.getPendingConnectionCount());
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=metrics-test");
+      assertEquals(1L, server.getAttribute(name, "RequestCount"));
+      CompositeData holdTime = (CompositeData) server.getAttribute(name, "HoldTimeHistogram");
+      assertEquals(1L, holdTime.get("count"));
+      assertEquals(poolState.getHoldTimeHistogram().get99thPercentile(), holdTime.get("99thPercentile"));
+    } finally {
+      ds.setPoolJmxName(null);
+    }
+    assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+        new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=metrics-test")));
+  }
+
+  @Test
+  public void shouldKeepTheConnectionsOfEachUserApart() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try (Connection c = ds.getConnection(); Statement statement = c.createStatement()) {
+      statement.execute("CREATE USER TENANT PASSWORD 'secret' ADMIN");
+    } catch (SQLException e) {
+      // created by a previous test run in this JVM
+    }
+    ds.setPoolMaximumActiveConnections(3);
+    ds.setPoolMaximumActiveConnectionsPerUser(2);
+    ds.setPoolMaximumWaitTime(500);
+    try {
+      Connection tenant = ds.getConnection("TENANT", "secret");
+      assertEquals("TENANT", tenant.getMetaData().getUserName());
+      Connection realConnection = PooledDataSource.unwrapConnection(tenant);
+      tenant.close();
+      Connection sa = ds.getConnection();
+      assertEquals("SA", sa.getMetaData().getUserName());
+      // the idle connection of the other user is not handed out
+      assertNotSame(realConnection, PooledDataSource.unwrapConnection(sa));
+      Connection tenant1 = ds.getConnection("TENANT", "secret");
+      assertSame(realConnection, PooledDataSource.unwrapConnection(tenant1));
+      Connection tenant2 = ds.getConnection("TENANT", "secret");
+      assertEquals(2, ds.getPoolState().getActiveConnectionCount("TENANT"));
+      assertThrows(SQLTransientConnectionException.class, () -> ds.getConnection("TENANT", "secret"));
+
+      // the pool is full: a connection returned by the tenant is replaced by one for the waiting user
+      List<Connection> borrowed = new CopyOnWriteArrayList<>();
+      Thread waiter = new Thread(() -> {
+        try {
+          borrowed.add(ds.getConnection());
+        } catch (SQLException e) {
+          // fails the assertion below
+        }
+      });
+      waiter.start();
+      Thread.sleep(100);
+      tenant1.close();
+      waiter.join();
+      assertEquals(1, borrowed.size());
+      assertEquals("SA", borrowed.get(0).getMetaData().getUserName());
+      assertEquals(2, ds.getPoolState().getActiveConnectionCount("sa"));
+
+      // idle connections of the other user make room
+      sa.close();
+      borrowed.get(0).close();
+      tenant2.close();
+      assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+      tenant1 = ds.getConnection("TENANT", "secret");
+      tenant2 = ds.getConnection("TENANT", "secret");
+      assertEquals(2, ds.getPoolState().getActiveConnectionCount("TENANT"));
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      tenant1.close();
+      tenant2.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Test
   public void ShouldReturnRealConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
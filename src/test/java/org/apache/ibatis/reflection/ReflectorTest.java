@@ -218,4 +218,36 @@ public class ReflectorTest {
     Reflector reflector = reflectorFactory.findForClass(Bean.class);
     assertTrue((Boolean)reflector.getGetInvoker("bool").invoke(new Bean(), new Byte[0]));
   }
+
+  @Test
+  public void shouldReadAndWritePrimitivePropertiesWithoutBoxing() throws Exception {
+    @SuppressWarnings("unused")
+    class Bean {
+      private int count;
+      private long total;
+      private double ratio;
+      private boolean active;
+      private Integer boxed;
+      public int getCount() {return count;}
+      public void setCount(int count) {this.count = count;}
+      public boolean isActive() {return active;}
+      public void setActive(boolean active) {this.active = active;}
+      public Integer getBoxed() {return boxed;}
+      public void setBoxed(Integer boxed) {this.boxed = boxed;}
+    }
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getPrimitiveSetter("count").setInt(bean, 3);
+    reflector.getPrimitiveSetter("total").setLong(bean, 4L);
+    reflector.getPrimitiveSetter("ratio").setDouble(bean, 0.5d);
+    reflector.getPrimitiveSetter("active").setBoolean(bean, true);
+    assertEquals(3, reflector.getPrimitiveGetter("count").getInt(bean));
+    assertEquals(4L, reflector.getPrimitiveGetter("total").getLong(bean));
+    assertEquals(0.5d, reflector.getPrimitiveGetter("ratio").getDouble(bean), 0.0001d);
+    assertTrue(reflector.getPrimitiveGetter("active").getBoolean(bean));
+    assertEquals(int.class, reflector.getPrimitiveGetter("count").getType());
+    assertNull(reflector.getPrimitiveSetter("boxed"));
+    assertNull(reflector.getPrimitiveGetter("unknown"));
+  }
 }
@@ -16,6 +16,7 @@
 package org.apache.ibatis.submitted.batch_keys;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.Reader;
 import java.sql.Connection;
@@ -23,16 +24,32 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.ibatis.BaseDataTest;
 import org.junit.jupiter.api.Assertions;
 
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -50,6 +67,11 @@ public class BatchKeysTest {
             "org/apache/ibatis/submitted/batch_keys/CreateDB.sql");
   }
 
+  @AfterEach
+  public void tearDown() {
+    sqlSessionFactory.getConfiguration().shutdownBatchPipelineExecutor();
+  }
+
   public void testJdbc3Support() throws Exception {
     try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
          PreparedStatement stmt = conn.prepareStatement("insert into users2 values(null, 'Pocoyo')", Statement.RETURN_GENERATED_KEYS)) {
@@ -149,6 +171,380 @@ public class BatchKeysTest {
     }
   }
 
+  @Test
+  public void testMultiRowInsertJdbc3() {
+    sqlSessionFactory.getConfiguration().setMultiRowInsertSize(2);
+    List<String> preparedSql = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().addInterceptor(new PreparedSqlRecorder(preparedSql));
+    List<BatchResult> results;
+    User[] users = new User[5];
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < users.length; i++) {
+        users[i] = new User(null, "User" + i);
+        userMapper.insertIdentity(users[i]);
+      }
+      results = sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(Arrays.asList("insert into users2 (name) values(?),(?)", "insert into users2 (name) values(?)"), preparedSql);
+    assertEquals(1, results.size());
+    assertEquals(5, results.get(0).getParameterObjects().size());
+    Assertions.assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+    for (int i = 0; i < users.length; i++) {
+      assertEquals(Integer.valueOf(i), users[i].getId());
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> inserted = sqlSession.selectList("selectIdentity");
+      assertEquals(5, inserted.size());
+      assertEquals("User4", inserted.get(4).getName());
+    }
+  }
+
+  @Test
+  public void testMultiRowInsertUnderParameterLimit() {
+    sqlSessionFactory.getConfiguration().setMultiRowInsertSize(10);
+    sqlSessionFactory.getConfiguration().setMultiRowInsertMaxParameters(3);
+    List<String> preparedSql = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().addInterceptor(new PreparedSqlRecorder(preparedSql));
+    List<BatchResult> results;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 7; i++) {
+        userMapper.insertIdentity(new User(null, "User" + i));
+      }
+      results = sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(Arrays.asList("insert into users2 (name) values(?),(?),(?)", "insert into users2 (name) values(?)"), preparedSql);
+    Assertions.assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(7, sqlSession.selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  public void testMultiRowInsertReusingParameterObject() {
+    sqlSessionFactory.getConfiguration().setMultiRowInsertSize(3);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      User user = new User();
+      for (int i = 0; i < 5; i++) {
+        user.setName("User" + i);
+        userMapper.insertIdentity(user);
+      }
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> inserted = sqlSession.selectList("selectIdentity");
+      assertEquals(5, inserted.size());
+      for (int i = 0; i < inserted.size(); i++) {
+        assertEquals("User" + i, inserted.get(i).getName());
+      }
+    }
+  }
+
+  @Test
+  public void testGroupInterleavedStatements() {
+    sqlSessionFactory.getConfiguration().setBatchStatementGrouping(true);
+    // the multi-row statement of insertIdentity is prepared after the one of insert, but still runs first
+    sqlSessionFactory.getConfiguration().setMultiRowInsertSize(2);
+    List<BatchResult> results;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 3; i++) {
+        userMapper.insertIdentity(new User(null, "Identity" + i));
+        userMapper.insert(new User(i, "User" + i));
+      }
+      results = sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(2, results.size());
+    assertEquals("org.apache.ibatis.submitted.batch_keys.Mapper.insertIdentity", results.get(0).getMappedStatement().getId());
+    assertEquals(3, results.get(0).getParameterObjects().size());
+    assertEquals(Integer.valueOf(2), ((User) results.get(0).getParameterObjects().get(2)).getId());
+    assertEquals(3, results.get(1).getUpdateCounts().length);
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(3, sqlSession.selectList("select").size());
+      assertEquals(3, sqlSession.selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  public void testAutoFlushToResultHandler() {
+    List<BatchResult> handled = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    sqlSessionFactory.getConfiguration().setBatchResultHandler(handled::add);
+    List<BatchResult> results;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        userMapper.insertIdentity(new User(null, "Identity" + i));
+        if (i == 1) {
+          // the first two rows have been executed
+          assertEquals(1, handled.size());
+          assertEquals(Integer.valueOf(1), ((User) handled.get(0).getParameterObjects().get(1)).getId());
+        }
+      }
+      results = sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(2, handled.size());
+    assertEquals(1, results.size());
+    assertEquals(1, results.get(0).getParameterObjects().size());
+    assertEquals(Integer.valueOf(4), ((User) results.get(0).getParameterObjects().get(0)).getId());
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(5, sqlSession.selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  public void testAutoFlushToSessionResultHandler() {
+    List<BatchResult> shared = new ArrayList<>();
+    List<BatchResult> first = new ArrayList<>();
+    List<BatchResult> second = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    sqlSessionFactory.getConfiguration().setBatchResultHandler(shared::add);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(first::add)) {
+      for (int i = 0; i < 2; i++) {
+        sqlSession.getMapper(Mapper.class).insertIdentity(new User(null, "First" + i));
+      }
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(second::add)) {
+      for (int i = 0; i < 4; i++) {
+        sqlSession.getMapper(Mapper.class).insertIdentity(new User(null, "Second" + i));
+      }
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 0; i < 2; i++) {
+        sqlSession.getMapper(Mapper.class).insertIdentity(new User(null, "Shared" + i));
+      }
+      sqlSession.commit();
+    }
+    assertEquals(1, first.size());
+    assertEquals("First1", ((User) first.get(0).getParameterObjects().get(1)).getName());
+    assertEquals(2, second.size());
+    assertEquals("Second3", ((User) second.get(1).getParameterObjects().get(1)).getName());
+    assertEquals(1, shared.size());
+    assertEquals("Shared1", ((User) shared.get(0).getParameterObjects().get(1)).getName());
+  }
+
+  @Test
+  public void testAutoFlushKeepsResultsWithoutHandler() {
+    // each row of "insert" binds two parameters, so every second row reaches the threshold
+    sqlSessionFactory.getConfiguration().setBatchFlushBytes(20);
+    List<BatchResult> results;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 3; i++) {
+        userMapper.insert(new User(i, "User" + i));
+      }
+      results = sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(2, results.size());
+    assertEquals(2, results.get(0).getUpdateCounts().length);
+    assertEquals(1, results.get(1).getUpdateCounts().length);
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(3, sqlSession.selectList("select").size());
+    }
+  }
+
+  @Test
+  public void testPipelinedBatches() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    sqlSessionFactory.getConfiguration().setBatchPipelineDepth(1);
+    List<BatchResult> results;
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        User user = new User(null, "Identity" + i);
+        users.add(user);
+        userMapper.insertIdentity(user);
+      }
+      results = sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(3, results.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Integer.valueOf(i), users.get(i).getId());
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(5, sqlSession.selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  public void testPipelinedBatchFailure() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    sqlSessionFactory.getConfiguration().setBatchPipelineDepth(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        // too long for the column
+        userMapper.insertIdentity(new User(null, i == 3 ? "User with a long name" : "User" + i));
+      }
+      sqlSession.flushStatements();
+      Assertions.fail("The second batch should fail");
+    } catch (PersistenceException e) {
+      BatchExecutorException cause = (BatchExecutorException) e.getCause();
+      assertEquals("org.apache.ibatis.submitted.batch_keys.Mapper.insertIdentity", cause.getFailingStatementId());
+      assertTrue(cause.getMessage().startsWith(
+          "org.apache.ibatis.submitted.batch_keys.Mapper.insertIdentity (batch index #2) failed. 1 prior sub executor(s) completed successfully"));
+      assertEquals(1, cause.getSuccessfulBatchResults().size());
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(0, sqlSession.selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  public void testPipelinePreparesStatementsOnSenderThread() {
+    List<String> prepareThreads = Collections.synchronizedList(new ArrayList<>());
+    sqlSessionFactory.getConfiguration().addInterceptor(new PrepareThreadRecorder(prepareThreads));
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    sqlSessionFactory.getConfiguration().setBatchPipelineDepth(1);
+    sqlSessionFactory.getConfiguration().setMultiRowInsertSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 4; i++) {
+        userMapper.insertIdentity(new User(null, "Identity" + i));
+      }
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(2, prepareThreads.size());
+    for (String thread : prepareThreads) {
+      assertTrue(thread.startsWith("mybatis-batch-sender-"), thread);
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(4, sqlSession.selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  public void testPipelineUsesConfiguredExecutor() {
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "custom-sender"));
+    List<String> handlerThreads = Collections.synchronizedList(new ArrayList<>());
+    try {
+      sqlSessionFactory.getConfiguration().setBatchPipelineExecutor(executor);
+      sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+      sqlSessionFactory.getConfiguration().setBatchPipelineDepth(1);
+      sqlSessionFactory.getConfiguration().setBatchResultHandler(batchResult -> handlerThreads.add(Thread.currentThread().getName()));
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+        Mapper userMapper = sqlSession.getMapper(Mapper.class);
+        for (int i = 0; i < 4; i++) {
+          userMapper.insertIdentity(new User(null, "Identity" + i));
+        }
+        sqlSession.flushStatements();
+        sqlSession.commit();
+      }
+      assertEquals(Arrays.asList("custom-sender", "custom-sender"), handlerThreads);
+      // the supplied pool belongs to the caller
+      sqlSessionFactory.getConfiguration().shutdownBatchPipelineExecutor();
+      Assertions.assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testPipelineRunsSelectKeyOnCallingThread() {
+    List<String> handlerThreads = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    sqlSessionFactory.getConfiguration().setBatchPipelineDepth(1);
+    sqlSessionFactory.getConfiguration().setBatchResultHandler(batchResult -> {
+      synchronized (handlerThreads) {
+        handlerThreads.add(Thread.currentThread().getName());
+      }
+    });
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      userMapper.insertIdentity(new User(null, "Identity0"));
+      userMapper.insertIdentity(new User(null, "Identity1"));
+      for (int i = 0; i < 2; i++) {
+        User user = new User(null, "User" + i);
+        users.add(user);
+        userMapper.insert(user);
+      }
+      sqlSession.flushStatements();
+      sqlSession.commit();
+    }
+    assertEquals(2, handlerThreads.size());
+    assertTrue(handlerThreads.get(0).startsWith("mybatis-batch-sender-"));
+    assertEquals(Thread.currentThread().getName(), handlerThreads.get(1));
+    for (User user : users) {
+      assertEquals(Integer.valueOf(50), user.getId());
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(2, sqlSession.selectList("select").size());
+      assertEquals(2, sqlSession.selectList("selectIdentity").size());
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  public static class PrepareThreadRecorder implements Interceptor {
+    private final List<String> prepareThreads;
+
+    PrepareThreadRecorder(List<String> prepareThreads) {
+      this.prepareThreads = prepareThreads;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      prepareThreads.add(Thread.currentThread().getName());
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  public static class PreparedSqlRecorder implements Interceptor {
+    private final List<String> preparedSql;
+
+    PreparedSqlRecorder(List<String> preparedSql) {
+      this.preparedSql = preparedSql;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      preparedSql.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
   @Test
   public void testInsertMapperNoBatchJdbc3() {
     try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
@@ -0,0 +1,131 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.columnar_result;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.resultset.ColumnarResult;
+import org.apache.ibatis.executor.resultset.ColumnarResult.ColumnType;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ColumnarResultTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/columnar_result/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/columnar_result/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldReadColumnsIntoPrimitiveArrays() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getSales();
+      assertEquals(5, result.getRowCount());
+      assertEquals(Arrays.asList("ID", "REGION", "UNITS", "AMOUNT", "PRICE", "SOLD"), result.getColumnNames());
+
+      assertEquals(ColumnType.INT, result.getColumnType("id"));
+      assertArrayEquals(new int[] { 1, 2, 3, 4, 5 }, result.getIntColumn("id"));
+
+      assertEquals(ColumnType.LONG, result.getColumnType("units"));
+      assertArrayEquals(new long[] { 10, 20, 0, 40, 50 }, result.getLongColumn("units"));
+      assertTrue(result.isNull("units", 2));
+      assertFalse(result.isNull("units", 3));
+
+      assertEquals(ColumnType.DOUBLE, result.getColumnType("amount"));
+      assertArrayEquals(new double[] { 1.5, 2.5, 3.5, 0, 5.5 }, result.getDoubleColumn("amount"), 0.0001);
+      assertNull(result.getValue("amount", 3));
+
+      assertEquals(ColumnType.OBJECT, result.getColumnType("price"));
+      assertEquals(new BigDecimal("1.10"), result.getObjectColumn("price")[0]);
+      assertEquals(new BigDecimal("123456789012345678.99"), result.getValue("price", 1));
+      assertNull(result.getValue("price", 3));
+
+      assertEquals(ColumnType.OBJECT, result.getColumnType("sold"));
+      assertEquals(Date.valueOf("2018-01-02"), result.getObjectColumn("sold")[1]);
+      assertNull(result.getObjectColumn("sold")[4]);
+    }
+  }
+
+  @Test
+  public void shouldReadDecimalsIntoPrimitiveArraysWhenEnabled() {
+    sqlSessionFactory.getConfiguration().setColumnarDecimalsAsPrimitives(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getPrices();
+      assertEquals(ColumnType.LONG, result.getColumnType("units"));
+      assertArrayEquals(new long[] { 10, 20, 0, 40, 50 }, result.getLongColumn("units"));
+      assertTrue(result.isNull("units", 2));
+
+      assertEquals(ColumnType.DOUBLE, result.getColumnType("price"));
+      assertArrayEquals(new double[] { 1.1, 123456789012345678.99, 0.1, 0, 5.5 }, result.getDoubleColumn("price"), 0.0001);
+      assertTrue(result.isNull("price", 3));
+    } finally {
+      sqlSessionFactory.getConfiguration().setColumnarDecimalsAsPrimitives(false);
+    }
+  }
+
+  @Test
+  public void shouldDictionaryEncodeStrings() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getSales();
+      assertEquals(ColumnType.STRING, result.getColumnType("region"));
+      assertEquals(Arrays.asList("north", "south", "east"), result.getStringDictionary("region"));
+      assertArrayEquals(new int[] { 0, 1, 0, -1, 2 }, result.getStringCodes("region"));
+      assertEquals("east", result.getValue("region", 4));
+      assertNull(result.getValue("region", 3));
+    }
+  }
+
+  @Test
+  public void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<ColumnarResult> results = sqlSession.selectList("org.apache.ibatis.submitted.columnar_result.Mapper.getSales", null, new RowBounds(1, 3));
+      assertEquals(1, results.size());
+      ColumnarResult result = results.get(0);
+      assertEquals(3, result.getRowCount());
+      assertArrayEquals(new int[] { 2, 3, 4 }, result.getIntColumn("id"));
+    }
+  }
+
+  @Test
+  public void shouldRejectWrongColumnType() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getSales();
+      assertThrows(ExecutorException.class, () -> result.getLongColumn("id"));
+      assertThrows(ExecutorException.class, () -> result.getIntColumn("missing"));
+    }
+  }
+
+}
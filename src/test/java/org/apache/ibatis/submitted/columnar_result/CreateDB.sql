@@ -0,0 +1,34 @@
+--
+--    Copyright ${license.git.copyrightYears} the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table sales if exists;
+
+create table sales (
+  id int,
+  region varchar(20),
+  units bigint,
+  amount double,
+  price decimal(20, 2),
+  sold date
+);
+
+insert into sales (id, region, units, amount, price, sold) values
+(1, 'north', 10, 1.5, 1.10, '2018-01-01'),
+(2, 'south', 20, 2.5, 123456789012345678.99, '2018-01-02'),
+(3, 'north', null, 3.5, 0.10, '2018-01-03'),
+(4, null, 40, null, null, '2018-01-04'),
+(5, 'east', 50, 5.5, 5.50, null);
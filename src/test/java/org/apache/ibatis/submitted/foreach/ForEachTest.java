@@ -18,11 +18,14 @@ package org.apache.ibatis.submitted.foreach;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
@@ -65,6 +68,33 @@ public class ForEachTest {
     }
   }
 
+  @Test
+  public void shouldCountPaddedInList() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assertions.assertEquals(3, mapper.countByIdsPadded(Arrays.asList(1, 3, 5)));
+      Assertions.assertEquals(5, mapper.countByIdsPadded(Arrays.asList(1, 2, 3, 4, 5)));
+    }
+  }
+
+  @Test
+  public void shouldPadOnlyInListsWithTheGlobalSetting() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    List<Integer> ids = Arrays.asList(1, 3, 5);
+    Map<String, Object> param = Collections.singletonMap("list", ids);
+    configuration.setInListPadding(true);
+    try {
+      Assertions.assertEquals(4, configuration.getMappedStatement("countByIds").getBoundSql(param).getParameterMappings().size());
+      Assertions.assertEquals(4, configuration.getMappedStatement("countByIdsOpeningWithIn").getBoundSql(param).getParameterMappings().size());
+      Assertions.assertEquals(3, configuration.getMappedStatement("countByOredIds").getBoundSql(param).getParameterMappings().size());
+      try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+        Assertions.assertEquals(3, sqlSession.<Integer>selectOne("countByOredIds", ids).intValue());
+      }
+    } finally {
+      configuration.setInListPadding(false);
+    }
+  }
+
   @Test
   public void shouldHandleComplexNullItem() {
     try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
@@ -27,6 +27,8 @@ public interface Mapper {
 
   int countByBestFriend(List<User> users);
 
+  int countByIdsPadded(List<Integer> ids);
+
   String selectWithNullItemCheck(List<User> users);
 
   int typoInItemProperty(List<User> users);
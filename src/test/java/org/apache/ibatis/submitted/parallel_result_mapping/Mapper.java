@@ -0,0 +1,53 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_result_mapping;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+public interface Mapper {
+
+  @Insert("insert into items (id, name, price, created, active) values (#{id}, #{name}, #{price}, #{created}, #{active})")
+  void insertItem(Item item);
+
+  @Select("select id, name, price, created, active from items order by id")
+  List<Item> getItems();
+
+  @Select("select id, name, price, created, active from items order by id")
+  List<Item> getItemsWithRowBounds(RowBounds rowBounds);
+
+  @ResultType(Item.class)
+  @Select("select id, name, price, created, active from items order by id")
+  void getItemsWithResultHandler(ResultHandler<Item> resultHandler);
+
+  @Results(@Result(property = "created", column = "created", typeHandler = OffsetDateTimeDateTypeHandler.class))
+  @Select("select id, name, price, created, active from items order by id")
+  List<Item> getItemsWithOffsetDateTimes();
+
+  @Select("select id, name from items order by id")
+  List<Map<String, Object>> getItemMaps();
+
+  @Select("select id from items order by id")
+  List<Integer> getIds();
+}
@@ -0,0 +1,57 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_result_mapping;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.Date;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Reads a timestamp through {@code getObject(column, OffsetDateTime.class)}, which buffered rows cannot convert.
+ */
+public class OffsetDateTimeDateTypeHandler extends BaseTypeHandler<Date> {
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, Date parameter, JdbcType jdbcType) throws SQLException {
+    ps.setTimestamp(i, new Timestamp(parameter.getTime()));
+  }
+
+  @Override
+  public Date getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    return toDate(rs.getObject(columnName, OffsetDateTime.class));
+  }
+
+  @Override
+  public Date getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    return toDate(rs.getObject(columnIndex, OffsetDateTime.class));
+  }
+
+  @Override
+  public Date getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+    return toDate(cs.getObject(columnIndex, OffsetDateTime.class));
+  }
+
+  private static Date toDate(OffsetDateTime value) {
+    return value == null ? null : Date.from(value.toInstant());
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_result_mapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ParallelResultMappingTest {
+
+  private static final int ROWS = 1050;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_result_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/parallel_result_mapping/CreateDB.sql");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= ROWS; i++) {
+        Item item = new Item();
+        item.setId(i);
+        item.setName("item" + i);
+        item.setPrice(new BigDecimal(i).movePointLeft(2));
+        item.setCreated(new Date(1000000L * i));
+        item.setActive(i % 2 == 0);
+        mapper.insertItem(item);
+      }
+      sqlSession.commit();
+    }
+  }
+
+  @Test
+  public void shouldMapAllRowsInOrder() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItems();
+      assertEquals(ROWS, items.size());
+      for (int i = 0; i < ROWS; i++) {
+        Item item = items.get(i);
+        assertEquals(i + 1, item.getId());
+        assertEquals("item" + (i + 1), item.getName());
+        assertEquals(new BigDecimal(i + 1).movePointLeft(2), item.getPrice());
+        assertEquals(1000000L * (i + 1), item.getCreated().getTime());
+        assertEquals((i + 1) % 2 == 0, item.isActive());
+      }
+    }
+  }
+
+  @Test
+  public void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItemsWithRowBounds(new RowBounds(150, 420));
+      assertEquals(420, items.size());
+      assertEquals(151, items.get(0).getId());
+      assertEquals(570, items.get(419).getId());
+    }
+  }
+
+  @Test
+  public void shouldStopWhenResultHandlerStops() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Integer> ids = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).getItemsWithResultHandler(context -> {
+        ids.add(context.getResultObject().getId());
+        if (context.getResultCount() == 250) {
+          context.stop();
+        }
+      });
+      assertEquals(250, ids.size());
+      for (int i = 0; i < ids.size(); i++) {
+        assertEquals(i + 1, ids.get(i).intValue());
+      }
+    }
+  }
+
+  @Test
+  public void shouldMapSequentiallyValuesBufferedRowsCannotConvert() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItemsWithOffsetDateTimes();
+      assertEquals(ROWS, items.size());
+      for (int i = 0; i < ROWS; i++) {
+        assertEquals(i + 1, items.get(i).getId());
+        assertEquals(1000000L * (i + 1), items.get(i).getCreated().getTime());
+      }
+    }
+  }
+
+  @Test
+  public void shouldMapMapsAndPrimitives() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Map<String, Object>> maps = mapper.getItemMaps();
+      assertEquals(ROWS, maps.size());
+      assertEquals("item1000", maps.get(999).get("NAME"));
+      List<Integer> ids = mapper.getIds();
+      assertEquals(ROWS, ids.size());
+      assertEquals(Integer.valueOf(ROWS), ids.get(ROWS - 1));
+    }
+  }
+
+  @Test
+  public void shouldRecreateThePoolAfterShutdown() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService executor = configuration.getResultMappingExecutor();
+    configuration.shutdownResultMappingExecutor();
+    assertTrue(executor.isShutdown());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(ROWS, sqlSession.getMapper(Mapper.class).getItems().size());
+    }
+    assertNotSame(executor, configuration.getResultMappingExecutor());
+  }
+
+}
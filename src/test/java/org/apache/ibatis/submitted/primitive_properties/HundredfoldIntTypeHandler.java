@@ -0,0 +1,83 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_properties;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.PrimitiveIntTypeHandler;
+
+/**
+ * Stores a hundred times the value, and reads it back divided by a hundred, through both its boxed and primitive
+ * methods. Counts the calls to the primitive ones.
+ */
+public class HundredfoldIntTypeHandler extends BaseTypeHandler<Integer> implements PrimitiveIntTypeHandler {
+
+  static final AtomicInteger primitiveCalls = new AtomicInteger();
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, Integer parameter, JdbcType jdbcType) throws SQLException {
+    ps.setInt(i, parameter * 100);
+  }
+
+  @Override
+  public Integer getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    int value = rs.getInt(columnName);
+    return value == 0 && rs.wasNull() ? null : value / 100;
+  }
+
+  @Override
+  public Integer getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    int value = rs.getInt(columnIndex);
+    return value == 0 && rs.wasNull() ? null : value / 100;
+  }
+
+  @Override
+  public Integer getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+    int value = cs.getInt(columnIndex);
+    return value == 0 && cs.wasNull() ? null : value / 100;
+  }
+
+  @Override
+  public void setIntParameter(PreparedStatement ps, int i, int parameter) throws SQLException {
+    primitiveCalls.incrementAndGet();
+    ps.setInt(i, parameter * 100);
+  }
+
+  @Override
+  public int getIntResult(ResultSet rs, String columnName) throws SQLException {
+    primitiveCalls.incrementAndGet();
+    return rs.getInt(columnName) / 100;
+  }
+
+  @Override
+  public int getIntResult(ResultSet rs, int columnIndex) throws SQLException {
+    primitiveCalls.incrementAndGet();
+    return rs.getInt(columnIndex) / 100;
+  }
+
+  @Override
+  public int getIntResult(CallableStatement cs, int columnIndex) throws SQLException {
+    primitiveCalls.incrementAndGet();
+    return cs.getInt(columnIndex) / 100;
+  }
+
+}
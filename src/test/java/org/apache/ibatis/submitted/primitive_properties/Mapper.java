@@ -0,0 +1,55 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_properties;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Insert("insert into items (id, quantity, price, active, score) values (#{id}, #{quantity}, #{price}, #{active}, #{score})")
+  int insert(Item item);
+
+  @Insert("insert into items (id, quantity, price, active, score) values (#{id}, #{quantity}, #{price}, #{active}, "
+      + "#{score,typeHandler=org.apache.ibatis.submitted.primitive_properties.TenfoldIntegerTypeHandler})")
+  int insertTenfold(Item item);
+
+  @Select("select id, quantity, price, active, score from items where id = #{id}")
+  Item select(int id);
+
+  @Results({
+      @Result(property = "id", column = "id"),
+      @Result(property = "quantity", column = "quantity"),
+      @Result(property = "score", column = "score", typeHandler = TenfoldIntegerTypeHandler.class)
+  })
+  @Select("select id, quantity, price, active, score from items where id = #{id}")
+  Item selectTenfold(int id);
+
+  @Insert("insert into items (id, quantity, price, active, score) values (#{id}, #{quantity}, #{price}, #{active}, "
+      + "#{score,typeHandler=org.apache.ibatis.submitted.primitive_properties.HundredfoldIntTypeHandler})")
+  int insertHundredfold(Item item);
+
+  @Results({
+      @Result(property = "id", column = "id"),
+      @Result(property = "quantity", column = "quantity"),
+      @Result(property = "score", column = "score", typeHandler = HundredfoldIntTypeHandler.class)
+  })
+  @Select("select id, quantity, price, active, score from items where id = #{id}")
+  Item selectHundredfold(int id);
+
+}
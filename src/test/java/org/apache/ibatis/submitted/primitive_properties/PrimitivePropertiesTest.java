@@ -0,0 +1,109 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PrimitivePropertiesTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/primitive_properties/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/primitive_properties/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldBindAndMapPrimitiveProperties() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Item item = new Item();
+      item.setId(2);
+      item.setQuantity(Long.MAX_VALUE);
+      item.setPrice(12.5d);
+      item.setActive(false);
+      item.setScore(7);
+      mapper.insert(item);
+
+      for (Item loaded : new Item[] { mapper.select(2), mapper.selectTenfold(2) }) {
+        assertEquals(2, loaded.getId());
+        assertEquals(Long.MAX_VALUE, loaded.getQuantity());
+        assertEquals(12.5d, loaded.getPrice(), 0.001);
+        assertFalse(loaded.isActive());
+      }
+      assertEquals(7, mapper.select(2).getScore());
+    }
+  }
+
+  @Test
+  public void shouldLeavePrimitivePropertiesAloneOnNullColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Item item = sqlSession.getMapper(Mapper.class).select(1);
+      assertEquals(1, item.getId());
+      assertEquals(-1L, item.getQuantity());
+      assertEquals(-1d, item.getPrice(), 0.001);
+      assertTrue(item.isActive());
+      assertEquals(-1, item.getScore());
+    }
+  }
+
+  @Test
+  public void shouldUseSubclassesOfTheBuiltInTypeHandlers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Item item = new Item();
+      item.setId(3);
+      item.setScore(7);
+      mapper.insertTenfold(item);
+
+      assertEquals(70, mapper.select(3).getScore());
+      assertEquals(7, mapper.selectTenfold(3).getScore());
+    }
+  }
+
+  @Test
+  public void shouldCallTheUnboxedMethodsOfHandlersDeclaringThem() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Item item = new Item();
+      item.setId(4);
+      item.setScore(7);
+      HundredfoldIntTypeHandler.primitiveCalls.set(0);
+      mapper.insertHundredfold(item);
+
+      assertEquals(700, mapper.select(4).getScore());
+      assertEquals(7, mapper.selectHundredfold(4).getScore());
+      assertEquals(2, HundredfoldIntTypeHandler.primitiveCalls.get());
+    }
+  }
+
+}
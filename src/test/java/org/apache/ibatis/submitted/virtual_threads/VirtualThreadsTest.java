@@ -0,0 +1,118 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.virtual_threads;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs queries from 10,000 virtual threads through a pool of 10 connections and a blocking cache. Virtual threads
+ * need Java 21, so the test is skipped on older runtimes; it starts them by reflection to build on Java 8.
+ */
+public class VirtualThreadsTest {
+
+  private static final int THREADS = 10000;
+
+  private static final String[] SCHEDULER_PROPERTIES = { "jdk.virtualThreadScheduler.parallelism",
+      "jdk.virtualThreadScheduler.maxPoolSize" };
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final Map<String, String> savedProperties = new HashMap<>();
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    // a single carrier thread, which is not replaced while pinned, so a virtual thread waiting while pinned stops the
+    // others
+    for (String property : SCHEDULER_PROPERTIES) {
+      savedProperties.put(property, System.setProperty(property, "1"));
+    }
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/virtual_threads/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/virtual_threads/CreateDB.sql");
+  }
+
+  @AfterEach
+  public void restoreSchedulerProperties() {
+    for (String property : SCHEDULER_PROPERTIES) {
+      String value = savedProperties.get(property);
+      if (value == null) {
+        System.clearProperty(property);
+      } else {
+        System.setProperty(property, value);
+      }
+    }
+  }
+
+  @Test
+  public void shouldServeVirtualThreadsWithoutPinningTheirCarrier() throws Exception {
+    Method startVirtualThread = findStartVirtualThread();
+    Assumptions.assumeTrue(startVirtualThread != null, "Virtual threads need Java 21");
+
+    final CountDownLatch done = new CountDownLatch(THREADS);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    for (int i = 0; i < THREADS; i++) {
+      final int id = i % 10 + 1;
+      final boolean cached = i % 2 == 0;
+      Runnable query = () -> {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+          Mapper mapper = sqlSession.getMapper(Mapper.class);
+          String name = cached ? mapper.getName(id) : mapper.getNameUncached(id);
+          if (!("User" + id).equals(name)) {
+            throw new IllegalStateException("Read " + name + " for user " + id);
+          }
+          // let the other threads run while this one holds a connection, and the cache entry for a cached query
+          Thread.yield();
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        } finally {
+          done.countDown();
+        }
+      };
+      startVirtualThread.invoke(null, query);
+    }
+    assertTrue(done.await(60, TimeUnit.SECONDS), done.getCount() + " virtual threads still blocked, their carrier is pinned");
+    assertNull(failure.get());
+  }
+
+  private static Method findStartVirtualThread() {
+    try {
+      return Thread.class.getMethod("startVirtualThread", Runnable.class);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+}
@@ -17,6 +17,7 @@ package org.apache.ibatis.type;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -86,4 +87,17 @@ public class BooleanTypeHandlerTest extends BaseTypeHandlerTest {
     assertNull(TYPE_HANDLER.getResult(cs, 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldGetPrimitiveResultWithoutBoxing() throws Exception {
+    PrimitiveBooleanTypeHandler typeHandler = new BooleanTypeHandler();
+    typeHandler.setBooleanParameter(ps, 1, true);
+    verify(ps).setBoolean(1, true);
+    when(rs.getBoolean("column")).thenReturn(true);
+    assertTrue(typeHandler.getBooleanResult(rs, "column"));
+    when(rs.getBoolean(1)).thenReturn(true);
+    assertTrue(typeHandler.getBooleanResult(rs, 1));
+    when(cs.getBoolean(1)).thenReturn(true);
+    assertTrue(typeHandler.getBooleanResult(cs, 1));
+  }
+
+}
@@ -87,4 +87,17 @@ public class DoubleTypeHandlerTest extends BaseTypeHandlerTest {
     assertNull(TYPE_HANDLER.getResult(cs, 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldGetPrimitiveResultWithoutBoxing() throws Exception {
+    PrimitiveDoubleTypeHandler typeHandler = new DoubleTypeHandler();
+    typeHandler.setDoubleParameter(ps, 1, 100d);
+    verify(ps).setDouble(1, 100d);
+    when(rs.getDouble("column")).thenReturn(100d);
+    assertEquals(100d, typeHandler.getDoubleResult(rs, "column"), 0.0001);
+    when(rs.getDouble(1)).thenReturn(100d);
+    assertEquals(100d, typeHandler.getDoubleResult(rs, 1), 0.0001);
+    when(cs.getDouble(1)).thenReturn(100d);
+    assertEquals(100d, typeHandler.getDoubleResult(cs, 1), 0.0001);
+  }
+
+}
@@ -87,4 +87,17 @@ public class IntegerTypeHandlerTest extends BaseTypeHandlerTest {
     assertNull(TYPE_HANDLER.getResult(cs, 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldGetPrimitiveResultWithoutBoxing() throws Exception {
+    PrimitiveIntTypeHandler typeHandler = new IntegerTypeHandler();
+    typeHandler.setIntParameter(ps, 1, 100);
+    verify(ps).setInt(1, 100);
+    when(rs.getInt("column")).thenReturn(100);
+    assertEquals(100, typeHandler.getIntResult(rs, "column"));
+    when(rs.getInt(1)).thenReturn(100);
+    assertEquals(100, typeHandler.getIntResult(rs, 1));
+    when(cs.getInt(1)).thenReturn(100);
+    assertEquals(100, typeHandler.getIntResult(cs, 1));
+  }
+
+}
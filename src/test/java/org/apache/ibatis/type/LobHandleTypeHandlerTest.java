@@ -0,0 +1,278 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ParameterMetaData;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+/**
+ * Tests for {@link LobHandleTypeHandler}.
+ */
+public class LobHandleTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<LobHandle> TYPE_HANDLER = new LobHandleTypeHandler();
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @Mock
+  protected Blob blob;
+
+  @Mock
+  protected Clob clob;
+
+  @BeforeAll
+  public static void setupSqlSessionFactory() throws Exception {
+    DataSource dataSource = BaseDataTest.createUnpooledDataSource("org/apache/ibatis/type/jdbc.properties");
+    TransactionFactory transactionFactory = new JdbcTransactionFactory();
+    Environment environment = new Environment("Production", transactionFactory, dataSource);
+    Configuration configuration = new Configuration(environment);
+    configuration.addMapper(Mapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/type/LobHandleTypeHandlerTest.sql");
+
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Mapper mapper = session.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        mapper.insert(i, ("content" + i).getBytes(StandardCharsets.UTF_8), "body" + i);
+      }
+      session.commit();
+    }
+  }
+
+  @Override
+  @Test
+  public void shouldSetParameter() throws Exception {
+    LobHandle handle = LobHandle.forBlob(blob, null);
+    assertThrows(TypeException.class, () -> TYPE_HANDLER.setParameter(ps, 1, handle, JdbcType.BLOB));
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByName() throws Exception {
+    when(rs.findColumn("column")).thenReturn(1);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnType(1)).thenReturn(Types.BLOB);
+    when(rs.getBlob(1)).thenReturn(blob);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(TYPE_HANDLER.getResult(rs, "column").transferTo(out)).isEqualTo(5);
+    assertThat(out.toString()).isEqualTo("Hello");
+    verify(blob).free();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByName() throws Exception {
+    when(rs.findColumn("column")).thenReturn(1);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnType(1)).thenReturn(Types.BLOB);
+    when(rs.getBlob(1)).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(rs, "column")).isNull();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByPosition() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnType(1)).thenReturn(Types.CLOB);
+    when(rs.getClob(1)).thenReturn(clob);
+    when(clob.getCharacterStream()).thenReturn(new StringReader("Hello"));
+    StringWriter writer = new StringWriter();
+    LobHandle handle = TYPE_HANDLER.getResult(rs, 1);
+    assertThat(handle.isCharacter()).isTrue();
+    assertThat(handle.transferTo(writer)).isEqualTo(5);
+    assertThat(writer.toString()).isEqualTo("Hello");
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByPosition() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnType(1)).thenReturn(Types.CLOB);
+    when(rs.getClob(1)).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(rs, 1)).isNull();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    ParameterMetaData pmd = mock(ParameterMetaData.class);
+    when(cs.getParameterMetaData()).thenReturn(pmd);
+    when(pmd.getParameterType(1)).thenReturn(Types.BLOB);
+    when(cs.getBlob(1)).thenReturn(blob);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(TYPE_HANDLER.getResult(cs, 1).transferTo(out)).isEqualTo(5);
+    assertThat(out.toString()).isEqualTo("Hello");
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromCallableStatement() throws Exception {
+    ParameterMetaData pmd = mock(ParameterMetaData.class);
+    when(cs.getParameterMetaData()).thenReturn(pmd);
+    when(pmd.getParameterType(1)).thenReturn(Types.BLOB);
+    when(cs.getBlob(1)).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(cs, 1)).isNull();
+  }
+
+  @Test
+  public void shouldOpenOtherColumnsAgainOnTransfer() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnType(1)).thenReturn(Types.LONGVARBINARY);
+    when(rs.getRow()).thenReturn(1);
+    when(rs.getBinaryStream(1)).thenAnswer(invocation -> new ByteArrayInputStream("Hello".getBytes()));
+    LobHandle handle = TYPE_HANDLER.getResult(rs, 1);
+    verify(rs, times(1)).getBinaryStream(1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(handle.transferTo(out)).isEqualTo(5);
+    assertThat(out.toString()).isEqualTo("Hello");
+  }
+
+  @Test
+  public void shouldReturnNullForOtherColumnsHoldingNull() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnType(1)).thenReturn(Types.LONGVARCHAR);
+    when(rs.getCharacterStream(1)).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(rs, 1)).isNull();
+  }
+
+  @Test
+  public void shouldRefuseOtherColumnsWhenTheRowIsUnknown() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnType(1)).thenReturn(Types.LONGVARBINARY);
+    when(rs.getRow()).thenThrow(new SQLFeatureNotSupportedException());
+    when(rs.getBinaryStream(1)).thenAnswer(invocation -> new ByteArrayInputStream("Hello".getBytes()));
+    LobHandle handle = TYPE_HANDLER.getResult(rs, 1);
+    assertThrows(TypeException.class, () -> handle.transferTo(new ByteArrayOutputStream()));
+  }
+
+  @Test
+  public void shouldNotTransferTwice() throws Exception {
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    LobHandle handle = LobHandle.forBlob(blob, null);
+    handle.transferTo(new ByteArrayOutputStream());
+    assertThrows(TypeException.class, () -> handle.transferTo(new ByteArrayOutputStream()));
+  }
+
+  @Test
+  public void shouldStreamLobsFromCursor() throws Exception {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      List<String> contents = new ArrayList<>();
+      List<String> bodies = new ArrayList<>();
+      try (Cursor<LobContent> cursor = session.getMapper(Mapper.class).findAll()) {
+        for (LobContent lobContent : cursor) {
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          lobContent.getContent().transferTo(out);
+          contents.add(new String(out.toByteArray(), StandardCharsets.UTF_8));
+          StringWriter writer = new StringWriter();
+          lobContent.getBody().transferTo(writer);
+          bodies.add(writer.toString());
+        }
+      }
+      assertThat(contents).containsExactly("content1", "content2", "content3");
+      assertThat(bodies).containsExactly("body1", "body2", "body3");
+    }
+  }
+
+  @Test
+  public void shouldRejectHandleOnceTheRowIsGone() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      List<LobContent> lobContents = session.getMapper(Mapper.class).findAllAsList();
+      assertThat(lobContents).hasSize(3);
+      assertThrows(TypeException.class, () -> lobContents.get(0).getContent().transferTo(new ByteArrayOutputStream()));
+    }
+  }
+
+  interface Mapper {
+    @Select("SELECT ID, CONTENT, BODY FROM TEST_LOB ORDER BY ID")
+    Cursor<LobContent> findAll();
+
+    @Select("SELECT ID, CONTENT, BODY FROM TEST_LOB ORDER BY ID")
+    List<LobContent> findAllAsList();
+
+    @Insert("INSERT INTO TEST_LOB (ID, CONTENT, BODY) VALUES(#{id}, #{content}, #{body})")
+    void insert(@Param("id") int id, @Param("content") byte[] content, @Param("body") String body);
+  }
+
+  static class LobContent {
+    private int id;
+    private LobHandle content;
+    private LobHandle body;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public LobHandle getContent() {
+      return content;
+    }
+
+    public void setContent(LobHandle content) {
+      this.content = content;
+    }
+
+    public LobHandle getBody() {
+      return body;
+    }
+
+    public void setBody(LobHandle body) {
+      this.body = body;
+    }
+  }
+
+}
@@ -87,4 +87,17 @@ public class LongTypeHandlerTest extends BaseTypeHandlerTest {
     assertNull(TYPE_HANDLER.getResult(cs, 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldGetPrimitiveResultWithoutBoxing() throws Exception {
+    PrimitiveLongTypeHandler typeHandler = new LongTypeHandler();
+    typeHandler.setLongParameter(ps, 1, 100L);
+    verify(ps).setLong(1, 100L);
+    when(rs.getLong("column")).thenReturn(100L);
+    assertEquals(100L, typeHandler.getLongResult(rs, "column"));
+    when(rs.getLong(1)).thenReturn(100L);
+    assertEquals(100L, typeHandler.getLongResult(rs, 1));
+    when(cs.getLong(1)).thenReturn(100L);
+    assertEquals(100L, typeHandler.getLongResult(cs, 1));
+  }
+
+}
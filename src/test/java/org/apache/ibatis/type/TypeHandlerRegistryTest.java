@@ -223,4 +223,21 @@ public class TypeHandlerRegistryTest {
     typeHandlerRegistry.register(Address.class, StringTypeHandler.class);
     assertTrue(typeHandlerRegistry.hasTypeHandler(Address.class));
   }
+
+  @Test
+  public void shouldReuseResolvedTypeHandlerUntilNextRegistration() {
+    class Address {
+    }
+    assertNull(typeHandlerRegistry.getTypeHandler(Address.class, JdbcType.VARCHAR));
+    assertNull(typeHandlerRegistry.getTypeHandler(Address.class, JdbcType.VARCHAR));
+    TypeHandler<String> handler = new StringTypeHandler();
+    typeHandlerRegistry.register(Address.class, JdbcType.VARCHAR, (TypeHandler) handler);
+    assertSame(handler, typeHandlerRegistry.getTypeHandler(Address.class, JdbcType.VARCHAR));
+    assertSame(handler, typeHandlerRegistry.getTypeHandler(Address.class, JdbcType.VARCHAR));
+    assertSame(handler, typeHandlerRegistry.getTypeHandler(Address.class), "sole handler is picked for null jdbc type");
+    TypeHandler<String> clobHandler = new ClobTypeHandler();
+    typeHandlerRegistry.register(Address.class, JdbcType.CLOB, (TypeHandler) clobHandler);
+    assertNull(typeHandlerRegistry.getTypeHandler(Address.class), "no sole handler any more");
+    assertSame(clobHandler, typeHandlerRegistry.getTypeHandler(Address.class, JdbcType.CLOB));
+  }
 }